@@ -17,17 +17,23 @@
 package se.idsec.sigval.sigvalservice.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
 import se.idsec.sigval.sigvalservice.configuration.keys.KeySourceType;
 import se.idsec.sigval.sigvalservice.configuration.keys.PkiCredentialFactory;
+import se.idsec.sigval.sigvalservice.crl.ServiceCRLCache;
+import se.idsec.sigval.sigvalservice.fetch.ConditionalFetcher;
+import se.idsec.sigval.sigvalservice.fetch.EndpointCircuitBreaker;
 import se.swedenconnect.security.credential.PkiCredential;
 import se.swedenconnect.sigval.cert.validity.crl.CRLCache;
-import se.swedenconnect.sigval.cert.validity.crl.impl.CRLCacheImpl;
 import se.swedenconnect.sigval.svt.issuer.SVTModel;
 
 import java.io.File;
@@ -63,10 +69,31 @@ public class BeanConfig {
     return builder.build();
   }
 
+  @Bean
+  public EndpointCircuitBreaker endpointCircuitBreaker(
+    @Value("${sigval-service.http.circuit-breaker.failure-threshold:3}") int failureThreshold,
+    @Value("${sigval-service.http.circuit-breaker.open-seconds:60}") long openSeconds,
+    @Qualifier("revocationWebClient") WebClient webClient,
+    MeterRegistry meterRegistry
+  ) {
+    log.info("Endpoint circuit breaker failure threshold: {}, open (seconds): {}", failureThreshold, openSeconds);
+    return new EndpointCircuitBreaker(failureThreshold, openSeconds * 1000, webClient, meterRegistry);
+  }
+
   @Bean
   public CRLCache crlCache(
     @Value("${sigval-service.crl.cache-folder:#{null}}") String cacheFolder,
-    @Value("${sigval-service.crl.recache-grace-period}") long recacheGracePeiod
+    @Value("${sigval-service.crl.recache-grace-period}") long recacheGracePeiod,
+    @Value("${sigval-service.crl.recache.parallelism:8}") int recacheParallelism,
+    @Value("${sigval-service.crl.recache.per-host-limit:2}") int perHostLimit,
+    @Value("${sigval-service.crl.recache.skip-if-valid-for-seconds:0}") long skipIfValidForSeconds,
+    @Value("${sigval-service.crl.max-size:32MB}") DataSize maxCrlSize,
+    @Value("${sigval-service.crl.index.enabled:true}") boolean indexEnabled,
+    @Value("${sigval-service.crl.index.min-entries:10000}") int indexMinEntries,
+    @Qualifier("revocationWebClient") WebClient webClient,
+    EndpointCircuitBreaker endpointCircuitBreaker,
+    ObjectMapper objectMapper,
+    MeterRegistry meterRegistry
   ) {
     File cacheFolderFile = cacheFolder == null
       ? new File(System.getProperty("user.dir"), "target/crl-cache")
@@ -74,7 +101,13 @@ public class BeanConfig {
 
     log.info("Setup CRL cache storage at: {}", cacheFolderFile.getAbsolutePath());
     log.info("CRL cache grace period set to (milliseconds): {}", recacheGracePeiod);
-    return new CRLCacheImpl(cacheFolderFile, recacheGracePeiod);
+    log.info("CRL re-cache parallelism: {}, per host limit: {}, skip if valid for (seconds): {}",
+      recacheParallelism, perHostLimit, skipIfValidForSeconds);
+    log.info("CRL revoked serial index enabled: {}, min entries: {}", indexEnabled, indexMinEntries);
+    ConditionalFetcher crlFetcher = new ConditionalFetcher(webClient,
+      (int) Math.min(Integer.MAX_VALUE, maxCrlSize.toBytes()), endpointCircuitBreaker);
+    return new ServiceCRLCache(cacheFolderFile, recacheGracePeiod, skipIfValidForSeconds, recacheParallelism,
+      perHostLimit, indexEnabled ? Math.max(1, indexMinEntries) : 0, crlFetcher, objectMapper, meterRegistry);
   }
 
   @Bean
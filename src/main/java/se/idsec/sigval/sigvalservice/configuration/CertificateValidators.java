@@ -16,17 +16,28 @@
 
 package se.idsec.sigval.sigvalservice.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import se.idsec.sigval.sigvalservice.fetch.ConditionalFetcher;
+import se.idsec.sigval.sigvalservice.fetch.EndpointCircuitBreaker;
+import se.idsec.sigval.sigvalservice.validation.CachingCertificateValidator;
+import se.idsec.sigval.sigvalservice.validation.CertificateResultRefresher;
 import se.idsec.signservice.security.certificate.CertificateValidator;
 import se.swedenconnect.sigval.cert.chain.impl.StatusCheckingCertificateValidatorImpl;
 import se.swedenconnect.sigval.cert.validity.crl.CRLCache;
@@ -34,20 +45,44 @@ import se.swedenconnect.sigval.commons.utils.SVAUtils;
 import se.idsec.sigval.sigvalservice.configuration.keys.TslTrustCertStoreFactory;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertStore;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Component
-@DependsOn("webClientBean")
-public class CertificateValidators {
+@DependsOn("revocationWebClient")
+public class CertificateValidators implements DisposableBean {
 
   private final CRLCache crlCache;
-  private final WebClient webClient;
+  private final MeterRegistry meterRegistry;
+  /** The caching validators currently in use, by validator name */
+  private final Map<String, CachingCertificateValidator> cachingValidators = new ConcurrentHashMap<>();
+  private final CertificateResultRefresher refresher;
+  private final ConditionalFetcher tslFetcher;
+  /** The TSL trust sources of the current validators, by TSL trust root */
+  private Map<String, TslRepository> tslRepositories = new HashMap<>();
+  private TrustFolderWatcher trustFolderWatcher;
+  private final ObjectMapper objectMapper;
+  /** The folder where TSL snapshots are stored, or null if snapshots are disabled */
+  private final File tslSnapshotFolder;
+  private final Duration tslSnapshotMaxAge;
   @Value("${sigval-service.cert-validator.sig.tsltrust-root:#{null}}") String sigTslTrustRoot;
   @Value("${sigval-service.cert-validator.sig.trusted-folder:#{null}}") String sigTrustFolder;
   @Value("${sigval-service.cert-validator.tsa.tsltrust-root:#{null}}") String tsaTslTrustRoot;
@@ -56,6 +91,10 @@ public class CertificateValidators {
   @Value("${sigval-service.cert-validator.svt.trusted-folder:#{null}}") String svtTrustFolder;
   @Value("${sigval-service.cert-validator.svt.kid-match-folder:#{null}}") String kidMatchFolder;
   @Value("${sigval-service.cert-validator.accept-no-rev-avail:true}") boolean acceptNoRevAvail;
+  @Value("${sigval-service.cert-validator.cache.enabled:true}") boolean cacheEnabled;
+  @Value("${sigval-service.cert-validator.cache.time-bucket-seconds:300}") long cacheTimeBucketSeconds;
+  @Value("${sigval-service.cert-validator.cache.max-entries:10000}") int cacheMaxEntries;
+  @Value("${sigval-service.cert-validator.cache.refresh-ahead-seconds:60}") long cacheRefreshAheadSeconds;
 
   @Getter private CertificateValidator signatureCertificateValidator;
   @Getter private CertificateValidator timestampCertificateValidator;
@@ -63,52 +102,354 @@ public class CertificateValidators {
   @Getter private List<X509Certificate> kidMatchCerts;
 
   @Autowired
-  public CertificateValidators(CRLCache crlCache, WebClient webClient) {
+  public CertificateValidators(CRLCache crlCache, @Qualifier("revocationWebClient") WebClient webClient,
+    MeterRegistry meterRegistry,
+    @Value("${sigval-service.cert-validator.cache.refresh-threads:2}") int refreshThreads,
+    @Value("${sigval-service.cert-validator.tsl-repository.max-size:16MB}") DataSize maxTslRepositorySize,
+    @Value("${sigval-service.cert-validator.tsl-snapshot.enabled:true}") boolean tslSnapshotEnabled,
+    @Value("${sigval-service.cert-validator.tsl-snapshot.folder:#{null}}") String tslSnapshotFolder,
+    @Value("${sigval-service.cert-validator.tsl-snapshot.max-age:7d}") Duration tslSnapshotMaxAge,
+    ObjectMapper objectMapper, EndpointCircuitBreaker endpointCircuitBreaker) {
     this.crlCache = crlCache;
-    this.webClient = webClient;
+    this.meterRegistry = meterRegistry;
+    this.objectMapper = objectMapper;
+    this.tslSnapshotFolder = !tslSnapshotEnabled
+      ? null
+      : tslSnapshotFolder == null
+        ? new File(System.getProperty("user.dir"), "target/tsl-snapshot")
+        : new File(tslSnapshotFolder);
+    if (this.tslSnapshotFolder != null) {
+      log.info("TSL snapshot folder: {}, max age: {}", this.tslSnapshotFolder.getAbsolutePath(), tslSnapshotMaxAge);
+    }
+    this.tslSnapshotMaxAge = tslSnapshotMaxAge;
+    this.refresher = new CertificateResultRefresher(refreshThreads, 1000, meterRegistry);
+    this.tslFetcher = new ConditionalFetcher(webClient,
+      (int) Math.min(Integer.MAX_VALUE, maxTslRepositorySize.toBytes()), endpointCircuitBreaker);
   }
 
   public void loadValidators() throws IOException, CertificateException {
-    signatureCertificateValidator = getCertValidator(crlCache, sigTrustFolder, sigTslTrustRoot);
-    timestampCertificateValidator = getCertValidator(crlCache, tsaTrustFolder, tsaTslTrustRoot);
-    svtCertificateValidator = getCertValidator(crlCache, svtTrustFolder, svtTslTrustRoot);
-    kidMatchCerts = Arrays.asList(getAdditionalTrustedCerts(null, kidMatchFolder));
+    loadValidators(true);
   }
 
-  private CertificateValidator getCertValidator(CRLCache crlCache, String trustFolder, String tslTrustRoot)
-    throws IOException, CertificateException {
-
-    X509Certificate policyRoot = null;
-    CertStore certStore = null;
+  /**
+   * Loads the certificate validators if the trust configuration changed since the validators were last loaded.
+   *
+   * <p>
+   * The trust folders are checked for changed certificates, and the CA repository of each TSL trust root is downloaded
+   * conditionally on the previous download. Validators are only rebuilt, discarding their cached results, if any trust
+   * source changed or if the load is forced.
+   * </p>
+   *
+   * @param force true to rebuild the validators regardless of changes, downloading all CA repositories again
+   * @return true if the validators were rebuilt
+   * @throws IOException on errors reading the trust configuration
+   * @throws CertificateException on errors parsing trusted certificates
+   */
+  public synchronized boolean loadValidators(boolean force) throws IOException, CertificateException {
+    if (trustFolderWatcher == null) {
+      trustFolderWatcher = new TrustFolderWatcher(
+        Arrays.asList(sigTrustFolder, tsaTrustFolder, svtTrustFolder, kidMatchFolder));
+    }
+    boolean changed = trustFolderWatcher.checkForChanges();
 
-    if (tslTrustRoot != null) {
+    // Validators configured with the same TSL trust root share one download of the CA repository
+    Map<String, TslRepository> repositories = new HashMap<>();
+    for (String tslTrustRoot : Arrays.asList(sigTslTrustRoot, tsaTslTrustRoot, svtTslTrustRoot)) {
+      if (tslTrustRoot == null || repositories.containsKey(tslTrustRoot)) {
+        continue;
+      }
+      TslRepository previous = tslRepositories.get(tslTrustRoot);
       try {
-        log.info("Loading trusted certificates from TSL source: {}", tslTrustRoot);
-        TslTrustCertStoreFactory ttCSFactory = new TslTrustCertStoreFactory(tslTrustRoot, webClient);
-        policyRoot = ttCSFactory.getPolicyRoot();
-        certStore = ttCSFactory.getCertStore();
+        TslRepository repository = getTslRepository(tslTrustRoot, force ? null : previous);
+        changed |= previous == null || repository.certStoreFactory() != previous.certStoreFactory();
+        repositories.put(tslTrustRoot, repository);
       } catch (Exception e) {
         log.error("Failed to load trusted certificates from TSL source: {}", tslTrustRoot, e);
+        if (previous != null) {
+          // Keep the trusted certificates from the last successful load
+          repositories.put(tslTrustRoot, previous);
+        }
       }
     }
-    X509Certificate[] additionalCertsArray = getAdditionalTrustedCerts(policyRoot, trustFolder);
+
+    if (!force && !changed && signatureCertificateValidator != null) {
+      log.debug("Trust configuration not changed - keeping current certificate validators");
+      return false;
+    }
+    buildValidators(repositories);
+    return true;
+  }
+
+  /**
+   * Loads the certificate validators from the TSL snapshots stored by previous loads, without downloading any CA
+   * repository. The CA repositories are then downloaded conditionally on the snapshots by the next call to
+   * {@link #loadValidators(boolean)}.
+   *
+   * @return true if the validators were loaded, false if snapshots are disabled, no TSL trust root is configured, or
+   *   a snapshot is missing, does not match the configured policy root or is older than the max snapshot age
+   */
+  public synchronized boolean loadValidatorsFromSnapshot() {
+    List<String> tslTrustRoots = Arrays.asList(sigTslTrustRoot, tsaTslTrustRoot, svtTslTrustRoot);
+    if (tslSnapshotFolder == null || tslTrustRoots.stream().allMatch(Objects::isNull)) {
+      return false;
+    }
+    try {
+      Map<String, TslRepository> repositories = new HashMap<>();
+      for (String tslTrustRoot : tslTrustRoots) {
+        if (tslTrustRoot == null || repositories.containsKey(tslTrustRoot)) {
+          continue;
+        }
+        TslRepository repository = readSnapshot(tslTrustRoot);
+        if (repository == null) {
+          log.info("No valid TSL snapshot of {} - loading trusted certificates from TSL source", tslTrustRoot);
+          return false;
+        }
+        repositories.put(tslTrustRoot, repository);
+      }
+      if (trustFolderWatcher == null) {
+        trustFolderWatcher = new TrustFolderWatcher(
+          Arrays.asList(sigTrustFolder, tsaTrustFolder, svtTrustFolder, kidMatchFolder));
+      }
+      trustFolderWatcher.checkForChanges();
+      buildValidators(repositories);
+      log.info("Loaded trusted certificates from TSL snapshots in {}", tslSnapshotFolder.getAbsolutePath());
+      return true;
+    }
+    catch (Exception e) {
+      log.warn("Failed to load validators from TSL snapshots: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private void buildValidators(Map<String, TslRepository> repositories) throws IOException, CertificateException {
+    tslRepositories = repositories;
+    // Validators configured with the same trust folder share the certificates parsed from the folder
+    Map<String, List<X509Certificate>> trustFolderCerts = new HashMap<>();
+    signatureCertificateValidator = getCachingValidator("sig",
+      getCertValidator(crlCache, sigTrustFolder, repositories.get(sigTslTrustRoot), trustFolderCerts));
+    timestampCertificateValidator = getCachingValidator("tsa",
+      getCertValidator(crlCache, tsaTrustFolder, repositories.get(tsaTslTrustRoot), trustFolderCerts));
+    svtCertificateValidator = getCachingValidator("svt",
+      getCertValidator(crlCache, svtTrustFolder, repositories.get(svtTslTrustRoot), trustFolderCerts));
+    kidMatchCerts = Arrays.asList(getAdditionalTrustedCerts(null, kidMatchFolder, trustFolderCerts));
+  }
+
+  /**
+   * Gets the CA repository of a TSL trust root, downloading the repository conditionally on a previous download.
+   *
+   * @param tslTrustRoot the policy root certificate file
+   * @param previous the previously loaded repository of the trust root, or null to download unconditionally
+   * @return the previous repository if neither the policy root nor the CA repository changed, otherwise a new
+   *   repository
+   */
+  private TslRepository getTslRepository(String tslTrustRoot, TslRepository previous)
+    throws IOException, CertificateException, NoSuchAlgorithmException {
+    byte[] policyRootBytes = Files.readAllBytes(Path.of(tslTrustRoot));
+    TslRepository sameRoot = previous != null && Arrays.equals(previous.policyRoot(), policyRootBytes)
+      ? previous
+      : null;
+    X509Certificate policyRoot = SVAUtils.getCertificate(policyRootBytes);
+    String location = TslTrustCertStoreFactory.getRepositoryLocation(policyRoot);
+    if (location == null) {
+      if (sameRoot != null) {
+        return sameRoot;
+      }
+      TslRepository repository = new TslRepository(policyRootBytes, null, null, null,
+        new TslTrustCertStoreFactory(policyRoot, (byte[]) null));
+      writeSnapshot(tslTrustRoot, repository, null);
+      return repository;
+    }
+    ConditionalFetcher.Response response = tslFetcher.fetch(location,
+      sameRoot == null ? null : sameRoot.etag(),
+      sameRoot == null ? null : sameRoot.lastModified());
+    if (response.notModified() && sameRoot != null) {
+      log.debug("CA repository {} not modified", location);
+      touchSnapshot(tslTrustRoot);
+      return sameRoot;
+    }
+    String digest = Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(response.data()));
+    TslRepository repository;
+    if (sameRoot != null && digest.equals(sameRoot.digest())) {
+      log.debug("CA repository {} content not changed", location);
+      repository = new TslRepository(policyRootBytes, response.etag(), response.lastModified(), digest,
+        sameRoot.certStoreFactory());
+    }
+    else {
+      log.info("Loading trusted certificates from TSL source: {}", tslTrustRoot);
+      repository = new TslRepository(policyRootBytes, response.etag(), response.lastModified(), digest,
+        new TslTrustCertStoreFactory(policyRoot, response.data()));
+    }
+    writeSnapshot(tslTrustRoot, repository, response.data());
+    return repository;
+  }
+
+  /**
+   * Reads the snapshot of a TSL trust root.
+   *
+   * @param tslTrustRoot the policy root certificate file
+   * @return the repository of the snapshot, or null if there is no snapshot of the current policy root, or if the
+   *   snapshot of the CA repository is older than the max snapshot age
+   */
+  private TslRepository readSnapshot(String tslTrustRoot) throws IOException, CertificateException {
+    File snapshotFile = getSnapshotFile(tslTrustRoot);
+    if (!snapshotFile.exists()) {
+      return null;
+    }
+    TslSnapshot snapshot = objectMapper.readValue(snapshotFile, TslSnapshot.class);
+    byte[] policyRootBytes = Files.readAllBytes(Path.of(tslTrustRoot));
+    if (snapshot.getVersion() != TslSnapshot.CURRENT_VERSION
+      || !Arrays.equals(snapshot.getPolicyRoot(), policyRootBytes)) {
+      return null;
+    }
+    if (snapshot.getRepository() != null) {
+      Duration age = Duration.ofMillis(Math.max(0, System.currentTimeMillis() - snapshot.getCreated()));
+      if (age.compareTo(tslSnapshotMaxAge) > 0) {
+        log.info("TSL snapshot of {} is {} old, exceeding max age {}", tslTrustRoot, age, tslSnapshotMaxAge);
+        return null;
+      }
+      log.info("Using TSL snapshot of {} downloaded {} ago", tslTrustRoot, age);
+    }
+    return new TslRepository(policyRootBytes, snapshot.getEtag(), snapshot.getLastModified(), snapshot.getDigest(),
+      new TslTrustCertStoreFactory(SVAUtils.getCertificate(policyRootBytes), snapshot.getRepository()));
+  }
+
+  private void writeSnapshot(String tslTrustRoot, TslRepository repository, byte[] repositoryBytes) {
+    if (tslSnapshotFolder == null) {
+      return;
+    }
+    storeSnapshot(tslTrustRoot, TslSnapshot.builder()
+      .version(TslSnapshot.CURRENT_VERSION)
+      .tslTrustRoot(tslTrustRoot)
+      .policyRoot(repository.policyRoot())
+      .etag(repository.etag())
+      .lastModified(repository.lastModified())
+      .digest(repository.digest())
+      .repository(repositoryBytes)
+      .created(System.currentTimeMillis())
+      .build());
+  }
+
+  /**
+   * Updates the download time of a snapshot whose CA repository was not modified at the TSL source, so that the age
+   * of the snapshot is counted from when the repository was last confirmed.
+   *
+   * @param tslTrustRoot the policy root certificate file
+   */
+  private void touchSnapshot(String tslTrustRoot) {
+    if (tslSnapshotFolder == null) {
+      return;
+    }
+    File snapshotFile = getSnapshotFile(tslTrustRoot);
+    if (!snapshotFile.exists()) {
+      return;
+    }
+    try {
+      TslSnapshot snapshot = objectMapper.readValue(snapshotFile, TslSnapshot.class);
+      snapshot.setCreated(System.currentTimeMillis());
+      storeSnapshot(tslTrustRoot, snapshot);
+    }
+    catch (IOException e) {
+      log.warn("Unable to update TSL snapshot of {}: {}", tslTrustRoot, e.getMessage());
+    }
+  }
+
+  private void storeSnapshot(String tslTrustRoot, TslSnapshot tslSnapshot) {
+    try {
+      if (!tslSnapshotFolder.exists() && !tslSnapshotFolder.mkdirs()) {
+        throw new IOException("Unable to create folder " + tslSnapshotFolder.getAbsolutePath());
+      }
+      byte[] snapshot = objectMapper.writeValueAsBytes(tslSnapshot);
+      File snapshotFile = getSnapshotFile(tslTrustRoot);
+      File tempFile = new File(tslSnapshotFolder, snapshotFile.getName() + ".tmp");
+      Files.write(tempFile.toPath(), snapshot);
+      Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (IOException e) {
+      log.warn("Unable to store TSL snapshot of {}: {}", tslTrustRoot, e.getMessage());
+    }
+  }
+
+  private File getSnapshotFile(String tslTrustRoot) {
+    try {
+      return new File(tslSnapshotFolder, Hex.toHexString(MessageDigest.getInstance("SHA-256")
+        .digest(tslTrustRoot.getBytes(StandardCharsets.UTF_8))) + ".json");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  private CertificateValidator getCachingValidator(String name, CertificateValidator certificateValidator) {
+    if (!cacheEnabled) {
+      return certificateValidator;
+    }
+    CachingCertificateValidator cachingValidator = new CachingCertificateValidator(certificateValidator, name,
+      cacheTimeBucketSeconds, cacheMaxEntries, cacheRefreshAheadSeconds,
+      cacheRefreshAheadSeconds > 0 ? refresher : null, meterRegistry);
+    if (cachingValidators.put(name, cachingValidator) == null) {
+      // Register once. The gauge reports the entries of the validator currently in use
+      Gauge.builder("sigval.cert-validator.cache.entries", cachingValidators,
+          validators -> validators.containsKey(name) ? validators.get(name).getEntryCount() : 0)
+        .tag("validator", name)
+        .register(meterRegistry);
+      Gauge.builder("sigval.cert-validator.cache.hit-ratio", meterRegistry, registry -> getHitRatio(registry, name))
+        .tag("validator", name)
+        .register(meterRegistry);
+    }
+    return cachingValidator;
+  }
+
+  @Override
+  public void destroy() {
+    refresher.shutdown();
+    if (trustFolderWatcher != null) {
+      trustFolderWatcher.close();
+    }
+  }
+
+  private static double getHitRatio(MeterRegistry meterRegistry, String name) {
+    double hits = meterRegistry.counter("sigval.cert-validator.cache.requests", "validator", name, "result", "hit")
+      .count();
+    double misses = meterRegistry.counter("sigval.cert-validator.cache.requests", "validator", name, "result", "miss")
+      .count();
+    return hits + misses == 0 ? 0 : hits / (hits + misses);
+  }
+
+  private CertificateValidator getCertValidator(CRLCache crlCache, String trustFolder, TslRepository tslRepository,
+    Map<String, List<X509Certificate>> trustFolderCerts) throws IOException, CertificateException {
+
+    X509Certificate policyRoot = null;
+    CertStore certStore = null;
+
+    if (tslRepository != null) {
+      policyRoot = tslRepository.certStoreFactory().getPolicyRoot();
+      certStore = tslRepository.certStoreFactory().getCertStore();
+    }
+    X509Certificate[] additionalCertsArray = getAdditionalTrustedCerts(policyRoot, trustFolder, trustFolderCerts);
     final StatusCheckingCertificateValidatorImpl statusCheckingCertificateValidator =
         new StatusCheckingCertificateValidatorImpl(crlCache, certStore, additionalCertsArray);
     statusCheckingCertificateValidator.setAcceptNoRevAvail(acceptNoRevAvail);
     return statusCheckingCertificateValidator;
   }
 
-  private X509Certificate[] getAdditionalTrustedCerts(X509Certificate policyRoot, String trustFolderName) {
-    List<X509Certificate> taCertList = new ArrayList<>();
+  private X509Certificate[] getAdditionalTrustedCerts(X509Certificate policyRoot, String trustFolderName,
+    Map<String, List<X509Certificate>> trustFolderCerts) {
+    // Duplicate certificates, e.g. a policy root also present in the trust folder, are included once
+    Set<X509Certificate> taCertList = new LinkedHashSet<>();
     if (policyRoot != null) taCertList.add(policyRoot);
 
     if (StringUtils.isNotEmpty(trustFolderName)) {
       // Collect all certs from trust folder
-      File trustFolder = new File(trustFolderName);
-      File[] certFiles = trustFolder.listFiles((dir, name) -> name.endsWith(".cer") || name.endsWith(".crt"));
-      Arrays.stream(certFiles)
-        .map(file -> getCertificate(file))
-        .forEach(x509certList -> x509certList.forEach(x509cert -> taCertList.add(x509cert)));
+      taCertList.addAll(trustFolderCerts.computeIfAbsent(trustFolderName, folderName -> {
+        File trustFolder = new File(folderName);
+        File[] certFiles = trustFolder.listFiles((dir, name) -> name.endsWith(".cer") || name.endsWith(".crt"));
+        List<X509Certificate> folderCerts = new ArrayList<>();
+        Arrays.stream(certFiles)
+          .map(file -> getCertificate(file))
+          .forEach(folderCerts::addAll);
+        return folderCerts;
+      }));
     }
 
     return taCertList.toArray(new X509Certificate[taCertList.size()]);
@@ -143,4 +484,17 @@ public class CertificateValidators {
     }
     return pemObjList;
   }
+
+  /**
+   * The trusted certificates loaded from a TSL trust root.
+   *
+   * @param policyRoot the encoded policy root certificate
+   * @param etag the ETag of the CA repository or null
+   * @param lastModified the Last-Modified header of the CA repository or null
+   * @param digest the SHA-256 digest of the CA repository or null if the policy root has no CA repository
+   * @param certStoreFactory the cert store of the CA repository
+   */
+  private record TslRepository(byte[] policyRoot, String etag, String lastModified, String digest,
+    TslTrustCertStoreFactory certStoreFactory) {
+  }
 }
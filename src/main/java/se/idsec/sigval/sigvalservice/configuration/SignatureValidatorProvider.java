@@ -18,6 +18,7 @@ package se.idsec.sigval.sigvalservice.configuration;
 
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -26,6 +27,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import se.idsec.sigval.sigvalservice.validation.CachingPDFSignatureValidator;
+import se.idsec.sigval.sigvalservice.validation.ParallelPDFSignatureValidator;
+import se.idsec.sigval.sigvalservice.validation.ParallelXMLSignedDocumentValidator;
+import se.idsec.sigval.sigvalservice.validation.PrefetchingCertificateValidator;
+import se.idsec.sigval.sigvalservice.validation.SignatureTaskExecutor;
+import se.idsec.sigval.sigvalservice.validation.ValidationResultCache;
 import se.swedenconnect.security.credential.PkiCredential;
 import se.swedenconnect.sigval.commons.algorithms.JWSAlgorithmRegistry;
 import se.swedenconnect.sigval.commons.algorithms.PublicKeyType;
@@ -63,7 +70,6 @@ import se.swedenconnect.sigval.xml.verify.ExtendedXMLSignedDocumentValidator;
 import se.swedenconnect.sigval.xml.verify.XMLSignatureElementValidator;
 import se.swedenconnect.sigval.xml.verify.impl.DefalutXMLSigValReportGenerator;
 import se.swedenconnect.sigval.xml.verify.impl.XMLSignatureElementValidatorImpl;
-import se.swedenconnect.sigval.xml.verify.impl.XMLSignedDocumentValidator;
 
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
@@ -73,6 +79,18 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 
+/**
+ * Provides the signature validators, SVT issuers and report generators of the service.
+ *
+ * <p>
+ * Each load of the validators builds a new {@link ValidatorSnapshot} and publishes it with a single volatile write.
+ * Requests obtain the current snapshot once and use it throughout, so reloads do not pause request processing, and
+ * requests in progress during a reload complete with the validators they started with.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
 @Component
 @Slf4j
 public class SignatureValidatorProvider {
@@ -82,6 +100,9 @@ public class SignatureValidatorProvider {
 
   private final CertificateValidators certValidators;
   private final Map<String, PkiCredential> pkiCredentialMap;
+  private final ValidationResultCache validationResultCache;
+  private final SignatureTaskExecutor signatureTaskExecutor;
+  private final MeterRegistry meterRegistry;
 
   @Value("${sigval-service.svt.model.sig-algo}") String svtSigAlgo;
   @Value("${sigval-service.svt.timestamp.policy:#{null}}") String timestampPolicy;
@@ -89,68 +110,113 @@ public class SignatureValidatorProvider {
   @Value("${sigval-service.validator.strict-pdf-context}") boolean strictPdfContextFactory;
   @Value("${sigval-service.report.default-digest-algorithm}") String defaultSigValReportDigestAlgorithm;
 
-  @Getter private DefaultPDFDocTimestampSignatureInterface svtTsSigner;
-  @Getter private PDFSVTSigValClaimsIssuer pdfsvtSigValClaimsIssuer;
-  @Getter private ExtendedPDFSignatureValidator pdfSignatureValidator;
-  @Getter private DefalutPDFSigValReportGenerator pdfSigValReportGenerator;
-  @Getter private XMLDocumentSVTIssuer xmlDocumentSVTIssuer;
-  @Getter private ExtendedXMLSignedDocumentValidator xmlSignedDocumentValidator;
-  @Getter private XMLSignatureElementValidator xmlSignatureElementValidator;
-  @Getter private DefalutXMLSigValReportGenerator xmlSigValReportGenerator;
-  @Getter private JOSEDocumentSVTIssuer joseDocumentSVTIssuer;
-  @Getter private JOSESignedDocumentValidator joseSignedDocumentValidator;
-  @Getter private JOSESignatureDataValidator joseSignatureDataValidator;
-  @Getter private DefalutJOSESigValReportGenerator joseSigValReportGenerator;
-
-  @Getter ReportSigner reportSigner;
-
-  private TimeStampPolicyVerifier timeStampPolicyVerifier;
-  private JWSAlgorithm svtJWSAlgorithm;
-
+  /** The current validators */
+  @Getter private volatile ValidatorSnapshot validators;
 
   @Autowired
-  public SignatureValidatorProvider(CertificateValidators certValidators, Map<String, PkiCredential> pkiCredentialMap) {
+  public SignatureValidatorProvider(CertificateValidators certValidators, Map<String, PkiCredential> pkiCredentialMap,
+    ValidationResultCache validationResultCache, SignatureTaskExecutor signatureTaskExecutor,
+    MeterRegistry meterRegistry) {
     this.certValidators = certValidators;
     this.pkiCredentialMap = pkiCredentialMap;
+    this.validationResultCache = validationResultCache;
+    this.signatureTaskExecutor = signatureTaskExecutor;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Gets the generation of the current validators.
+   *
+   * @return validator generation, or 0 if validators have not been loaded
+   */
+  public long getGeneration() {
+    ValidatorSnapshot current = validators;
+    return current == null ? 0 : current.getGeneration();
   }
 
+  /**
+   * Builds a new set of validators from the trust configuration and publishes them. Loads are serialized with each
+   * other, but never block requests using the current validators.
+   */
   public void loadValidators() throws JOSEException, NoSuchAlgorithmException, IOException, CertificateException {
-    certValidators.loadValidators();
-    svtJWSAlgorithm = jwsAlgorithm();
-    timeStampPolicyVerifier = timeStampPolicyVerifier();
-    xmlSignatureElementValidator = xmlSignatureElementValidator();
-    xmlSignedDocumentValidator = xmlSignedDocumentValidator();
-    xmlDocumentSVTIssuer = xmlDocumentSVTIssuer();
-    pdfSignatureValidator = pdfSignatureValidator();
-    pdfsvtSigValClaimsIssuer = pdfsvtSigValClaimsIssuer();
-    joseSignatureDataValidator = joseSignatureDataValidator();
-    joseSignedDocumentValidator = joseSignedDocumentValidator();
-    joseDocumentSVTIssuer = joseDocumentSVTIssuer();
-    pdfSigValReportGenerator = pdfSigValReportGenerator();
-    xmlSigValReportGenerator = xmlSigValReportGenerator();
-    joseSigValReportGenerator = joseSigValReportGenerator();
-    svtTsSigner = svtTsSigner();
-    reportSigner = reportSigner();
+    reloadValidators(true);
   }
 
-  private ReportSigner reportSigner() {
-    return new ReportSigner(pkiCredentialMap.get(REPORT_KEYSOURCE).getPrivateKey(),
-      new ArrayList<>(pkiCredentialMap.get(REPORT_KEYSOURCE).getCertificateChain()));
+  /**
+   * Builds and publishes a new set of validators if the trust configuration changed since the validators were last
+   * loaded. Unless forced, the current validators, and the results cached for them, are kept if no trust source
+   * changed.
+   *
+   * @param force true to rebuild the validators regardless of changes
+   * @return true if new validators were published
+   */
+  public synchronized boolean reloadValidators(boolean force)
+    throws JOSEException, NoSuchAlgorithmException, IOException, CertificateException {
+    if (!certValidators.loadValidators(force || validators == null)) {
+      return false;
+    }
+    publishValidators();
+    return true;
   }
 
-  private DefalutXMLSigValReportGenerator xmlSigValReportGenerator() {
-    return new DefalutXMLSigValReportGenerator(defaultSigValReportDigestAlgorithm);
+  /**
+   * Builds and publishes validators from the TSL snapshots stored by previous loads, without downloading any CA
+   * repository. Used at startup so that the service can validate before the TSL sources have been reached.
+   *
+   * @return true if validators were published, false if no usable TSL snapshot was found
+   */
+  public synchronized boolean loadValidatorsFromSnapshot()
+    throws JOSEException, NoSuchAlgorithmException, IOException, CertificateException {
+    if (!certValidators.loadValidatorsFromSnapshot()) {
+      return false;
+    }
+    publishValidators();
+    return true;
   }
 
-  private DefalutJOSESigValReportGenerator joseSigValReportGenerator() {
-    return new DefalutJOSESigValReportGenerator(defaultSigValReportDigestAlgorithm);
+  private void publishValidators()
+    throws JOSEException, NoSuchAlgorithmException, IOException, CertificateException {
+    long generation = getGeneration() + 1;
+    JWSAlgorithm svtJWSAlgorithm = jwsAlgorithm();
+    TimeStampPolicyVerifier timeStampPolicyVerifier = timeStampPolicyVerifier();
+
+    // Signer certificates of documents with multiple signature elements are validated in parallel
+    PrefetchingCertificateValidator xmlSignatureCertificateValidator = new PrefetchingCertificateValidator(
+      certValidators.getSignatureCertificateValidator(), "xml", meterRegistry);
+    XMLSignatureElementValidator xmlSignatureElementValidator = xmlSignatureElementValidator(
+      xmlSignatureCertificateValidator, timeStampPolicyVerifier);
+    ExtendedPDFSignatureValidator pdfSignatureValidator = pdfSignatureValidator(timeStampPolicyVerifier);
+    JOSESignatureDataValidator joseSignatureDataValidator = joseSignatureDataValidator(timeStampPolicyVerifier);
+
+    ValidatorSnapshot snapshot = ValidatorSnapshot.builder()
+      .generation(generation)
+      .xmlSignatureElementValidator(xmlSignatureElementValidator)
+      .xmlSignedDocumentValidator(
+        xmlSignedDocumentValidator(xmlSignatureElementValidator, xmlSignatureCertificateValidator))
+      .xmlDocumentSVTIssuer(xmlDocumentSVTIssuer(svtJWSAlgorithm, xmlSignatureElementValidator))
+      .pdfSignatureValidator(pdfSignatureValidator)
+      .pdfsvtSigValClaimsIssuer(pdfsvtSigValClaimsIssuer(svtJWSAlgorithm, pdfSignatureValidator, generation))
+      .joseSignatureDataValidator(joseSignatureDataValidator)
+      .joseSignedDocumentValidator(new JOSESignedDocumentValidator(joseSignatureDataValidator))
+      .joseDocumentSVTIssuer(joseDocumentSVTIssuer(svtJWSAlgorithm, joseSignatureDataValidator))
+      .pdfSigValReportGenerator(new DefalutPDFSigValReportGenerator(defaultSigValReportDigestAlgorithm))
+      .xmlSigValReportGenerator(new DefalutXMLSigValReportGenerator(defaultSigValReportDigestAlgorithm))
+      .joseSigValReportGenerator(new DefalutJOSESigValReportGenerator(defaultSigValReportDigestAlgorithm))
+      .svtTsSigner(svtTsSigner(svtJWSAlgorithm))
+      .reportSigner(reportSigner())
+      .build();
+
+    validators = snapshot;
+    validationResultCache.clear();
+    log.debug("Published validators of generation {}", generation);
   }
 
-  private DefalutPDFSigValReportGenerator pdfSigValReportGenerator() {
-    return new DefalutPDFSigValReportGenerator(defaultSigValReportDigestAlgorithm);
+  private ReportSigner reportSigner() {
+    return new ReportSigner(pkiCredentialMap.get(REPORT_KEYSOURCE).getPrivateKey(),
+      new ArrayList<>(pkiCredentialMap.get(REPORT_KEYSOURCE).getCertificateChain()));
   }
 
-  private JOSESignatureDataValidator joseSignatureDataValidator() {
+  private JOSESignatureDataValidator joseSignatureDataValidator(TimeStampPolicyVerifier timeStampPolicyVerifier) {
     JOSESignaturePolicyValidator joseSignaturePolicyValidator = new PkixJOSESignaturePolicyValidator();
 
     return new JOSESignatureDataValidatorImpl(
@@ -162,11 +228,8 @@ public class SignatureValidatorProvider {
 
   }
 
-  private JOSESignedDocumentValidator joseSignedDocumentValidator() {
-    return new JOSESignedDocumentValidator(joseSignatureDataValidator);
-  }
-
-  private JOSEDocumentSVTIssuer joseDocumentSVTIssuer() throws NoSuchAlgorithmException, JOSEException {
+  private JOSEDocumentSVTIssuer joseDocumentSVTIssuer(JWSAlgorithm svtJWSAlgorithm,
+    JOSESignatureDataValidator joseSignatureDataValidator) throws NoSuchAlgorithmException, JOSEException {
     JOSESVTSigValClaimsIssuer claimsIssuer = new JOSESVTSigValClaimsIssuer(
       svtJWSAlgorithm,
       Objects.requireNonNull(pkiCredentialMap.get(SVT_KEYSOURCE).getPrivateKey()),
@@ -176,7 +239,7 @@ public class SignatureValidatorProvider {
     return new JOSEDocumentSVTIssuer(claimsIssuer);
   }
 
-  private DefaultPDFDocTimestampSignatureInterface svtTsSigner() {
+  private DefaultPDFDocTimestampSignatureInterface svtTsSigner(JWSAlgorithm svtJWSAlgorithm) {
     DefaultPDFDocTimestampSignatureInterface timeStampSigner = new DefaultPDFDocTimestampSignatureInterface(
       pkiCredentialMap.get(SVT_KEYSOURCE).getPrivateKey(),
       Collections.singletonList(pkiCredentialMap.get(SVT_KEYSOURCE).getCertificate()),
@@ -187,19 +250,26 @@ public class SignatureValidatorProvider {
     return timeStampSigner;
   }
 
-  PDFSVTSigValClaimsIssuer pdfsvtSigValClaimsIssuer() throws NoSuchAlgorithmException, JOSEException {
+  private PDFSVTSigValClaimsIssuer pdfsvtSigValClaimsIssuer(JWSAlgorithm svtJWSAlgorithm,
+    ExtendedPDFSignatureValidator pdfSignatureValidator, long generation)
+    throws NoSuchAlgorithmException, JOSEException {
+    // The claims issuer validates the document before issuing the SVT. Let it share cached results with the
+    // validation and report services.
     return new PDFSVTSigValClaimsIssuer(
       svtJWSAlgorithm,
       Objects.requireNonNull(pkiCredentialMap.get(SVT_KEYSOURCE).getPrivateKey()),
       Collections.singletonList(pkiCredentialMap.get(SVT_KEYSOURCE).getCertificate()),
-      pdfSignatureValidator);
+      new CachingPDFSignatureValidator(pdfSignatureValidator, validationResultCache, generation));
   }
 
 
-  private ExtendedPDFSignatureValidator pdfSignatureValidator() {
+  private ExtendedPDFSignatureValidator pdfSignatureValidator(TimeStampPolicyVerifier timeStampPolicyVerifier) {
     PDFSignaturePolicyValidator signaturePolicyValidator = new PkixPdfSignaturePolicyValidator();
+    // Signer certificates of multi-signature documents are validated in parallel before the document is validated
+    PrefetchingCertificateValidator signatureCertificateValidator =
+      new PrefetchingCertificateValidator(certValidators.getSignatureCertificateValidator(), "pdf", meterRegistry);
     PDFSingleSignatureValidator pdfSignatureVerifier = new PDFSingleSignatureValidatorImpl(
-      certValidators.getSignatureCertificateValidator(), signaturePolicyValidator,
+      signatureCertificateValidator, signaturePolicyValidator,
       timeStampPolicyVerifier);
 
     // Setup SVA validator
@@ -209,14 +279,15 @@ public class SignatureValidatorProvider {
     pdfContextFactory.setStrict(strictPdfContextFactory);
 
     // Get the pdf validator
-    return new SVTenabledPDFDocumentSigVerifier(
+    return new ParallelPDFSignatureValidator(new SVTenabledPDFDocumentSigVerifier(
       pdfSignatureVerifier,
       enableSvtValidation ? pdfsvtValidator : null,
-      pdfContextFactory);
+      pdfContextFactory), signatureCertificateValidator, signatureTaskExecutor, enableSvtValidation);
   }
 
 
-  public XMLDocumentSVTIssuer xmlDocumentSVTIssuer() throws JOSEException, NoSuchAlgorithmException {
+  private XMLDocumentSVTIssuer xmlDocumentSVTIssuer(JWSAlgorithm svtJWSAlgorithm,
+    XMLSignatureElementValidator xmlSignatureElementValidator) throws JOSEException, NoSuchAlgorithmException {
     XMLSVTSigValClaimsIssuer claimsIssuer = new XMLSVTSigValClaimsIssuer(
       svtJWSAlgorithm,
       Objects.requireNonNull(pkiCredentialMap.get(SVT_KEYSOURCE).getPrivateKey()),
@@ -244,15 +315,19 @@ public class SignatureValidatorProvider {
   }
 
 
-  public ExtendedXMLSignedDocumentValidator xmlSignedDocumentValidator() {
-    return new XMLSignedDocumentValidator(xmlSignatureElementValidator);
+  private ExtendedXMLSignedDocumentValidator xmlSignedDocumentValidator(
+    XMLSignatureElementValidator xmlSignatureElementValidator,
+    PrefetchingCertificateValidator xmlSignatureCertificateValidator) {
+    return new ParallelXMLSignedDocumentValidator(xmlSignatureElementValidator, xmlSignatureCertificateValidator,
+      signatureTaskExecutor, enableSvtValidation);
   }
 
-  private XMLSignatureElementValidator xmlSignatureElementValidator(){
+  private XMLSignatureElementValidator xmlSignatureElementValidator(
+    PrefetchingCertificateValidator xmlSignatureCertificateValidator, TimeStampPolicyVerifier timeStampPolicyVerifier) {
     XMLSignaturePolicyValidator xmlSignaturePolicyValidator = new PkixXmlSignaturePolicyValidator();
 
     return new XMLSignatureElementValidatorImpl(
-      certValidators.getSignatureCertificateValidator(),
+      xmlSignatureCertificateValidator,
       xmlSignaturePolicyValidator,
       timeStampPolicyVerifier,
       enableSvtValidation ? new XMLSVTValidator(certValidators.getSvtCertificateValidator(), certValidators.getKidMatchCerts()) : null
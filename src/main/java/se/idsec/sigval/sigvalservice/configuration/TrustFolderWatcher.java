@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Detects changes to the certificates in trust folders.
+ *
+ * <p>
+ * Trust folders are registered with a file system watch service. When the watch service reports events for any
+ * folder, or if a folder could not be registered, the content of the folders is hashed and compared with the content
+ * at the previous check, so that a rebuild is only triggered when the certificates actually changed.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class TrustFolderWatcher {
+
+  private final Set<String> folders;
+  private final WatchService watchService;
+  private final Set<String> unwatchedFolders = new LinkedHashSet<>();
+  private Map<String, String> digests;
+
+  /**
+   * Constructor.
+   *
+   * @param folders the trust folders to watch. Null or empty folder names are ignored
+   */
+  public TrustFolderWatcher(Collection<String> folders) {
+    this.folders = new LinkedHashSet<>();
+    folders.stream().filter(StringUtils::isNotEmpty).forEach(this.folders::add);
+    WatchService service = null;
+    try {
+      service = FileSystems.getDefault().newWatchService();
+    }
+    catch (IOException | UnsupportedOperationException e) {
+      log.info("File system watch is not available, trust folders are hashed on each check: {}", e.getMessage());
+    }
+    this.watchService = service;
+    for (String folder : this.folders) {
+      try {
+        if (watchService == null) {
+          throw new IOException("No watch service");
+        }
+        Path.of(folder).register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+      }
+      catch (Exception e) {
+        log.debug("Unable to watch trust folder {}: {}", folder, e.getMessage());
+        unwatchedFolders.add(folder);
+      }
+    }
+  }
+
+  /**
+   * Checks whether the certificates in the trust folders changed since the previous check. The first check always
+   * reports a change.
+   *
+   * @return true if the content of any trust folder changed
+   */
+  public synchronized boolean checkForChanges() {
+    boolean events = pollEvents();
+    if (digests != null && !events && unwatchedFolders.isEmpty()) {
+      return false;
+    }
+    Map<String, String> currentDigests = new HashMap<>();
+    for (String folder : folders) {
+      currentDigests.put(folder, getDigest(folder));
+    }
+    boolean changed = !currentDigests.equals(digests);
+    digests = currentDigests;
+    if (changed) {
+      log.debug("Trust folder content changed");
+    }
+    return changed;
+  }
+
+  /**
+   * Stops watching the trust folders.
+   */
+  public void close() {
+    if (watchService != null) {
+      try {
+        watchService.close();
+      }
+      catch (IOException e) {
+        log.debug("Unable to close trust folder watch service: {}", e.getMessage());
+      }
+    }
+  }
+
+  private boolean pollEvents() {
+    if (watchService == null) {
+      return false;
+    }
+    boolean events = false;
+    WatchKey watchKey;
+    while ((watchKey = watchService.poll()) != null) {
+      events |= !watchKey.pollEvents().isEmpty();
+      watchKey.reset();
+    }
+    return events;
+  }
+
+  private static String getDigest(String folder) {
+    File[] certFiles = new File(folder).listFiles((dir, name) -> name.endsWith(".cer") || name.endsWith(".crt"));
+    if (certFiles == null) {
+      return "";
+    }
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      Arrays.sort(certFiles, Comparator.comparing(File::getName));
+      for (File certFile : certFiles) {
+        digest.update(certFile.getName().getBytes(StandardCharsets.UTF_8));
+        digest.update(Files.readAllBytes(certFile.toPath()));
+      }
+      return Hex.toHexString(digest.digest());
+    }
+    catch (IOException e) {
+      // Reported as a change, and the folder is read again on the next check
+      log.debug("Unable to read trust folder {}: {}", folder, e.getMessage());
+      return "error:" + System.nanoTime();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+}
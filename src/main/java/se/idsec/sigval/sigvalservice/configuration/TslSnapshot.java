@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Snapshot of the CA repository loaded from a TSL trust root, stored in the TSL snapshot folder so that trusted
+ * certificates are available on startup without downloading the repository.
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TslSnapshot {
+
+  /** The current snapshot format version. Snapshots of other versions are ignored */
+  public static final int CURRENT_VERSION = 1;
+
+  /** The snapshot format version */
+  private int version;
+
+  /** The location of the policy root certificate file */
+  private String tslTrustRoot;
+
+  /** The encoded policy root certificate the repository was loaded for */
+  private byte[] policyRoot;
+
+  /** The ETag of the downloaded CA repository, if provided by the server */
+  private String etag;
+
+  /** The Last-Modified header of the downloaded CA repository, if provided by the server */
+  private String lastModified;
+
+  /** The SHA-256 digest of the CA repository, or null if the policy root has no CA repository */
+  private String digest;
+
+  /** The CA repository, or null if the policy root has no CA repository */
+  private byte[] repository;
+
+  /** The time in milliseconds when the CA repository was downloaded, or last found not modified at the TSL source */
+  private long created;
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import se.swedenconnect.sigval.jose.svt.JOSEDocumentSVTIssuer;
+import se.swedenconnect.sigval.jose.verify.DefalutJOSESigValReportGenerator;
+import se.swedenconnect.sigval.jose.verify.JOSESignatureDataValidator;
+import se.swedenconnect.sigval.jose.verify.JOSESignedDocumentValidator;
+import se.swedenconnect.sigval.pdf.svt.PDFSVTSigValClaimsIssuer;
+import se.swedenconnect.sigval.pdf.timestamp.issue.impl.DefaultPDFDocTimestampSignatureInterface;
+import se.swedenconnect.sigval.pdf.verify.ExtendedPDFSignatureValidator;
+import se.swedenconnect.sigval.pdf.verify.impl.DefalutPDFSigValReportGenerator;
+import se.swedenconnect.sigval.report.xml.ReportSigner;
+import se.swedenconnect.sigval.xml.svt.XMLDocumentSVTIssuer;
+import se.swedenconnect.sigval.xml.verify.ExtendedXMLSignedDocumentValidator;
+import se.swedenconnect.sigval.xml.verify.XMLSignatureElementValidator;
+import se.swedenconnect.sigval.xml.verify.impl.DefalutXMLSigValReportGenerator;
+
+/**
+ * The validators, SVT issuers and report generators built from one load of the trust configuration.
+ *
+ * <p>
+ * A snapshot is built completely before it is published by the {@link SignatureValidatorProvider}, and is never
+ * modified. A request that obtains all its validators from the same snapshot therefore never combines validators from
+ * different loads, and keeps using its snapshot if the validators are reloaded while it is processed.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Getter
+@Builder
+public class ValidatorSnapshot {
+
+  /** Incremented every time the validators are reloaded. Used to invalidate results from previous validators */
+  private final long generation;
+
+  private final DefaultPDFDocTimestampSignatureInterface svtTsSigner;
+  private final PDFSVTSigValClaimsIssuer pdfsvtSigValClaimsIssuer;
+  private final ExtendedPDFSignatureValidator pdfSignatureValidator;
+  private final DefalutPDFSigValReportGenerator pdfSigValReportGenerator;
+  private final XMLDocumentSVTIssuer xmlDocumentSVTIssuer;
+  private final ExtendedXMLSignedDocumentValidator xmlSignedDocumentValidator;
+  private final XMLSignatureElementValidator xmlSignatureElementValidator;
+  private final DefalutXMLSigValReportGenerator xmlSigValReportGenerator;
+  private final JOSEDocumentSVTIssuer joseDocumentSVTIssuer;
+  private final JOSESignedDocumentValidator joseSignedDocumentValidator;
+  private final JOSESignatureDataValidator joseSignatureDataValidator;
+  private final DefalutJOSESigValReportGenerator joseSigValReportGenerator;
+  private final ReportSigner reportSigner;
+
+}
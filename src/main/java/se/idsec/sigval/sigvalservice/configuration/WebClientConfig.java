@@ -20,12 +20,16 @@ import io.netty.channel.ChannelOption;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import reactor.netty.transport.ProxyProvider;
 
 import javax.net.ssl.SSLException;
@@ -51,17 +55,72 @@ public class WebClientConfig {
   @Bean(name = "webClientBean")
   public WebClient webClient(WebClient.Builder webClientBuilder, final HttpProxyProperties httpProxyProperties)
       throws Exception {
-    HttpClient httpClient = createHttpClient(httpProxyProperties);
+    HttpClient httpClient = createHttpClient(HttpClient.create(), false, httpProxyProperties);
     return webClientBuilder
         .clientConnector(new ReactorClientHttpConnector(httpClient))
         .build();
   }
 
-  private HttpClient createHttpClient(final HttpProxyProperties httpProxyProperties) {
-    HttpClient httpClient = HttpClient.create()
+  /**
+   * Connection pool of the web client used for revocation and TSL downloads. Pools are kept per remote host, so the
+   * max number of connections and pending acquires apply to each host.
+   */
+  @Bean(name = "revocationConnectionProvider", destroyMethod = "dispose")
+  public ConnectionProvider revocationConnectionProvider(
+      @Value("${sigval-service.revocation.http.pool.max-connections-per-host:16}") int maxConnections,
+      @Value("${sigval-service.revocation.http.pool.pending-acquire-max-count:256}") int pendingAcquireMaxCount,
+      @Value("${sigval-service.revocation.http.pool.pending-acquire-timeout-millis:5000}") long pendingAcquireTimeout,
+      @Value("${sigval-service.revocation.http.pool.max-idle-seconds:30}") long maxIdleSeconds,
+      @Value("${sigval-service.revocation.http.pool.max-life-seconds:300}") long maxLifeSeconds,
+      @Value("${sigval-service.revocation.http.metrics-enabled:true}") boolean metricsEnabled) {
+    return ConnectionProvider.builder("revocation")
+        .maxConnections(maxConnections)
+        .pendingAcquireMaxCount(pendingAcquireMaxCount)
+        .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeout))
+        .maxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+        .maxLifeTime(Duration.ofSeconds(maxLifeSeconds))
+        .evictInBackground(Duration.ofSeconds(Math.max(1, maxIdleSeconds)))
+        .metrics(metricsEnabled)
+        .build();
+  }
+
+  /**
+   * Web client dedicated to downloads of CRLs and TSL CA repositories, with its own connection pool. Connections are
+   * kept alive for reuse, HTTP/2 is negotiated with servers supporting it if enabled, and request metrics are recorded
+   * per remote host.
+   */
+  @Bean(name = "revocationWebClient")
+  public WebClient revocationWebClient(WebClient.Builder webClientBuilder,
+      final HttpProxyProperties httpProxyProperties,
+      @Qualifier("revocationConnectionProvider") ConnectionProvider connectionProvider,
+      @Value("${sigval-service.revocation.http.http2-enabled:true}") boolean http2Enabled,
+      @Value("${sigval-service.revocation.http.metrics-enabled:true}") boolean metricsEnabled) {
+    HttpClient httpClient = HttpClient.create(connectionProvider)
+        .option(ChannelOption.SO_KEEPALIVE, true)
+        .keepAlive(true)
+        // URIs are not tagged, so that metrics are recorded per remote host
+        .metrics(metricsEnabled, uri -> "/")
+        .protocol(http2Enabled
+            ? new HttpProtocol[] { HttpProtocol.HTTP11, HttpProtocol.H2 }
+            : new HttpProtocol[] { HttpProtocol.HTTP11 });
+    return webClientBuilder.clone()
+        .clientConnector(new ReactorClientHttpConnector(
+            createHttpClient(httpClient, http2Enabled, httpProxyProperties)))
+        .build();
+  }
+
+  private HttpClient createHttpClient(HttpClient baseClient, final boolean http2,
+      final HttpProxyProperties httpProxyProperties) {
+    HttpClient httpClient = baseClient
         .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
         .responseTimeout(Duration.ofMillis(readTimeoutMillis));
-    if (ignoreSsl) {
+    if (ignoreSsl && http2) {
+      // HTTP/2 is negotiated by ALPN, which requires a protocol specific SSL context
+      httpClient = httpClient
+          .secure(sslContextSpec -> sslContextSpec.sslContext(Http2SslContextSpec.forClient()
+              .configure(builder -> builder.trustManager(InsecureTrustManagerFactory.INSTANCE))));
+    }
+    else if (ignoreSsl) {
       httpClient = httpClient
           .secure(sslContextSpec -> {
             try {
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.configuration.keys;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.util.encoders.Hex;
+
+import javax.security.auth.x500.X500Principal;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.cert.CRL;
+import java.security.cert.CRLSelector;
+import java.security.cert.CertSelector;
+import java.security.cert.CertStore;
+import java.security.cert.CertStoreParameters;
+import java.security.cert.CertStoreSpi;
+import java.security.cert.Certificate;
+import java.security.cert.X509CertSelector;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Certificate store indexing its certificates by subject, subject key identifier and authority key identifier.
+ *
+ * <p>
+ * A {@code Collection} cert store matches every certificate against the selector of each lookup, which makes path
+ * building linear in the number of certificates of the store. The selectors used when building certificate paths
+ * select certificates by subject name or key identifier, so this store looks up the candidate certificates in an index
+ * and only matches the selector against those. Lookups by other criteria match all certificates as before. Duplicate
+ * certificates are stored once.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class IndexedCertStore extends CertStoreSpi {
+
+  /** The cert store type */
+  public static final String TYPE = "Indexed";
+
+  private static final Provider PROVIDER = new IndexedCertStoreProvider();
+
+  private final List<X509Certificate> certificates;
+  private final Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<>();
+  private final Map<String, List<X509Certificate>> bySubjectKeyIdentifier = new HashMap<>();
+  private final Map<String, List<X509Certificate>> byAuthorityKeyIdentifier = new HashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param params the certificates of the store
+   * @throws InvalidAlgorithmParameterException if the parameters are not {@link Parameters}
+   */
+  public IndexedCertStore(CertStoreParameters params) throws InvalidAlgorithmParameterException {
+    super(params);
+    if (!(params instanceof Parameters parameters)) {
+      throw new InvalidAlgorithmParameterException("Indexed cert store requires IndexedCertStore.Parameters");
+    }
+    this.certificates = List.copyOf(new LinkedHashSet<>(parameters.certificates()));
+    for (X509Certificate certificate : certificates) {
+      bySubject.computeIfAbsent(certificate.getSubjectX500Principal(), key -> new ArrayList<>(1)).add(certificate);
+      String subjectKeyIdentifier = getExtensionKey(certificate, Extension.subjectKeyIdentifier.getId());
+      if (subjectKeyIdentifier != null) {
+        bySubjectKeyIdentifier.computeIfAbsent(subjectKeyIdentifier, key -> new ArrayList<>(1)).add(certificate);
+      }
+      String authorityKeyIdentifier = getExtensionKey(certificate, Extension.authorityKeyIdentifier.getId());
+      if (authorityKeyIdentifier != null) {
+        byAuthorityKeyIdentifier.computeIfAbsent(authorityKeyIdentifier, key -> new ArrayList<>()).add(certificate);
+      }
+    }
+  }
+
+  /**
+   * Creates an indexed cert store.
+   *
+   * @param certificates the certificates of the store
+   * @return cert store
+   */
+  public static CertStore create(Collection<X509Certificate> certificates) {
+    try {
+      return CertStore.getInstance(TYPE, new Parameters(certificates), PROVIDER);
+    }
+    catch (InvalidAlgorithmParameterException | NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Unable to create indexed cert store", e);
+    }
+  }
+
+  @Override
+  public Collection<? extends Certificate> engineGetCertificates(CertSelector selector) {
+    if (selector == null) {
+      return certificates;
+    }
+    List<X509Certificate> matches = new ArrayList<>();
+    for (X509Certificate certificate : getCandidates(selector)) {
+      if (selector.match(certificate)) {
+        matches.add(certificate);
+      }
+    }
+    return matches;
+  }
+
+  @Override
+  public Collection<? extends CRL> engineGetCRLs(CRLSelector selector) {
+    return Collections.emptyList();
+  }
+
+  private List<X509Certificate> getCandidates(CertSelector selector) {
+    if (!(selector instanceof X509CertSelector x509Selector)) {
+      return certificates;
+    }
+    if (x509Selector.getCertificate() != null) {
+      return bySubject.getOrDefault(x509Selector.getCertificate().getSubjectX500Principal(), List.of());
+    }
+    // Selector key identifiers are the DER encoded extension values, as returned by getExtensionKey
+    if (x509Selector.getSubjectKeyIdentifier() != null) {
+      return bySubjectKeyIdentifier.getOrDefault(Hex.toHexString(x509Selector.getSubjectKeyIdentifier()), List.of());
+    }
+    if (x509Selector.getSubject() != null) {
+      return bySubject.getOrDefault(x509Selector.getSubject(), List.of());
+    }
+    if (x509Selector.getAuthorityKeyIdentifier() != null) {
+      return byAuthorityKeyIdentifier.getOrDefault(Hex.toHexString(x509Selector.getAuthorityKeyIdentifier()),
+        List.of());
+    }
+    return certificates;
+  }
+
+  private static String getExtensionKey(X509Certificate certificate, String oid) {
+    byte[] extensionValue = certificate.getExtensionValue(oid);
+    if (extensionValue == null) {
+      return null;
+    }
+    try {
+      return Hex.toHexString(ASN1OctetString.getInstance(extensionValue).getOctets());
+    }
+    catch (Exception e) {
+      log.debug("Unable to index extension {} of certificate {}", oid, certificate.getSubjectX500Principal());
+      return null;
+    }
+  }
+
+  /**
+   * Parameters of an indexed cert store.
+   *
+   * @param certificates the certificates of the store
+   */
+  public record Parameters(Collection<X509Certificate> certificates) implements CertStoreParameters {
+
+    @Override
+    public Object clone() {
+      return new Parameters(certificates);
+    }
+  }
+
+  /**
+   * Provider of the indexed cert store. The provider is not installed, but passed explicitly when the store is created.
+   */
+  private static class IndexedCertStoreProvider extends Provider {
+
+    IndexedCertStoreProvider() {
+      super("SigvalIndexedCertStore", "1.0", "Indexed certificate store");
+      putService(new Service(this, "CertStore", TYPE, IndexedCertStore.class.getName(), null, null) {
+        @Override
+        public Object newInstance(Object constructorParameter) throws NoSuchAlgorithmException {
+          try {
+            return new IndexedCertStore((CertStoreParameters) constructorParameter);
+          }
+          catch (InvalidAlgorithmParameterException e) {
+            throw new NoSuchAlgorithmException(e.getMessage(), e);
+          }
+        }
+      });
+    }
+  }
+
+}
@@ -39,10 +39,8 @@ import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.cert.CertStore;
-import java.security.cert.CertStoreParameters;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
-import java.security.cert.CollectionCertStoreParameters;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -70,13 +68,41 @@ public class TslTrustCertStoreFactory {
     init();
   }
 
-  private void init() throws IOException {
-    List<X509Certificate> certificateList = new ArrayList<>();
+  /**
+   * Creates a cert store from a CA repository that has already been downloaded from the location returned by
+   * {@link #getRepositoryLocation(X509Certificate)}.
+   *
+   * @param policyRoot the policy root certificate
+   * @param repository the CA repository of the policy root, or null if the policy root has no CA repository
+   * @throws IOException if the CA repository can not be parsed
+   */
+  public TslTrustCertStoreFactory(X509Certificate policyRoot, byte[] repository) throws IOException {
+    this.policyRoot = policyRoot;
+    this.webClient = null;
+    if (repository != null) {
+      try {
+        parseRepository(repository);
+      }
+      catch (Exception ex) {
+        log.warn("Unable to extract cert store from provided CA repository", ex);
+        throw new IOException("Unable to extract cert store from provided CA repository", ex);
+      }
+    }
+  }
+
+  /**
+   * Gets the location of the CA repository of a policy root certificate.
+   *
+   * @param policyRoot the policy root certificate
+   * @return the CA repository location, or null if the policy root contains no SubjectInformationAccess extension
+   * @throws IOException if the location can not be read from the policy root
+   */
+  public static String getRepositoryLocation(X509Certificate policyRoot) throws IOException {
     try {
       SubjectInformationAccess siaExtension = CertUtils.getSIAExtension(policyRoot);
       if (siaExtension == null) {
         log.debug("The policy root certificate contains no SubjectInformationAccess Extension");
-        return;
+        return null;
       }
       GeneralName generalName = Arrays.stream(siaExtension.getAccessDescriptions())
         .filter(accessDescription -> accessDescription.getAccessMethod()
@@ -84,7 +110,19 @@ public class TslTrustCertStoreFactory {
           .equals(OidName.id_pkix_ad_caRepository.getOid()))
         .map(AccessDescription::getAccessLocation)
         .findFirst().orElseThrow(() -> new IllegalArgumentException("No CA repository access description available"));
-      String location = ((DERIA5String) generalName.getName()).getString();
+      return ((DERIA5String) generalName.getName()).getString();
+    }
+    catch (Exception ex) {
+      throw new IOException("Unable to get CA repository location from policy root certificate", ex);
+    }
+  }
+
+  private void init() throws IOException {
+    try {
+      String location = getRepositoryLocation(policyRoot);
+      if (location == null) {
+        return;
+      }
 
       byte[] bytes;
       try {
@@ -110,36 +148,40 @@ public class TslTrustCertStoreFactory {
       if (bytes == null) {
         throw new IOException("No data returned from CA repository");
       }
-      try(ASN1InputStream ain = new ASN1InputStream(bytes)) {
-        ContentInfo cmsContentInfo = ContentInfo.getInstance(ain.readObject());
-        if (!cmsContentInfo.getContentType().equals(CMSObjectIdentifiers.signedData)) {
-          throw new IOException("Illegal content type");
-        }
-        SignedData signedData = SignedData.getInstance(cmsContentInfo.getContent());
-        Iterator<ASN1Encodable> iterator = signedData.getCertificates().iterator();
+      parseRepository(bytes);
+    }
+    catch (Exception ex) {
+      log.warn("Unable to extract cert store from provided policy root certificate", ex);
+      throw new IOException("Unable to extract cert store from provided policy root certificate", ex);
+    }
+  }
 
-        CertificateFactory cf = CertificateFactory.getInstance("X.509", "BC");
-        while (iterator.hasNext()) {
-          try (ByteArrayInputStream is = new ByteArrayInputStream(iterator.next().toASN1Primitive().getEncoded("DER"))) {
-            certificateList.add((X509Certificate) cf.generateCertificate(is));
-            if (log.isTraceEnabled()) {
-              log.trace("Added certificate {} for {}", certificateList.size(),
-                  certificateList.getLast().getSubjectX500Principal());
-            }
-          }
-          catch (Exception ex) {
-            log.warn("Unable to decode certificate from signed data");
+  private void parseRepository(byte[] bytes) throws Exception {
+    List<X509Certificate> certificateList = new ArrayList<>();
+    try(ASN1InputStream ain = new ASN1InputStream(bytes)) {
+      ContentInfo cmsContentInfo = ContentInfo.getInstance(ain.readObject());
+      if (!cmsContentInfo.getContentType().equals(CMSObjectIdentifiers.signedData)) {
+        throw new IOException("Illegal content type");
+      }
+      SignedData signedData = SignedData.getInstance(cmsContentInfo.getContent());
+      Iterator<ASN1Encodable> iterator = signedData.getCertificates().iterator();
+
+      CertificateFactory cf = CertificateFactory.getInstance("X.509", "BC");
+      while (iterator.hasNext()) {
+        try (ByteArrayInputStream is = new ByteArrayInputStream(iterator.next().toASN1Primitive().getEncoded("DER"))) {
+          certificateList.add((X509Certificate) cf.generateCertificate(is));
+          if (log.isTraceEnabled()) {
+            log.trace("Added certificate {} for {}", certificateList.size(),
+                certificateList.getLast().getSubjectX500Principal());
           }
         }
-
-        CertStoreParameters certStoreParameters = new CollectionCertStoreParameters(certificateList);
-        certStore = CertStore.getInstance("Collection", certStoreParameters, "BC");
+        catch (Exception ex) {
+          log.warn("Unable to decode certificate from signed data");
+        }
       }
 
-    }
-    catch (Exception ex) {
-      log.warn("Unable to extract cert store from provided policy root certificate", ex);
-      throw new IOException("Unable to extract cert store from provided policy root certificate", ex);
+      // Indexed, as path building looks up issuers among the thousands of certificates of a CA repository
+      certStore = IndexedCertStore.create(certificateList);
     }
   }
 
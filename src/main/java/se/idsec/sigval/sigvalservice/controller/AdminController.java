@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import se.idsec.sigval.sigvalservice.configuration.SignatureValidatorProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST API for administration of the service.
+ *
+ * <p>
+ * The API is disabled unless {@code sigval-service.admin.enabled} is set to true. Requests must then present the API
+ * key configured by {@code sigval-service.admin.api-key} in the {@value #API_KEY_HEADER} header. All requests are
+ * rejected if no API key is configured. The API should in addition only be exposed to administrators, e.g. by
+ * restricting access to the path in the reverse proxy.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@RestController
+public class AdminController {
+
+  /** The request header holding the API key */
+  public static final String API_KEY_HEADER = "X-API-Key";
+
+  private final SignatureValidatorProvider signatureValidatorProvider;
+  private final boolean adminEnabled;
+  /** SHA-256 hash of the configured API key, or null if no API key is configured */
+  private final byte[] apiKeyHash;
+
+  @Autowired
+  public AdminController(SignatureValidatorProvider signatureValidatorProvider,
+    @Value("${sigval-service.admin.enabled:false}") boolean adminEnabled,
+    @Value("${sigval-service.admin.api-key:#{null}}") String apiKey) {
+    this.signatureValidatorProvider = signatureValidatorProvider;
+    this.adminEnabled = adminEnabled;
+    this.apiKeyHash = apiKey == null || apiKey.isBlank() ? null : hash(apiKey);
+    if (adminEnabled && apiKeyHash == null) {
+      log.warn("Admin API is enabled but no API key is configured - all admin requests are rejected");
+    }
+  }
+
+  /**
+   * Reloads the trust configuration and rebuilds the signature validators, regardless of whether any trust source
+   * changed. All trust folders are read and all TSL CA repositories are downloaded again.
+   *
+   * @param apiKey the API key presented by the client
+   * @return the generation of the new validators
+   */
+  @PostMapping(value = "/api/v1/admin/reload-trust", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Map<String, Object>> reloadTrust(
+    @RequestHeader(value = API_KEY_HEADER, required = false) String apiKey) {
+    if (!adminEnabled) {
+      return ResponseEntity.notFound().build();
+    }
+    if (!isAuthorized(apiKey)) {
+      log.warn("Rejected admin request with missing or invalid API key");
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+    try {
+      log.info("Forced reload of trust configuration");
+      signatureValidatorProvider.reloadValidators(true);
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("reloaded", true);
+      result.put("generation", signatureValidatorProvider.getGeneration());
+      return ResponseEntity.ok(result);
+    }
+    catch (Exception e) {
+      log.warn("Forced reload of trust configuration failed", e);
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("reloaded", false);
+      result.put("error", e.getMessage());
+      return ResponseEntity.internalServerError().body(result);
+    }
+  }
+
+  private boolean isAuthorized(String apiKey) {
+    if (apiKeyHash == null || apiKey == null) {
+      return false;
+    }
+    // Compares hashes in constant time, so that neither the key nor its length is revealed by timing
+    return MessageDigest.isEqual(apiKeyHash, hash(apiKey));
+  }
+
+  private static byte[] hash(String value) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+}
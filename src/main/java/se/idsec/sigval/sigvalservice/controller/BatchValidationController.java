@@ -0,0 +1,254 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import se.idsec.sigval.sigvalservice.result.ResultPageDataGenerator;
+import se.idsec.sigval.sigvalservice.validation.BatchValidationExecutor;
+import se.idsec.sigval.sigvalservice.validation.DocumentSpooler;
+import se.idsec.sigval.sigvalservice.validation.SignedDocumentValidationService;
+import se.idsec.sigval.sigvalservice.validation.SpooledDocument;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * REST API for validating a batch of signed documents.
+ *
+ * <p>
+ * The documents of a batch are validated in parallel on the {@link BatchValidationExecutor}. The result of each
+ * document is written as one line of JSON (NDJSON) as soon as the document has been validated, so results are not
+ * returned in the order of the documents in the batch. Each line holds the index and name of the document together
+ * with either the validation result or an error message. Each document is read through the {@link DocumentSpooler},
+ * so documents waiting to be validated may be held in spool files, and the size limit of posted documents applies to
+ * each document of the batch.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@RestController
+public class BatchValidationController {
+
+  private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+  private final SignedDocumentValidationService signedDocumentValidationService;
+  private final ResultPageDataGenerator resultPageDataGenerator;
+  private final BatchValidationExecutor batchValidationExecutor;
+  private final ObjectMapper objectMapper;
+  private final DocumentSpooler documentSpooler;
+
+  @Autowired
+  public BatchValidationController(SignedDocumentValidationService signedDocumentValidationService,
+    ResultPageDataGenerator resultPageDataGenerator, BatchValidationExecutor batchValidationExecutor,
+    ObjectMapper objectMapper, DocumentSpooler documentSpooler) {
+    this.signedDocumentValidationService = signedDocumentValidationService;
+    this.resultPageDataGenerator = resultPageDataGenerator;
+    this.batchValidationExecutor = batchValidationExecutor;
+    this.objectMapper = objectMapper;
+    this.documentSpooler = documentSpooler;
+  }
+
+  /**
+   * Validates the documents of a multipart request.
+   *
+   * @param files the signed documents
+   * @param lang the language used for signer attribute names
+   * @return NDJSON stream of validation results
+   */
+  @PostMapping(value = "/api/v1/validate/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<StreamingResponseBody> validateFiles(
+    @RequestParam("files") List<MultipartFile> files,
+    @RequestParam(name = "lang", defaultValue = "en") String lang) {
+
+    Iterator<MultipartFile> fileIterator = files.iterator();
+    return getResponse(() -> {
+      if (!fileIterator.hasNext()) {
+        return null;
+      }
+      MultipartFile file = fileIterator.next();
+      try (InputStream inputStream = file.getInputStream()) {
+        return new BatchDocument(file.getOriginalFilename(), documentSpooler.spool(inputStream), null);
+      }
+      catch (IOException e) {
+        return new BatchDocument(file.getOriginalFilename(), null, e.getMessage());
+      }
+    }, lang);
+  }
+
+  /**
+   * Validates the documents of a posted ZIP archive. The archive is read while documents are validated.
+   *
+   * @param postedZipStream ZIP archive holding the signed documents
+   * @param lang the language used for signer attribute names
+   * @return NDJSON stream of validation results
+   */
+  @PostMapping(value = "/api/v1/validate/batch", consumes = "application/zip")
+  public ResponseEntity<StreamingResponseBody> validateZip(
+    InputStream postedZipStream,
+    @RequestParam(name = "lang", defaultValue = "en") String lang) {
+
+    ZipInputStream zipInputStream = new ZipInputStream(postedZipStream);
+    return getResponse(() -> {
+      ZipEntry entry;
+      while ((entry = zipInputStream.getNextEntry()) != null) {
+        if (entry.isDirectory()) {
+          continue;
+        }
+        try {
+          return new BatchDocument(entry.getName(), documentSpooler.spool(zipInputStream), null);
+        }
+        catch (IOException e) {
+          return new BatchDocument(entry.getName(), null, e.getMessage());
+        }
+      }
+      return null;
+    }, lang);
+  }
+
+  private ResponseEntity<StreamingResponseBody> getResponse(DocumentReader documentReader, String lang) {
+    return ResponseEntity.ok()
+      .contentType(NDJSON)
+      .body(outputStream -> validateBatch(documentReader, lang, outputStream));
+  }
+
+  private void validateBatch(DocumentReader documentReader, String lang, OutputStream outputStream)
+    throws IOException {
+
+    CompletionService<String> completionService = batchValidationExecutor.newCompletionService();
+    int documentCount = 0;
+    int pending = 0;
+    try {
+      BatchDocument document;
+      while ((document = documentReader.next()) != null) {
+        int index = documentCount++;
+        if (document.error() != null) {
+          writeLine(outputStream, getErrorLine(index, document.name(), document.error()));
+        }
+        else {
+          BatchDocument batchDocument = document;
+          try {
+            batchValidationExecutor.submit(completionService, (int) document.document().getSize(),
+              () -> validate(index, batchDocument, lang));
+          }
+          catch (InterruptedException | RuntimeException e) {
+            document.document().close();
+            throw e;
+          }
+          pending++;
+        }
+        // Write results that are already available while the rest of the batch is read
+        Future<String> completed;
+        while ((completed = completionService.poll()) != null) {
+          writeLine(outputStream, getLine(completed));
+          pending--;
+        }
+      }
+      for (; pending > 0; pending--) {
+        writeLine(outputStream, getLine(completionService.take()));
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Batch validation interrupted", e);
+    }
+  }
+
+  private String validate(int index, BatchDocument document, String lang) throws IOException {
+    try (SpooledDocument spooledDocument = document.document()) {
+      SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult =
+        signedDocumentValidationService.validate(spooledDocument);
+      Map<String, Object> line = new LinkedHashMap<>();
+      line.put("index", index);
+      line.put("name", document.name());
+      line.put("result", resultPageDataGenerator.getResultPageData(validationResult, document.name(), null, lang));
+      return objectMapper.writeValueAsString(line);
+    }
+    catch (Exception e) {
+      log.debug("Failed to validate batch document {}: {}", document.name(), e.getMessage());
+      return getErrorLine(index, document.name(), e.getMessage());
+    }
+  }
+
+  private String getLine(Future<String> completed) throws InterruptedException, IOException {
+    try {
+      return completed.get();
+    }
+    catch (ExecutionException e) {
+      throw new IOException("Batch validation failed", e.getCause());
+    }
+  }
+
+  private String getErrorLine(int index, String name, String message) throws IOException {
+    Map<String, Object> line = new LinkedHashMap<>();
+    line.put("index", index);
+    line.put("name", name);
+    line.put("error", String.valueOf(message));
+    return objectMapper.writeValueAsString(line);
+  }
+
+  private void writeLine(OutputStream outputStream, String line) throws IOException {
+    outputStream.write(line.getBytes(StandardCharsets.UTF_8));
+    outputStream.write('\n');
+    outputStream.flush();
+  }
+
+  /**
+   * Reads the documents of a batch.
+   */
+  @FunctionalInterface
+  private interface DocumentReader {
+
+    /**
+     * Reads the next document.
+     *
+     * @return the next document or null if there are no more documents in the batch
+     * @throws IOException on errors reading the batch
+     */
+    BatchDocument next() throws IOException;
+  }
+
+  /**
+   * A document of a batch, or the error reading it. The document is closed when it has been validated.
+   */
+  private record BatchDocument(String name, SpooledDocument document, String error) {
+  }
+
+}
@@ -52,7 +52,8 @@ public class MainController {
     httpSession.removeAttribute(SessionAttr.docMimeType.name());
     httpSession.removeAttribute(SessionAttr.docType.name());
     httpSession.removeAttribute(SessionAttr.validationResult.name());
-    httpSession.removeAttribute(SessionAttr.resultPageData.name());
+    httpSession.removeAttribute(SessionAttr.validationTime.name());
+    httpSession.removeAttribute(SessionAttr.validationGeneration.name());
     httpSession.removeAttribute(SessionAttr.uploadErrorMessage.name());
     httpSession.removeAttribute(SessionAttr.svtDocument.name());
 
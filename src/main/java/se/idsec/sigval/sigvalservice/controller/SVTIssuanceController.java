@@ -16,12 +16,8 @@
 
 package se.idsec.sigval.sigvalservice.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.nimbusds.jwt.SignedJWT;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.InputStreamResource;
@@ -29,18 +25,20 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.w3c.dom.Document;
-import se.idsec.sigval.sigvalservice.configuration.SignatureValidatorProvider;
-import se.swedenconnect.sigval.commons.document.DocType;
-import se.swedenconnect.sigval.commons.svt.SVTExtendpolicy;
-import se.swedenconnect.sigval.commons.svt.SVTUtils;
-import se.swedenconnect.sigval.pdf.timestamp.issue.impl.PDFDocTimstampProcessor;
-import se.swedenconnect.sigval.svt.issuer.SVTModel;
-import se.swedenconnect.sigval.xml.utils.XMLDocumentBuilder;
+import se.idsec.sigval.sigvalservice.validation.DocumentSpooler;
+import se.idsec.sigval.sigvalservice.validation.DocumentTooLargeException;
+import se.idsec.sigval.sigvalservice.validation.SVTIssuanceService;
+import se.idsec.sigval.sigvalservice.validation.SignedDocumentValidationService;
+import se.idsec.sigval.sigvalservice.validation.SpooledDocument;
+import se.idsec.sigval.sigvalservice.validation.SvtEnhancedDocument;
+import se.idsec.sigval.sigvalservice.validation.ValidationRejectedException;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -51,24 +49,20 @@ import java.nio.charset.StandardCharsets;
 @Slf4j
 public class SVTIssuanceController {
 
-  @Value("${sigval-service.svt.issuer-enabled}") boolean enableSvtIssuer;
-  @Value("${sigval-service.svt.default-replace}") boolean defaultReplaceSvt;
-  @Value("${sigval-service.ui.downloaded-svt-suffix}") String svtSuffix;
   @Value("${sigval-service.svt.download-attachment:true}") boolean svtAsAttachment;
-  @Value("${sigval-service.svt.issue-on-failed-validation:false}") boolean issueSvtOnFailedValidation;
 
   private final HttpSession httpSession;
-  private final SignatureValidatorProvider signatureValidatorProvider;
-  private final SVTModel svtModel;
-  private final ObjectMapper objectMapper;
+  private final SVTIssuanceService svtIssuanceService;
+  private final SignedDocumentValidationService signedDocumentValidationService;
+  private final DocumentSpooler documentSpooler;
 
   @Autowired
-  public SVTIssuanceController(HttpSession httpSession,
-    SignatureValidatorProvider signatureValidatorProvider, SVTModel svtModel, ObjectMapper objectMapper) {
+  public SVTIssuanceController(HttpSession httpSession, SVTIssuanceService svtIssuanceService,
+    SignedDocumentValidationService signedDocumentValidationService, DocumentSpooler documentSpooler) {
     this.httpSession = httpSession;
-    this.signatureValidatorProvider = signatureValidatorProvider;
-    this.svtModel = svtModel;
-    this.objectMapper = objectMapper;
+    this.svtIssuanceService = svtIssuanceService;
+    this.signedDocumentValidationService = signedDocumentValidationService;
+    this.documentSpooler = documentSpooler;
   }
 
   @RequestMapping("/issue-svt-internal")
@@ -76,6 +70,15 @@ public class SVTIssuanceController {
     @RequestParam(name = "replace", required = false) String replace) throws IOException, RuntimeException {
     byte[] documentBytes = (byte[]) httpSession.getAttribute(SessionAttr.signedDoc.name());
     String name = (String) httpSession.getAttribute(SessionAttr.docName.name());
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult =
+      SessionValidationResult.getFreshResult(httpSession, signedDocumentValidationService);
+    if (documentBytes != null && validationResult != null) {
+      // Make the validation result of the uploaded document available to the SVT issuer validators, so that the
+      // document is not validated again. This applies to the PDF SVT issuer, which validates the complete document.
+      // XML and JOSE SVT issuers validate each signature element as part of creating the SVT claims.
+      signedDocumentValidationService.cacheValidationResult(documentBytes,
+        SessionValidationResult.getGeneration(httpSession), validationResult);
+    }
     return issueSvtFunction(documentBytes, name, replace, svtAsAttachment);
   }
 
@@ -84,11 +87,15 @@ public class SVTIssuanceController {
     InputStream postedDocumentStream,
     @RequestParam(name = "name", required = false) String name,
     @RequestParam(name = "replace", required = false) String replace) {
-    try {
-      byte[] documentBytes = postedDocumentStream == null
-        ? null
-        : IOUtils.toByteArray(postedDocumentStream);
-      return issueSvtFunction(documentBytes, name, replace, false);
+    try (SpooledDocument document = documentSpooler.spoolWithoutMemoryLimit(postedDocumentStream)) {
+      return issueSvtFunction(document.isEmpty() ? null : document.getDocumentBytes(), name, replace, false);
+    }
+    catch (DocumentTooLargeException e) {
+      return ResponseEntity
+        .status(HttpStatus.PAYLOAD_TOO_LARGE)
+        .body(new InputStreamResource(new ByteArrayInputStream(
+          e.getMessage().getBytes(StandardCharsets.UTF_8)
+        )));
     }
     catch (IOException e) {
       return ResponseEntity
@@ -107,85 +114,30 @@ public class SVTIssuanceController {
       return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
 
-    SVTExtendpolicy svtExtendpolicy;
-    if (StringUtils.isNotBlank(replace)) {
-      svtExtendpolicy = replace.equalsIgnoreCase("true")
-        ? SVTExtendpolicy.REPLACE
-        : SVTExtendpolicy.EXTEND;
-    }
-    else {
-      svtExtendpolicy = defaultReplaceSvt
-        ? SVTExtendpolicy.REPLACE
-        : SVTExtendpolicy.EXTEND;
+    SvtEnhancedDocument svtEnhancedDocument;
+    try {
+      svtEnhancedDocument = svtIssuanceService.issueSvt(documentBytes, name, replace);
     }
-
-    byte[] svtEnhancedDocument;
-    MediaType mediaType;
-
-    // Generate a report based on document type
-    DocType docType = DocType.getDocType(documentBytes);
-    switch (docType) {
-    case XML:
-      try {
-        Document xmlDocument = XMLDocumentBuilder.getDocument(documentBytes);
-        svtEnhancedDocument = signatureValidatorProvider.getXmlDocumentSVTIssuer()
-          .issueSvt(xmlDocument, svtModel, svtExtendpolicy, issueSvtOnFailedValidation);
-        mediaType = MediaType.TEXT_XML;
-      }
-      catch (Exception ex) {
-        log.error("Error issuing XML SVT token {}", ex.getMessage());
-        throw new IOException(ex.getMessage());
-      }
-      break;
-    case PDF:
-      try {
-        SignedJWT signedSvtJWT = signatureValidatorProvider.getPdfsvtSigValClaimsIssuer()
-          .getSignedSvtJWT(documentBytes, svtModel);
-        if (!SVTUtils.checkIfSVTShouldBeIssued(signedSvtJWT, issueSvtOnFailedValidation)) {
-          throw new IOException("SVT request for document with invalid signatures");
-        }
-        PDFDocTimstampProcessor.Result result = PDFDocTimstampProcessor.createSVTSealedPDF(
-          documentBytes, signedSvtJWT.serialize(), signatureValidatorProvider.getSvtTsSigner());
-        svtEnhancedDocument = result.getDocument();
-        mediaType = MediaType.APPLICATION_PDF;
-      }
-      catch (Exception ex) {
-        log.error("Error issuing PDF SVT token {}", ex.getMessage());
-        throw new IOException(ex.getMessage());
-      }
-      break;
-    case JOSE:
-    case JOSE_COMPACT:
-      try {
-        svtEnhancedDocument = signatureValidatorProvider.getJoseDocumentSVTIssuer()
-          .issueSvt(documentBytes, svtModel, svtExtendpolicy, issueSvtOnFailedValidation);
-        mediaType = MediaType.APPLICATION_JSON;
-      }
-      catch (Exception ex) {
-        log.error("Error issuing JOSE SVT token {}", ex.getMessage());
-        throw new IOException(ex.getMessage());
-      }
-      break;
-    default:
-      log.debug("Bad request - data type not recognized");
+    catch (IllegalArgumentException e) {
       return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
 
-    if (svtEnhancedDocument == null) {
-      throw new IOException("No SVT document was created");
-    }
-
-    // Get filename
-    name = StringUtils.isBlank(name) ? "svt_enhanced_signed_document" : name;
-    name = name.replaceAll("\\s*,\\s*", "-");
-    String fileName = getSvtFileName(name, mediaType);
-
     return ResponseEntity
       .ok()
-      .headers(getHeaders(fileName, attachment))
-      .contentLength(svtEnhancedDocument.length)
-      .contentType(mediaType)
-      .body(new InputStreamResource(new ByteArrayInputStream(svtEnhancedDocument)));
+      .headers(getHeaders(svtEnhancedDocument.getFileName(), attachment))
+      .contentLength(svtEnhancedDocument.getDocument().length)
+      .contentType(svtEnhancedDocument.getMediaType())
+      .body(new InputStreamResource(new ByteArrayInputStream(svtEnhancedDocument.getDocument())));
+  }
+
+  @ExceptionHandler(ValidationRejectedException.class)
+  public ResponseEntity<InputStreamResource> handleRejected(ValidationRejectedException ex) {
+    byte[] messageBytes = ex.getMessage().getBytes(StandardCharsets.UTF_8);
+    return ResponseEntity
+      .status(HttpStatus.SERVICE_UNAVAILABLE)
+      .contentLength(messageBytes.length)
+      .contentType(MediaType.TEXT_PLAIN)
+      .body(new InputStreamResource(new ByteArrayInputStream(messageBytes)));
   }
 
   private HttpHeaders getHeaders(String fileName, boolean attachment) {
@@ -198,28 +150,4 @@ public class SVTIssuanceController {
     return headers;
   }
 
-  private String getSvtFileName(String fileName, MediaType tbsType) {
-
-    if (tbsType.equals(MediaType.TEXT_XML)) {
-      return fileName.toLowerCase().endsWith(".xml")
-        ? stripFileName(fileName, 4) + svtSuffix + ".xml"
-        : fileName + svtSuffix + ".xml";
-    }
-    if (tbsType.equals(MediaType.APPLICATION_PDF)) {
-      return fileName.toLowerCase().endsWith(".pdf")
-        ? stripFileName(fileName, 4) + svtSuffix + ".pdf"
-        : fileName + svtSuffix + ".pdf";
-    }
-    if (tbsType.equals(MediaType.APPLICATION_JSON)) {
-      return fileName.toLowerCase().endsWith(".json")
-        ? stripFileName(fileName, 5) + svtSuffix + ".json"
-        : fileName + svtSuffix + ".json";
-    }
-    return fileName;
-  }
-
-  private String stripFileName(String fileName, int len) {
-    return fileName.substring(0, fileName.length() - len);
-  }
-
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.controller;
+
+import jakarta.servlet.http.HttpSession;
+import se.idsec.sigval.sigvalservice.validation.SignedDocumentValidationService;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+import se.swedenconnect.sigval.commons.document.DocType;
+
+/**
+ * Access to the validation result stored in the http session by the validation of an uploaded document.
+ *
+ * <p>
+ * The result page data is not stored in the session. It is generated from the stored validation result when the
+ * result page is displayed, so that a session only holds one representation of the result.
+ * </p>
+ */
+final class SessionValidationResult {
+
+  private SessionValidationResult() {
+  }
+
+  /**
+   * Stores a validation result in the session together with the time and validator generation of the validation.
+   *
+   * @param httpSession http session
+   * @param docType the type of the validated document
+   * @param validationResult validation result
+   * @param validationTime time of validation in milliseconds
+   * @param generation generation of the validators used to validate the document
+   */
+  static void store(HttpSession httpSession, DocType docType,
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult, long validationTime,
+    long generation) {
+    httpSession.setAttribute(SessionAttr.docType.name(), docType);
+    httpSession.setAttribute(SessionAttr.validationResult.name(), validationResult);
+    httpSession.setAttribute(SessionAttr.validationTime.name(), validationTime);
+    httpSession.setAttribute(SessionAttr.validationGeneration.name(), generation);
+  }
+
+  /**
+   * Gets the validation result stored in the session if it may still be used in place of a new validation.
+   *
+   * @param httpSession http session
+   * @param validationService validation service
+   * @return the stored validation result, or null if no result is stored or the stored result is no longer fresh
+   */
+  @SuppressWarnings("unchecked")
+  static SignedDocumentValidationResult<? extends ExtendedSigValResult> getFreshResult(HttpSession httpSession,
+    SignedDocumentValidationService validationService) {
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult =
+      (SignedDocumentValidationResult<? extends ExtendedSigValResult>) httpSession.getAttribute(SessionAttr.validationResult.name());
+    Long validationTime = (Long) httpSession.getAttribute(SessionAttr.validationTime.name());
+    Long generation = (Long) httpSession.getAttribute(SessionAttr.validationGeneration.name());
+    if (validationResult == null || validationTime == null || generation == null) {
+      return null;
+    }
+    return validationService.isFresh(validationTime, generation) ? validationResult : null;
+  }
+
+  /**
+   * Gets the validator generation of the validation result stored in the session.
+   *
+   * @param httpSession http session
+   * @return validator generation or -1 if not available
+   */
+  static long getGeneration(HttpSession httpSession) {
+    Long generation = (Long) httpSession.getAttribute(SessionAttr.validationGeneration.name());
+    return generation == null ? -1 : generation;
+  }
+
+}
@@ -19,23 +19,20 @@ package se.idsec.sigval.sigvalservice.controller;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
-import org.springframework.web.bind.annotation.CookieValue;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.ModelAndView;
+import se.idsec.sigval.sigvalservice.configuration.ui.BasicUiModel;
 import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
 import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
 import se.swedenconnect.sigval.commons.document.DocType;
-import se.swedenconnect.sigval.jose.verify.JOSESignedDocumentValidator;
-import se.swedenconnect.sigval.pdf.verify.ExtendedPDFSignatureValidator;
-import se.idsec.sigval.sigvalservice.configuration.SignatureValidatorProvider;
-import se.idsec.sigval.sigvalservice.result.ResultPageDataGenerator;
-import se.idsec.sigval.sigvalservice.result.data.ResultPageData;
-import se.swedenconnect.sigval.xml.utils.XMLDocumentBuilder;
-import se.swedenconnect.sigval.xml.verify.ExtendedXMLSignedDocumentValidator;
+import se.idsec.sigval.sigvalservice.validation.ParsedDocument;
+import se.idsec.sigval.sigvalservice.validation.SignedDocumentValidationService;
+import se.idsec.sigval.sigvalservice.validation.ValidationRejectedException;
 
-import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.security.SignatureException;
 
@@ -44,53 +41,41 @@ import java.security.SignatureException;
 public class SignatureValidationController {
 
   private final HttpSession httpSession;
-  private final SignatureValidatorProvider signatureValidatorProvider;
-  private final ResultPageDataGenerator resultPageDataGenerator;
+  private final SignedDocumentValidationService signedDocumentValidationService;
+  private final BasicUiModel basicUiModel;
 
   @Autowired
   public SignatureValidationController(HttpSession httpSession,
-    SignatureValidatorProvider signatureValidatorProvider,
-    ResultPageDataGenerator resultPageDataGenerator) {
+    SignedDocumentValidationService signedDocumentValidationService, BasicUiModel basicUiModel) {
     this.httpSession = httpSession;
-    this.signatureValidatorProvider = signatureValidatorProvider;
-    this.resultPageDataGenerator = resultPageDataGenerator;
+    this.signedDocumentValidationService = signedDocumentValidationService;
+    this.basicUiModel = basicUiModel;
   }
 
   @RequestMapping("/validate")
-  public String validateUploadedFile(@CookieValue(name = "langSelect", defaultValue = "sv") String lang)
-    throws ParserConfigurationException, SignatureException, SAXException, IOException {
+  public String validateUploadedFile() throws SignatureException, IOException {
 
     byte[] signedDoc = (byte[]) httpSession.getAttribute(SessionAttr.signedDoc.name());
-    String docMimeType = (String) httpSession.getAttribute(SessionAttr.docMimeType.name());
-    String docName = (String) httpSession.getAttribute(SessionAttr.docName.name());
 
-    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult;
-
-    DocType docType = DocType.getDocType(signedDoc);
-    switch (docType){
-    case XML:
-      ExtendedXMLSignedDocumentValidator xmlValidator = signatureValidatorProvider.getXmlSignedDocumentValidator();
-      Document document = XMLDocumentBuilder.getDocument(signedDoc);
-      validationResult = xmlValidator.extendedResultValidation(
-        document);
-      break;
-    case PDF:
-      ExtendedPDFSignatureValidator pdfValidator = signatureValidatorProvider.getPdfSignatureValidator();
-      validationResult = pdfValidator.extendedResultValidation(signedDoc);
-      break;
-    case JOSE:
-    case JOSE_COMPACT:
-      JOSESignedDocumentValidator joseSignedDocumentValidator = signatureValidatorProvider.getJoseSignedDocumentValidator();
-      validationResult = joseSignedDocumentValidator.extendedResultValidation(signedDoc);
-      break;
-    default:
-      throw new IOException("Unable to handle uploaded document - illegal document content");
-    }
-    ResultPageData resultPageData = resultPageDataGenerator.getResultPageData(validationResult, docName, docMimeType, lang);
-    httpSession.setAttribute(SessionAttr.docType.name(), docType);
-    httpSession.setAttribute(SessionAttr.validationResult.name(), validationResult);
-    httpSession.setAttribute(SessionAttr.resultPageData.name(), resultPageData);
+    // The document is parsed by this request, since a parsed document must not be shared between requests
+    ParsedDocument parsedDocument = ParsedDocument.parse(signedDoc);
+    DocType docType = parsedDocument.getDocType();
+    long validationTime = System.currentTimeMillis();
+    long generation = signedDocumentValidationService.getGeneration();
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult =
+      signedDocumentValidationService.validate(parsedDocument);
+    SessionValidationResult.store(httpSession, docType, validationResult, validationTime, generation);
 
     return "redirect:/result";
   }
+
+  @ExceptionHandler(ValidationRejectedException.class)
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  public ModelAndView handleRejected(ValidationRejectedException ex) {
+    ModelAndView mav = new ModelAndView();
+    mav.addObject("message", ex.getMessage());
+    mav.addObject("basicModel", basicUiModel);
+    mav.setViewName("error");
+    return mav;
+  }
 }
@@ -16,29 +16,27 @@
 
 package se.idsec.sigval.sigvalservice.controller;
 
-import com.nimbusds.jose.JWSObject;
-import com.nimbusds.jose.JWSObjectJSON;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.log4j.Log4j2;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import se.idsec.sigval.sigvalservice.configuration.FileSize;
+import se.idsec.sigval.sigvalservice.validation.ParsedDocument;
+import se.idsec.sigval.sigvalservice.validation.SignedDocumentValidationService;
+import se.idsec.sigval.sigvalservice.validation.ValidationRejectedException;
 import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
 import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
-import se.swedenconnect.sigval.commons.document.DocType;
-import se.swedenconnect.sigval.xml.utils.XMLDocumentBuilder;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.text.ParseException;
+import java.security.SignatureException;
 
 @Log4j2
 @RestController
@@ -46,15 +44,45 @@ public class UploadController {
 
   private final HttpSession httpSession;
   private final FileSize maxFileSize;
+  private final SignedDocumentValidationService signedDocumentValidationService;
 
   @Autowired
-  public UploadController(HttpSession httpSession, FileSize maxFileSize) {
+  public UploadController(HttpSession httpSession, FileSize maxFileSize,
+    SignedDocumentValidationService signedDocumentValidationService) {
     this.httpSession = httpSession;
     this.maxFileSize = maxFileSize;
+    this.signedDocumentValidationService = signedDocumentValidationService;
   }
 
   @PostMapping("/sigupload")
   public String metadataUpload(@RequestParam("uploadedFile") MultipartFile file) throws IOException {
+    storeUploadedDocument(file);
+    return "[]";
+  }
+
+  /**
+   * Uploads and validates a document in one request. The validation result is stored in the session so that the
+   * result page can be displayed directly after a successful upload.
+   *
+   * @param file the uploaded signed document
+   * @return empty JSON array on success
+   * @throws IOException on errors parsing the uploaded document
+   * @throws SignatureException on errors validating the uploaded document
+   */
+  @PostMapping("/sigupload-validate")
+  public String uploadAndValidate(@RequestParam("uploadedFile") MultipartFile file)
+    throws IOException, SignatureException {
+    ParsedDocument parsedDocument = storeUploadedDocument(file);
+
+    long validationTime = System.currentTimeMillis();
+    long generation = signedDocumentValidationService.getGeneration();
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult =
+      signedDocumentValidationService.validate(parsedDocument);
+    SessionValidationResult.store(httpSession, parsedDocument.getDocType(), validationResult, validationTime, generation);
+    return "[]";
+  }
+
+  private ParsedDocument storeUploadedDocument(MultipartFile file) throws IOException {
     long size = file.getSize();
     int maxUploadSize = maxFileSize.getIntValue();
     if (size > maxUploadSize) {
@@ -62,13 +90,17 @@ public class UploadController {
       throw new IllegalArgumentException("Too large upload file to sign");
     }
 
-    byte[] signedDoc = file.getBytes();
-    checkFileValidity(file.getBytes());
+    // Parse the document once. The parsed document is reused when the document is validated by this request, but only
+    // the document bytes are stored in the session
+    ParsedDocument parsedDocument = ParsedDocument.parse(file.getBytes());
 
-    httpSession.setAttribute(SessionAttr.signedDoc.name(), signedDoc);
+    // Remove any result of a previously uploaded document
+    httpSession.removeAttribute(SessionAttr.validationResult.name());
+
+    httpSession.setAttribute(SessionAttr.signedDoc.name(), parsedDocument.getDocumentBytes());
     httpSession.setAttribute(SessionAttr.docMimeType.name(), file.getContentType());
     httpSession.setAttribute(SessionAttr.docName.name(), file.getOriginalFilename());
-    return "[]";
+    return parsedDocument;
   }
 
   /**
@@ -106,79 +138,15 @@ public class UploadController {
     return docBytes;
   }
 
-  @ExceptionHandler({IOException.class, RuntimeException.class})
+  @ExceptionHandler({IOException.class, SignatureException.class, RuntimeException.class})
   public String handleIOException(Exception ex){
     return "{\"message\": \""+ex.getMessage()+"\"}";
   }
 
-  /**
-   * Determines if the uploaded file is a valid document
-   *
-   * @param bytes bytes of the file
-   * @throws IOException on errors parsing the uploaded document
-   */
-  private void checkFileValidity(byte[] bytes) throws IOException {
-
-    DocType docType = DocType.getDocType(bytes);
-    switch (docType) {
-    case XML:
-      checkXmlFileValidity(bytes);
-      //No further checks on xml
-      break;
-    case PDF:
-      checkPdfFileValidity(bytes);
-      break;
-    case JOSE:
-    case JOSE_COMPACT:
-      checkJoseValidity(bytes);
-      break;
-    default:
-      log.warn("Upload rejected - Unrecognized file content");
-      throw new IllegalArgumentException("Upload rejected - Illegal file content");
-    }
-  }
-
-  private void checkJoseValidity(byte[] bytes) throws IOException {
-    try {
-      JWSObject.parse(new String(bytes, StandardCharsets.UTF_8));
-      log.debug("Found compact serialized JWS");
-      return;
-    }
-    catch (ParseException e) {
-      log.debug("No compact serialized JWS signature");
-    }
-
-    try {
-      JWSObjectJSON.parse(new String(bytes, StandardCharsets.UTF_8));
-      log.debug("Found JSON serialized JWS");
-      return;
-    }
-    catch (ParseException e) {
-      log.debug("No JSON serialized JWS signature");
-    }
-    log.warn("Error processing the uploaded JOSE document");
-    throw new IOException("Error parsing uploaded JOSE document");
-  }
-
-  private void checkXmlFileValidity(byte[] bytes) throws IOException{
-    try {
-      XMLDocumentBuilder.getDocument(bytes);
-    } catch (Exception ex) {
-      log.warn("Error processing the uploaded XML document");
-      throw new IOException("Error parsing uploaded XML document (" + ex.getMessage() + ").");
-    }
-  }
-
-  private void checkPdfFileValidity(byte[] bytes) throws IOException {
-    try {
-      PDDocument document = Loader.loadPDF(bytes);
-      // We are not modifying the document, so we close it directly to avoid memory leak
-      document.close();
-    }
-    catch (Exception ex) {
-      log.warn("Error processing the uploaded PDF document");
-      throw new IOException("Error parsing uploaded PDF document (" + ex.getMessage() + ").");
-    }
+  @ExceptionHandler(ValidationRejectedException.class)
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  public String handleRejected(ValidationRejectedException ex){
+    return "{\"message\": \""+ex.getMessage()+"\"}";
   }
 
 }
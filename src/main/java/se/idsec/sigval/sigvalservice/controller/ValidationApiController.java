@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import se.idsec.sigval.sigvalservice.result.ResultPageDataGenerator;
+import se.idsec.sigval.sigvalservice.result.data.ResultPageData;
+import se.idsec.sigval.sigvalservice.result.data.ValidationVerdict;
+import se.idsec.sigval.sigvalservice.result.data.VerdictPolicy;
+import se.idsec.sigval.sigvalservice.validation.DocumentSpooler;
+import se.idsec.sigval.sigvalservice.validation.SignedDocumentValidationService;
+import se.idsec.sigval.sigvalservice.validation.SpooledDocument;
+import se.idsec.sigval.sigvalservice.validation.ValidationRejectedException;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.SignatureException;
+import java.util.Map;
+
+/**
+ * Stateless REST API returning the signature validation result of a signed document as JSON.
+ *
+ * <p>
+ * The result holds the same data as the result page of the web UI, but is produced without any http session and
+ * without rendering any page or signing any report.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@RestController
+public class ValidationApiController {
+
+  private final SignedDocumentValidationService signedDocumentValidationService;
+  private final ResultPageDataGenerator resultPageDataGenerator;
+  private final DocumentSpooler documentSpooler;
+
+  @Autowired
+  public ValidationApiController(SignedDocumentValidationService signedDocumentValidationService,
+    ResultPageDataGenerator resultPageDataGenerator, DocumentSpooler documentSpooler) {
+    this.signedDocumentValidationService = signedDocumentValidationService;
+    this.resultPageDataGenerator = resultPageDataGenerator;
+    this.documentSpooler = documentSpooler;
+  }
+
+  /**
+   * Validates the posted signed document.
+   *
+   * @param postedDocumentStream the bytes of the signed document
+   * @param name optional name of the document to include in the result
+   * @param lang the language used for signer attribute names
+   * @return validation result
+   * @throws IOException if the document can not be read or is not a supported signed document
+   * @throws SignatureException on errors validating the document
+   */
+  @PostMapping(value = "/api/v1/validate", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ResultPageData> validate(
+    InputStream postedDocumentStream,
+    @RequestParam(name = "name", required = false) String name,
+    @RequestParam(name = "lang", defaultValue = "en") String lang
+  ) throws IOException, SignatureException {
+
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult =
+      validatePostedDocument(postedDocumentStream);
+    return ResponseEntity.ok(resultPageDataGenerator.getResultPageData(validationResult, name, null, lang));
+  }
+
+  /**
+   * Validates the posted signed document and returns only the verdict, without signer attributes or time evidence.
+   *
+   * @param postedDocumentStream the bytes of the signed document
+   * @param policy optional policy deciding whether the document is valid ({@code any-valid-covering} or
+   *   {@code all-valid}). If absent, the verdict holds the overall document status
+   * @return validation verdict
+   * @throws IOException if the document can not be read or is not a supported signed document
+   * @throws SignatureException on errors validating the document
+   */
+  @PostMapping(value = "/api/v1/verdict", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ValidationVerdict> verdict(
+    InputStream postedDocumentStream,
+    @RequestParam(name = "policy", required = false) String policy
+  ) throws IOException, SignatureException {
+
+    VerdictPolicy verdictPolicy = policy == null ? null : VerdictPolicy.getPolicy(policy);
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult =
+      validatePostedDocument(postedDocumentStream);
+    return ResponseEntity.ok(resultPageDataGenerator.getVerdict(validationResult, verdictPolicy));
+  }
+
+  private SignedDocumentValidationResult<? extends ExtendedSigValResult> validatePostedDocument(
+    InputStream postedDocumentStream) throws IOException, SignatureException {
+    try (SpooledDocument document = documentSpooler.spool(postedDocumentStream)) {
+      if (document.isEmpty()) {
+        log.debug("Bad validation request - no document provided in the request");
+        throw new IllegalArgumentException("Bad request - no document provided in the request");
+      }
+      return signedDocumentValidationService.validate(document);
+    }
+  }
+
+  @ExceptionHandler({ IOException.class, IllegalArgumentException.class })
+  public ResponseEntity<Map<String, String>> handleBadRequest(Exception ex) {
+    return ResponseEntity.badRequest()
+      .contentType(MediaType.APPLICATION_JSON)
+      .body(Map.of("message", String.valueOf(ex.getMessage())));
+  }
+
+  @ExceptionHandler(ValidationRejectedException.class)
+  public ResponseEntity<Map<String, String>> handleRejected(Exception ex) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+      .contentType(MediaType.APPLICATION_JSON)
+      .body(Map.of("message", String.valueOf(ex.getMessage())));
+  }
+
+  @ExceptionHandler({ SignatureException.class, RuntimeException.class })
+  public ResponseEntity<Map<String, String>> handleValidationError(Exception ex) {
+    log.warn("Error validating posted document: {}", ex.getMessage());
+    return ResponseEntity.internalServerError()
+      .contentType(MediaType.APPLICATION_JSON)
+      .body(Map.of("message", String.valueOf(ex.getMessage())));
+  }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import se.idsec.sigval.sigvalservice.job.JobStatus;
+import se.idsec.sigval.sigvalservice.job.JobType;
+import se.idsec.sigval.sigvalservice.job.ValidationJob;
+import se.idsec.sigval.sigvalservice.job.ValidationJobService;
+import se.idsec.sigval.sigvalservice.validation.DocumentSpooler;
+import se.idsec.sigval.sigvalservice.validation.SpooledDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST API for asynchronous validation jobs.
+ *
+ * <p>
+ * A posted document is queued as a job and the job id is returned directly. The job status is polled, optionally
+ * waiting for the job to complete, and the artifact produced by the job is fetched when the job is done. Jobs produce
+ * the same artifacts as the JSON validation API, the validation report API and the SVT issuance API.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@RestController
+public class ValidationJobController {
+
+  /** The request parameters retained for processing the job */
+  private static final List<String> JOB_PARAMETERS = List.of("name", "lang", "certpath", "include-docs", "replace");
+
+  private final ValidationJobService validationJobService;
+  private final DocumentSpooler documentSpooler;
+  private final long maxWaitSeconds;
+
+  @Autowired
+  public ValidationJobController(ValidationJobService validationJobService, DocumentSpooler documentSpooler,
+    @Value("${sigval-service.jobs.max-wait-seconds:30}") long maxWaitSeconds) {
+    this.validationJobService = validationJobService;
+    this.documentSpooler = documentSpooler;
+    this.maxWaitSeconds = maxWaitSeconds;
+  }
+
+  /**
+   * Queues a job for the posted document.
+   *
+   * @param postedDocumentStream the bytes of the signed document
+   * @param type the job type (validate, report or svt)
+   * @param requestParameters the request parameters of the job, as for the corresponding synchronous API
+   * @return the queued job
+   * @throws IOException if the document can not be read or the job can not be queued
+   */
+  @PostMapping(value = "/api/v1/jobs", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ValidationJob> submitJob(
+    InputStream postedDocumentStream,
+    @RequestParam(name = "type", defaultValue = "validate") String type,
+    @RequestParam Map<String, String> requestParameters) throws IOException {
+
+    JobType jobType = JobType.valueOf(type);
+    SpooledDocument document = documentSpooler.spool(postedDocumentStream);
+    if (document.isEmpty()) {
+      document.close();
+      throw new IllegalArgumentException("Bad request - no document provided in the request");
+    }
+    Map<String, String> parameters = new HashMap<>();
+    JOB_PARAMETERS.stream()
+      .filter(requestParameters::containsKey)
+      .forEach(parameter -> parameters.put(parameter, requestParameters.get(parameter)));
+
+    // The job service closes the spooled document
+    ValidationJob job = validationJobService.submit(jobType, document, parameters);
+    return ResponseEntity.status(HttpStatus.ACCEPTED)
+      .header(HttpHeaders.LOCATION, "jobs/" + job.getId())
+      .body(job);
+  }
+
+  /**
+   * Gets the status of a job.
+   *
+   * @param id job id
+   * @param wait max number of seconds to wait for the job to complete, 0 for no waiting
+   * @return the job status
+   */
+  @GetMapping(value = "/api/v1/jobs/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+  public DeferredResult<ResponseEntity<ValidationJob>> getJob(@PathVariable("id") String id,
+    @RequestParam(name = "wait", defaultValue = "0") long wait) {
+
+    ValidationJob job = validationJobService.getJob(id);
+    long waitSeconds = Math.min(Math.max(0, wait), maxWaitSeconds);
+    if (job == null || job.isFinished() || waitSeconds == 0) {
+      DeferredResult<ResponseEntity<ValidationJob>> result = new DeferredResult<>();
+      result.setResult(job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job));
+      return result;
+    }
+    // Wait for the job to complete without holding a request thread
+    DeferredResult<ResponseEntity<ValidationJob>> result =
+      new DeferredResult<>(waitSeconds * 1000, () -> ResponseEntity.ok(job));
+    job.getCompletion().thenAccept(completedJob -> result.setResult(ResponseEntity.ok(completedJob)));
+    return result;
+  }
+
+  /**
+   * Gets the artifact produced by a job that is done.
+   *
+   * @param id job id
+   * @return the artifact
+   * @throws IOException on errors reading the artifact
+   */
+  @GetMapping("/api/v1/jobs/{id}/result")
+  public ResponseEntity<InputStreamResource> getJobResult(@PathVariable("id") String id) throws IOException {
+    ValidationJob job = validationJobService.getJob(id);
+    if (job == null) {
+      return ResponseEntity.notFound().build();
+    }
+    if (job.getStatus() != JobStatus.done) {
+      String message = job.getStatus() == JobStatus.failed
+        ? "Job failed: " + job.getErrorMessage()
+        : "Job is not completed";
+      byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+      return ResponseEntity.status(HttpStatus.CONFLICT)
+        .contentType(MediaType.TEXT_PLAIN)
+        .body(new InputStreamResource(new ByteArrayInputStream(messageBytes)));
+    }
+    byte[] result = validationJobService.getResult(job);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+      .contentLength(result.length)
+      .contentType(MediaType.parseMediaType(job.getResultContentType()));
+    if (job.getResultFileName() != null) {
+      response.header(HttpHeaders.CONTENT_DISPOSITION,
+        ContentDisposition.attachment().filename(job.getResultFileName()).build().toString());
+    }
+    return response.body(new InputStreamResource(new ByteArrayInputStream(result)));
+  }
+
+  @ExceptionHandler({ IOException.class, IllegalArgumentException.class })
+  public ResponseEntity<Map<String, String>> handleBadRequest(Exception ex) {
+    return ResponseEntity.badRequest()
+      .contentType(MediaType.APPLICATION_JSON)
+      .body(Map.of("message", String.valueOf(ex.getMessage())));
+  }
+
+  @ExceptionHandler(RejectedExecutionException.class)
+  public ResponseEntity<Map<String, String>> handleQueueFull(Exception ex) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+      .contentType(MediaType.APPLICATION_JSON)
+      .body(Map.of("message", "Job queue is full"));
+  }
+
+}
@@ -18,31 +18,28 @@ package se.idsec.sigval.sigvalservice.controller;
 
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import se.idsec.signservice.xml.DOMUtils;
-import se.idsec.sigval.sigvalservice.configuration.SignatureValidatorProvider;
+import se.idsec.sigval.sigvalservice.validation.DocumentSpooler;
+import se.idsec.sigval.sigvalservice.validation.DocumentTooLargeException;
+import se.idsec.sigval.sigvalservice.validation.SignedDocumentValidationService;
+import se.idsec.sigval.sigvalservice.validation.SpooledDocument;
+import se.idsec.sigval.sigvalservice.validation.ValidationRejectedException;
+import se.idsec.sigval.sigvalservice.validation.ValidationReportService;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
 import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
 import se.swedenconnect.sigval.commons.document.DocType;
-import se.swedenconnect.sigval.jose.data.ExtendedJOSESigvalResult;
-import se.swedenconnect.sigval.jose.verify.JOSESignedDocumentValidator;
-import se.swedenconnect.sigval.pdf.data.ExtendedPdfSigValResult;
-import se.swedenconnect.sigval.pdf.verify.ExtendedPDFSignatureValidator;
-import se.swedenconnect.sigval.report.data.SignedDataRepresentation;
-import se.swedenconnect.sigval.report.data.SigvalReportOptions;
-import se.swedenconnect.sigval.xml.data.ExtendedXmlSigvalResult;
-import se.swedenconnect.sigval.xml.verify.ExtendedXMLSignedDocumentValidator;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -70,16 +67,17 @@ public class ValidationReportController {
     headerMap.add("Expires", "0");
   }
 
-  @Value("${sigval-service.report.default-include-tschain}") boolean defaultIncludeTsChain;
-  @Value("${sigval-service.report.default-include-chain}") boolean defaultIncludeChain;
-  @Value("${sigval-service.report.default-include-siged-doc}") boolean defaultIncludeSignedDoc;
-
-  private final SignatureValidatorProvider signatureValidatorProvider;
+  private final ValidationReportService validationReportService;
+  private final SignedDocumentValidationService signedDocumentValidationService;
+  private final DocumentSpooler documentSpooler;
 
   @Autowired
-  public ValidationReportController(SignatureValidatorProvider signatureValidatorProvider, HttpSession httpSession) {
-    this.signatureValidatorProvider = signatureValidatorProvider;
+  public ValidationReportController(ValidationReportService validationReportService, HttpSession httpSession,
+    SignedDocumentValidationService signedDocumentValidationService, DocumentSpooler documentSpooler) {
+    this.validationReportService = validationReportService;
     this.httpSession = httpSession;
+    this.signedDocumentValidationService = signedDocumentValidationService;
+    this.documentSpooler = documentSpooler;
   }
 
   @RequestMapping("/report-internal")
@@ -88,7 +86,22 @@ public class ValidationReportController {
     @RequestParam(name = "include-docs", required = false) String includeDocs
   ) throws SignatureException, IOException {
     byte[] documentBytes = (byte[]) httpSession.getAttribute(SessionAttr.signedDoc.name());
-    return getValidationReport(documentBytes, certpath, includeDocs);
+    DocType docType = (DocType) httpSession.getAttribute(SessionAttr.docType.name());
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult =
+      SessionValidationResult.getFreshResult(httpSession, signedDocumentValidationService);
+
+    if (documentBytes != null && docType != null && validationResult != null) {
+      // The result of the validation performed when the document was uploaded is still valid. Use it directly.
+      log.debug("Creating validation report from the validation result in session");
+      try {
+        return getReportResponse(validationReportService.getValidationReport(docType, validationResult,
+          validationReportService.getReportOptions(certpath, includeDocs)));
+      }
+      catch (IllegalArgumentException e) {
+        return getErrorResponse(e.getMessage());
+      }
+    }
+    return getValidationReport(documentBytes, null, certpath, includeDocs);
   }
 
   @RequestMapping(value = "/report", method = RequestMethod.POST)
@@ -97,54 +110,34 @@ public class ValidationReportController {
     @RequestParam(name = "certpath", required = false) String certpath,
     @RequestParam(name = "include-docs", required = false) String includeDocs
   ) throws SignatureException, IOException {
-    byte[] documentBytes = postedDocumentStream == null
-      ? null
-      : IOUtils.toByteArray(postedDocumentStream);
-    return getValidationReport(documentBytes, certpath, includeDocs);
+    try (SpooledDocument document = documentSpooler.spoolWithoutMemoryLimit(postedDocumentStream)) {
+      return getValidationReport(document.isEmpty() ? null : document.getDocumentBytes(), document.getDocumentHash(),
+        certpath, includeDocs);
+    }
   }
 
-
   public ResponseEntity<InputStreamResource> getValidationReport(byte[] documentBytes, String certpath, String includeDocs
   ) throws SignatureException, IOException {
+    return getValidationReport(documentBytes, null, certpath, includeDocs);
+  }
+
+  private ResponseEntity<InputStreamResource> getValidationReport(byte[] documentBytes, String documentHash,
+    String certpath, String includeDocs) throws SignatureException, IOException {
 
     if (documentBytes == null){
       log.debug("Bad validation request - no document provided in the request or document was to large");
       return getErrorResponse("Bad request for validation report - no document provided in the request or document was to large");
     }
-
-    SigvalReportOptions sigvalReportOptions = getSigValReportOptions(certpath, includeDocs);
-    byte[] signedValidationReport;
-
-    // Generate report based on document type
-    DocType docType = DocType.getDocType(documentBytes);
-    switch (docType) {
-    case XML:
-      ExtendedXMLSignedDocumentValidator xmlSignedDocumentValidator = signatureValidatorProvider.getXmlSignedDocumentValidator();
-      SignedDocumentValidationResult<ExtendedXmlSigvalResult> xmlResult = xmlSignedDocumentValidator.extendedResultValidation(
-        DOMUtils.bytesToDocument(documentBytes));
-      signedValidationReport = signatureValidatorProvider.getXmlSigValReportGenerator().getSignedValidationReport(
-        xmlResult, sigvalReportOptions, signatureValidatorProvider.getReportSigner());
-      break;
-    case PDF:
-      ExtendedPDFSignatureValidator pdfSignatureValidator = signatureValidatorProvider.getPdfSignatureValidator();
-      SignedDocumentValidationResult<ExtendedPdfSigValResult> pdfResult = pdfSignatureValidator.extendedResultValidation(
-        documentBytes);
-      signedValidationReport = signatureValidatorProvider.getPdfSigValReportGenerator().getSignedValidationReport(
-        pdfResult, sigvalReportOptions, signatureValidatorProvider.getReportSigner());
-      break;
-    case JOSE:
-    case JOSE_COMPACT:
-      JOSESignedDocumentValidator joseSignedDocumentValidator = signatureValidatorProvider.getJoseSignedDocumentValidator();
-      SignedDocumentValidationResult<ExtendedJOSESigvalResult> joseResult = joseSignedDocumentValidator.extendedResultValidation(
-        documentBytes);
-      signedValidationReport = signatureValidatorProvider.getJoseSigValReportGenerator().getSignedValidationReport(
-        joseResult, sigvalReportOptions, signatureValidatorProvider.getReportSigner());
-      break;
-    default:
-      log.debug("Bad validation request - data type not recognized");
-      return getErrorResponse("Bad request - data type not recognized");
+    try {
+      return getReportResponse(validationReportService.getValidationReport(documentBytes, documentHash,
+        validationReportService.getReportOptions(certpath, includeDocs)));
+    }
+    catch (IllegalArgumentException e) {
+      return getErrorResponse(e.getMessage());
     }
+  }
 
+  private ResponseEntity<InputStreamResource> getReportResponse(byte[] signedValidationReport) {
     return ResponseEntity
       .ok()
       .headers(new HttpHeaders(headerMap))
@@ -153,44 +146,27 @@ public class ValidationReportController {
       .body(new InputStreamResource(new ByteArrayInputStream(signedValidationReport)));
   }
 
+  @ExceptionHandler(DocumentTooLargeException.class)
+  public ResponseEntity<InputStreamResource> handleTooLarge(DocumentTooLargeException ex) {
+    return getErrorResponse(HttpStatus.PAYLOAD_TOO_LARGE, ex.getMessage());
+  }
+
+  @ExceptionHandler(ValidationRejectedException.class)
+  public ResponseEntity<InputStreamResource> handleRejected(ValidationRejectedException ex) {
+    return getErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+  }
+
   private ResponseEntity<InputStreamResource> getErrorResponse(String message) {
+    return getErrorResponse(HttpStatus.BAD_REQUEST, message);
+  }
+
+  private ResponseEntity<InputStreamResource> getErrorResponse(HttpStatus status, String message) {
     byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
     return ResponseEntity
-      .badRequest()
+      .status(status)
       .contentLength(messageBytes.length)
       .contentType(MediaType.TEXT_PLAIN)
       .body(new InputStreamResource(new ByteArrayInputStream(messageBytes)));
   }
 
-  private SigvalReportOptions getSigValReportOptions(String certpath, String includeDocs) {
-
-    boolean includeCertPath = defaultIncludeChain;
-    boolean includeTsChain = defaultIncludeTsChain;
-    boolean includeSignedData = defaultIncludeSignedDoc;
-
-    if (certpath != null) {
-      if (certpath.equalsIgnoreCase("true")){
-        includeCertPath = true;
-      }
-      if (certpath.equalsIgnoreCase("false")){
-        includeCertPath = false;
-      }
-    }
-
-    if (includeDocs != null) {
-      if (includeDocs.equalsIgnoreCase("true")){
-        includeSignedData = true;
-      }
-      if (includeDocs.equalsIgnoreCase("false")){
-        includeSignedData = false;
-      }
-    }
-
-    SignedDataRepresentation signedDataRepresentation = includeSignedData
-      ? SignedDataRepresentation.DIRECT
-      : SignedDataRepresentation.DIGEST;
-
-    return new SigvalReportOptions(includeTsChain, includeCertPath, signedDataRepresentation);
-  }
-
 }
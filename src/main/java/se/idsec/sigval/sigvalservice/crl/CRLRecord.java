@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.crl;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Metadata of a cached CRL, stored next to the CRL in the CRL cache folder.
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CRLRecord {
+
+  /** The distribution point URL of the CRL */
+  private String url;
+
+  /** The name of the file holding the CRL in the cache folder */
+  private String fileName;
+
+  /** The ETag of the last downloaded CRL, if provided by the server */
+  private String etag;
+
+  /** The Last-Modified header of the last downloaded CRL, if provided by the server */
+  private String lastModified;
+
+  /** The time in milliseconds when the CRL was last downloaded or found to be unchanged */
+  private long lastChecked;
+
+  /** The nextUpdate time of the CRL in milliseconds, or 0 if the CRL has no nextUpdate */
+  private long nextUpdate;
+
+}
@@ -0,0 +1,581 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.crl;
+
+import lombok.Getter;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Enumerated;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.Time;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.Principal;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.CRLException;
+import java.security.cert.CRLReason;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * X.509 CRL backed by a memory mapped index of revoked serial numbers.
+ *
+ * <p>
+ * The index file holds the revoked serial numbers of the CRL as fixed size records sorted by serial number, followed
+ * by the encoded CRL. Revocation lookups are a binary search over the mapped records, so the revoked entries of the
+ * CRL are not held on the heap. The CRL header, signature and extensions are held in memory. The encoded CRL is only
+ * read from the mapped file when it is requested, e.g. to verify the CRL signature with a key that has not been used
+ * to verify the CRL before. A signature that has been verified with a key is valid for that key whatever provider is
+ * requested, so the CRL is parsed at most once per key.
+ * </p>
+ *
+ * <p>
+ * CRLs with entries for other certificate issuers (indirect CRLs), with entry extensions other than reason code and
+ * invalidity date, or with serial numbers that are negative or longer than 20 bytes are not indexed.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+public class IndexedX509CRL extends X509CRL {
+
+  private static final byte[] MAGIC = "SVCRLIX1".getBytes();
+  private static final int SERIAL_LENGTH = 20;
+  /** Serial number, revocation date, invalidity date, reason code and padding */
+  private static final int RECORD_SIZE = SERIAL_LENGTH + 8 + 8 + 4;
+  private static final int HEADER_SIZE = MAGIC.length + 4 + 4;
+  private static final int NO_REASON = -1;
+
+  private static final String REASON_CODE_OID = Extension.reasonCode.getId();
+  private static final String INVALIDITY_DATE_OID = Extension.invalidityDate.getId();
+
+  /** The index file */
+  @Getter private final File indexFile;
+
+  private final ByteBuffer index;
+  private final int recordCount;
+  private final int encodedOffset;
+  private final int encodedLength;
+
+  private final int version;
+  private final X500Principal issuer;
+  private final Date thisUpdate;
+  private final Date nextUpdate;
+  private final String sigAlgName;
+  private final String sigAlgOID;
+  private final byte[] sigAlgParams;
+  private final byte[] signature;
+  private final Set<String> criticalExtensionOIDs;
+  private final Set<String> nonCriticalExtensionOIDs;
+  private final Map<String, byte[]> extensionValues;
+  private final boolean unsupportedCriticalExtension;
+  /** Keys that the CRL signature has been verified with, using any provider */
+  private final Set<PublicKey> verifiedKeys = ConcurrentHashMap.newKeySet();
+
+  private IndexedX509CRL(X509CRL crl, File indexFile, ByteBuffer index, int recordCount, int encodedLength) {
+    this.indexFile = indexFile;
+    this.index = index;
+    this.recordCount = recordCount;
+    this.encodedOffset = HEADER_SIZE + recordCount * RECORD_SIZE;
+    this.encodedLength = encodedLength;
+    this.version = crl.getVersion();
+    this.issuer = crl.getIssuerX500Principal();
+    this.thisUpdate = crl.getThisUpdate();
+    this.nextUpdate = crl.getNextUpdate();
+    this.sigAlgName = crl.getSigAlgName();
+    this.sigAlgOID = crl.getSigAlgOID();
+    this.sigAlgParams = crl.getSigAlgParams();
+    this.signature = crl.getSignature();
+    this.criticalExtensionOIDs = crl.getCriticalExtensionOIDs();
+    this.nonCriticalExtensionOIDs = crl.getNonCriticalExtensionOIDs();
+    this.unsupportedCriticalExtension = crl.hasUnsupportedCriticalExtension();
+    this.extensionValues = new HashMap<>();
+    for (Set<String> oids : Arrays.asList(criticalExtensionOIDs, nonCriticalExtensionOIDs)) {
+      if (oids != null) {
+        oids.forEach(oid -> extensionValues.put(oid, crl.getExtensionValue(oid)));
+      }
+    }
+  }
+
+  /**
+   * Writes the index file of a CRL and maps it into memory.
+   *
+   * @param crl the parsed CRL
+   * @param encoded the encoded CRL
+   * @param indexFile the index file to write
+   * @return the indexed CRL, or null if the CRL can not be indexed
+   * @throws IOException on errors writing or mapping the index file
+   */
+  public static IndexedX509CRL create(X509CRL crl, byte[] encoded, File indexFile) throws IOException {
+    Set<? extends X509CRLEntry> entries = crl.getRevokedCertificates();
+    List<Entry> records = new ArrayList<>(entries == null ? 0 : entries.size());
+    if (entries != null) {
+      for (X509CRLEntry entry : entries) {
+        Entry record = Entry.of(entry);
+        if (record == null) {
+          return null;
+        }
+        records.add(record);
+      }
+    }
+    records.sort((first, second) -> Arrays.compareUnsigned(first.serial, second.serial));
+
+    File tempFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+      tempFile.toPath())))) {
+      out.write(MAGIC);
+      out.writeInt(records.size());
+      out.writeInt(encoded.length);
+      for (Entry record : records) {
+        out.write(record.serial);
+        out.writeLong(record.revocationDate);
+        out.writeLong(record.invalidityDate);
+        out.writeInt(record.reason);
+      }
+      out.write(encoded);
+    }
+    Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+
+    try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new IndexedX509CRL(crl, indexFile, index, records.size(), encoded.length);
+    }
+  }
+
+  /**
+   * Gets the number of revoked certificates of the CRL.
+   *
+   * @return number of revoked certificates
+   */
+  public int getRevokedCount() {
+    return recordCount;
+  }
+
+  @Override
+  public X509CRLEntry getRevokedCertificate(BigInteger serialNumber) {
+    byte[] serial = Entry.getSerialBytes(serialNumber);
+    if (serial == null) {
+      return null;
+    }
+    int low = 0;
+    int high = recordCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = compareSerial(middle, serial);
+      if (comparison < 0) {
+        low = middle + 1;
+      }
+      else if (comparison > 0) {
+        high = middle - 1;
+      }
+      else {
+        return getEntry(middle);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public X509CRLEntry getRevokedCertificate(X509Certificate certificate) {
+    return getRevokedCertificate(certificate.getSerialNumber());
+  }
+
+  @Override
+  public boolean isRevoked(Certificate certificate) {
+    return certificate instanceof X509Certificate x509Certificate
+      && getRevokedCertificate(x509Certificate.getSerialNumber()) != null;
+  }
+
+  @Override
+  public Set<? extends X509CRLEntry> getRevokedCertificates() {
+    if (recordCount == 0) {
+      return null;
+    }
+    Set<X509CRLEntry> revoked = new HashSet<>(recordCount);
+    for (int i = 0; i < recordCount; i++) {
+      revoked.add(getEntry(i));
+    }
+    return Collections.unmodifiableSet(revoked);
+  }
+
+  @Override
+  public byte[] getEncoded() throws CRLException {
+    byte[] encoded = new byte[encodedLength];
+    index.get(encodedOffset, encoded);
+    return encoded;
+  }
+
+  @Override
+  public void verify(PublicKey key)
+    throws CRLException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+    if (!verifiedKeys.contains(key)) {
+      parse().verify(key);
+      verifiedKeys.add(key);
+    }
+  }
+
+  @Override
+  public void verify(PublicKey key, String sigProvider)
+    throws CRLException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+    if (!verifiedKeys.contains(key)) {
+      parse().verify(key, sigProvider);
+      verifiedKeys.add(key);
+    }
+  }
+
+  @Override
+  public void verify(PublicKey key, Provider sigProvider)
+    throws CRLException, NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+    if (!verifiedKeys.contains(key)) {
+      parse().verify(key, sigProvider);
+      verifiedKeys.add(key);
+    }
+  }
+
+  @Override
+  public int getVersion() {
+    return version;
+  }
+
+  @Override
+  public Principal getIssuerDN() {
+    return issuer;
+  }
+
+  @Override
+  public X500Principal getIssuerX500Principal() {
+    return issuer;
+  }
+
+  @Override
+  public Date getThisUpdate() {
+    return thisUpdate == null ? null : new Date(thisUpdate.getTime());
+  }
+
+  @Override
+  public Date getNextUpdate() {
+    return nextUpdate == null ? null : new Date(nextUpdate.getTime());
+  }
+
+  @Override
+  public byte[] getTBSCertList() throws CRLException {
+    return parse().getTBSCertList();
+  }
+
+  @Override
+  public byte[] getSignature() {
+    return signature.clone();
+  }
+
+  @Override
+  public String getSigAlgName() {
+    return sigAlgName;
+  }
+
+  @Override
+  public String getSigAlgOID() {
+    return sigAlgOID;
+  }
+
+  @Override
+  public byte[] getSigAlgParams() {
+    return sigAlgParams == null ? null : sigAlgParams.clone();
+  }
+
+  @Override
+  public boolean hasUnsupportedCriticalExtension() {
+    return unsupportedCriticalExtension;
+  }
+
+  @Override
+  public Set<String> getCriticalExtensionOIDs() {
+    return criticalExtensionOIDs;
+  }
+
+  @Override
+  public Set<String> getNonCriticalExtensionOIDs() {
+    return nonCriticalExtensionOIDs;
+  }
+
+  @Override
+  public byte[] getExtensionValue(String oid) {
+    byte[] value = extensionValues.get(oid);
+    return value == null ? null : value.clone();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return this == other;
+  }
+
+  @Override
+  public int hashCode() {
+    return System.identityHashCode(this);
+  }
+
+  @Override
+  public String toString() {
+    return "Indexed X.509 CRL issued by " + issuer + " at " + thisUpdate + " with " + recordCount
+      + " revoked certificates";
+  }
+
+  private int compareSerial(int record, byte[] serial) {
+    int offset = HEADER_SIZE + record * RECORD_SIZE;
+    for (int i = 0; i < SERIAL_LENGTH; i++) {
+      int comparison = Integer.compare(index.get(offset + i) & 0xff, serial[i] & 0xff);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return 0;
+  }
+
+  private X509CRLEntry getEntry(int record) {
+    int offset = HEADER_SIZE + record * RECORD_SIZE;
+    byte[] serial = new byte[SERIAL_LENGTH];
+    index.get(offset, serial);
+    return new IndexedCRLEntry(new BigInteger(1, serial), index.getLong(offset + SERIAL_LENGTH),
+      index.getLong(offset + SERIAL_LENGTH + 8), index.getInt(offset + SERIAL_LENGTH + 16));
+  }
+
+  private X509CRL parse() throws CRLException {
+    try {
+      return (X509CRL) CertificateFactory.getInstance("X.509")
+        .generateCRL(new ByteArrayInputStream(getEncoded()));
+    }
+    catch (CRLException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new CRLException("Unable to parse indexed CRL", e);
+    }
+  }
+
+  /**
+   * A revoked certificate in the index.
+   */
+  record Entry(byte[] serial, long revocationDate, long invalidityDate, int reason) {
+
+    static Entry of(X509CRLEntry entry) {
+      byte[] serial = getSerialBytes(entry.getSerialNumber());
+      if (serial == null || entry.getCertificateIssuer() != null) {
+        return null;
+      }
+      Set<String> extensions = new HashSet<>();
+      if (entry.getCriticalExtensionOIDs() != null) {
+        if (!entry.getCriticalExtensionOIDs().isEmpty()) {
+          return null;
+        }
+      }
+      if (entry.getNonCriticalExtensionOIDs() != null) {
+        extensions.addAll(entry.getNonCriticalExtensionOIDs());
+      }
+      extensions.remove(REASON_CODE_OID);
+      extensions.remove(INVALIDITY_DATE_OID);
+      if (!extensions.isEmpty()) {
+        return null;
+      }
+      long invalidityDate = 0;
+      byte[] invalidityDateValue = entry.getExtensionValue(INVALIDITY_DATE_OID);
+      if (invalidityDateValue != null) {
+        try {
+          invalidityDate = ASN1GeneralizedTime.getInstance(
+            DEROctetString.getInstance(invalidityDateValue).getOctets()).getDate().getTime();
+        }
+        catch (Exception e) {
+          return null;
+        }
+      }
+      CRLReason reason = entry.getRevocationReason();
+      return new Entry(serial, entry.getRevocationDate().getTime(), invalidityDate,
+        reason == null ? NO_REASON : reason.ordinal());
+    }
+
+    /**
+     * Gets the serial number as a fixed length unsigned big-endian byte array.
+     *
+     * @param serialNumber serial number
+     * @return serial number bytes, or null if the serial number is negative or too long
+     */
+    static byte[] getSerialBytes(BigInteger serialNumber) {
+      if (serialNumber.signum() < 0 || serialNumber.bitLength() > SERIAL_LENGTH * 8) {
+        return null;
+      }
+      byte[] bytes = serialNumber.toByteArray();
+      byte[] serial = new byte[SERIAL_LENGTH];
+      int length = Math.min(bytes.length, SERIAL_LENGTH);
+      System.arraycopy(bytes, bytes.length - length, serial, SERIAL_LENGTH - length, length);
+      return serial;
+    }
+  }
+
+  /**
+   * CRL entry read from the index.
+   */
+  private static class IndexedCRLEntry extends X509CRLEntry {
+
+    private final BigInteger serialNumber;
+    private final long revocationDate;
+    private final long invalidityDate;
+    private final int reason;
+
+    IndexedCRLEntry(BigInteger serialNumber, long revocationDate, long invalidityDate, int reason) {
+      this.serialNumber = serialNumber;
+      this.revocationDate = revocationDate;
+      this.invalidityDate = invalidityDate;
+      this.reason = reason;
+    }
+
+    @Override
+    public byte[] getEncoded() throws CRLException {
+      ASN1EncodableVector entry = new ASN1EncodableVector();
+      entry.add(new ASN1Integer(serialNumber));
+      entry.add(new Time(new Date(revocationDate)));
+      try {
+        List<Extension> extensions = new ArrayList<>();
+        if (reason != NO_REASON) {
+          extensions.add(new Extension(Extension.reasonCode, false, new ASN1Enumerated(reason).getEncoded()));
+        }
+        if (invalidityDate != 0) {
+          extensions.add(new Extension(Extension.invalidityDate, false,
+            new ASN1GeneralizedTime(new Date(invalidityDate)).getEncoded()));
+        }
+        if (!extensions.isEmpty()) {
+          entry.add(new Extensions(extensions.toArray(new Extension[0])));
+        }
+        return new DERSequence(entry).getEncoded();
+      }
+      catch (IOException e) {
+        throw new CRLException("Unable to encode CRL entry", e);
+      }
+    }
+
+    @Override
+    public BigInteger getSerialNumber() {
+      return serialNumber;
+    }
+
+    @Override
+    public Date getRevocationDate() {
+      return new Date(revocationDate);
+    }
+
+    @Override
+    public CRLReason getRevocationReason() {
+      return reason == NO_REASON ? null : CRLReason.values()[reason];
+    }
+
+    @Override
+    public boolean hasExtensions() {
+      return reason != NO_REASON || invalidityDate != 0;
+    }
+
+    @Override
+    public boolean hasUnsupportedCriticalExtension() {
+      return false;
+    }
+
+    @Override
+    public Set<String> getCriticalExtensionOIDs() {
+      return hasExtensions() ? Collections.emptySet() : null;
+    }
+
+    @Override
+    public Set<String> getNonCriticalExtensionOIDs() {
+      if (!hasExtensions()) {
+        return null;
+      }
+      Set<String> oids = new HashSet<>();
+      if (reason != NO_REASON) {
+        oids.add(REASON_CODE_OID);
+      }
+      if (invalidityDate != 0) {
+        oids.add(INVALIDITY_DATE_OID);
+      }
+      return oids;
+    }
+
+    @Override
+    public byte[] getExtensionValue(String oid) {
+      try {
+        if (REASON_CODE_OID.equals(oid) && reason != NO_REASON) {
+          return new DEROctetString(new ASN1Enumerated(reason)).getEncoded();
+        }
+        if (INVALIDITY_DATE_OID.equals(oid) && invalidityDate != 0) {
+          return new DEROctetString(new ASN1GeneralizedTime(new Date(invalidityDate))).getEncoded();
+        }
+      }
+      catch (IOException e) {
+        return null;
+      }
+      return null;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof IndexedCRLEntry entry
+        && serialNumber.equals(entry.serialNumber)
+        && revocationDate == entry.revocationDate;
+    }
+
+    @Override
+    public int hashCode() {
+      return serialNumber.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "Revoked certificate " + serialNumber.toString(16) + " at " + new Date(revocationDate);
+    }
+  }
+
+}
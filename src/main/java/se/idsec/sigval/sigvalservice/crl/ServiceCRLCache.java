@@ -0,0 +1,441 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.crl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.beans.factory.DisposableBean;
+import se.idsec.sigval.sigvalservice.fetch.ConditionalFetcher;
+import se.idsec.sigval.sigvalservice.fetch.SingleFlight;
+import se.swedenconnect.sigval.cert.validity.crl.CRLCache;
+import se.swedenconnect.sigval.cert.validity.crl.CRLInfo;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * CRL cache storing downloaded CRLs in a cache folder and re-caching them in parallel with conditional downloads.
+ *
+ * <p>
+ * Each cached CRL is stored in the cache folder together with its {@link CRLRecord}, and cached CRLs are loaded from
+ * the cache folder on startup. When the cache is re-cached, the distribution points are downloaded concurrently, with
+ * a limit on the number of concurrent downloads from each host. Downloads are conditional on the ETag and Last-Modified
+ * header of the previous download, so unchanged CRLs are not transferred again. CRLs that were checked within the
+ * re-cache grace period, and optionally CRLs whose nextUpdate is far enough away, are not checked. Downloaded CRLs
+ * are written to the cache folder as they are received, and parsed from there.
+ * </p>
+ *
+ * <p>
+ * Cached CRLs are published as immutable entries that are replaced on update, so that lookups of cached CRLs never
+ * wait for downloads. Downloads of one distribution point are serialized by a lock held for that distribution point
+ * only, so a slow download only delays validations that need that CRL. Concurrent lookups of a CRL that is not
+ * cached share one download.
+ * </p>
+ *
+ * <p>
+ * CRLs with at least a configured number of revoked certificates are converted to an {@link IndexedX509CRL} when
+ * they are downloaded or loaded, so that their revoked entries are held in a memory mapped index file in the cache
+ * folder instead of on the heap.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class ServiceCRLCache implements CRLCache, DisposableBean {
+
+  private static final String CRL_SUFFIX = ".crl";
+  private static final String RECORD_SUFFIX = ".json";
+  private static final String INDEX_SUFFIX = ".idx";
+  private static final String DOWNLOAD_SUFFIX = ".download";
+
+  private final File cacheFolder;
+  private final long recacheGracePeriod;
+  private final long skipIfValidForMillis;
+  private final int perHostLimit;
+  private final int indexMinEntries;
+  private final ConditionalFetcher crlFetcher;
+  private final ObjectMapper objectMapper;
+  private final ExecutorService recacheExecutor;
+
+  private final Map<String, CachedCRL> crls = new ConcurrentHashMap<>();
+  private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+  private final Map<String, Lock> downloadLocks = new ConcurrentHashMap<>();
+  private final SingleFlight<String, CachedCRL> crlDownloads;
+
+  private final MeterRegistry meterRegistry;
+  private final Timer recacheTimer;
+
+  /**
+   * Constructor.
+   *
+   * @param cacheFolder the folder where CRLs are stored
+   * @param recacheGracePeriod CRLs checked within this number of milliseconds are not checked when re-caching
+   * @param skipIfValidForSeconds CRLs whose nextUpdate is more than this number of seconds away are not checked when
+   *   re-caching. 0 checks all CRLs
+   * @param recacheParallelism the max number of CRLs downloaded concurrently when re-caching
+   * @param perHostLimit the max number of CRLs downloaded concurrently from one host when re-caching
+   * @param indexMinEntries CRLs with at least this number of revoked certificates are indexed. 0 disables indexing
+   * @param crlFetcher the CRL fetcher
+   * @param objectMapper object mapper for CRL records
+   * @param meterRegistry meter registry
+   */
+  public ServiceCRLCache(File cacheFolder, long recacheGracePeriod, long skipIfValidForSeconds,
+    int recacheParallelism, int perHostLimit, int indexMinEntries, ConditionalFetcher crlFetcher,
+    ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+    this.cacheFolder = cacheFolder;
+    this.recacheGracePeriod = recacheGracePeriod;
+    this.skipIfValidForMillis = Math.max(0, skipIfValidForSeconds) * 1000;
+    this.perHostLimit = Math.max(1, perHostLimit);
+    this.indexMinEntries = indexMinEntries;
+    this.crlFetcher = crlFetcher;
+    this.objectMapper = objectMapper;
+    this.meterRegistry = meterRegistry;
+
+    int threads = Math.max(1, recacheParallelism);
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+      new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "crl-recache-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.recacheExecutor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, "sigval.crl.recache");
+    this.recacheTimer = meterRegistry.timer("sigval.crl.recache.duration");
+    this.crlDownloads = new SingleFlight<>("crl", meterRegistry);
+    Gauge.builder("sigval.crl.cache.entries", crls, Map::size).register(meterRegistry);
+
+    if (!cacheFolder.exists() && !cacheFolder.mkdirs()) {
+      log.warn("Unable to create CRL cache folder {}", cacheFolder.getAbsolutePath());
+    }
+    loadCachedCRLs();
+  }
+
+  @Override
+  public CRLInfo getCRL(URI crlUri) throws IOException {
+    return getCRL(crlUri.toString());
+  }
+
+  @Override
+  public CRLInfo getCRL(String url) throws IOException {
+    CachedCRL cachedCRL = crls.get(url);
+    if (cachedCRL != null) {
+      return cachedCRL.crlInfo();
+    }
+    return crlDownloads.execute(url, () -> {
+      Lock lock = getDownloadLock(url);
+      lock.lock();
+      try {
+        CachedCRL downloaded = crls.get(url);
+        if (downloaded != null) {
+          return downloaded;
+        }
+        log.debug("Downloading CRL not in cache from {}", url);
+        return download(url, null);
+      }
+      finally {
+        lock.unlock();
+      }
+    }).crlInfo();
+  }
+
+  @Override
+  public void recache() {
+    long start = System.nanoTime();
+    List<Future<RecacheResult>> results = new ArrayList<>();
+    for (String url : crls.keySet()) {
+      results.add(recacheExecutor.submit(() -> recache(url)));
+    }
+    Map<RecacheResult, Integer> counts = new EnumMap<>(RecacheResult.class);
+    for (Future<RecacheResult> result : results) {
+      RecacheResult recacheResult;
+      try {
+        recacheResult = result.get();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.warn("Interrupted while re-caching CRLs");
+        return;
+      }
+      catch (ExecutionException e) {
+        recacheResult = RecacheResult.failed;
+      }
+      counts.merge(recacheResult, 1, Integer::sum);
+      meterRegistry.counter("sigval.crl.recache.requests", "result", recacheResult.name()).increment();
+    }
+    long duration = System.nanoTime() - start;
+    recacheTimer.record(duration, TimeUnit.NANOSECONDS);
+    log.info("Re-cached {} CRLs in {} ms: {}", results.size(), TimeUnit.NANOSECONDS.toMillis(duration), counts);
+  }
+
+  @Override
+  public void destroy() {
+    recacheExecutor.shutdownNow();
+  }
+
+  private RecacheResult recache(String url) {
+    CachedCRL cachedCRL = crls.get(url);
+    if (cachedCRL == null) {
+      return RecacheResult.skipped;
+    }
+    CRLRecord record = cachedCRL.record();
+    long now = System.currentTimeMillis();
+    if (now - record.getLastChecked() < recacheGracePeriod) {
+      return RecacheResult.skipped;
+    }
+    if (skipIfValidForMillis > 0 && record.getNextUpdate() - now > skipIfValidForMillis) {
+      log.trace("CRL from {} valid until {} - skipping re-cache", url, record.getNextUpdate());
+      return RecacheResult.skipped;
+    }
+    Semaphore permits = hostPermits.computeIfAbsent(getHost(url), host -> new Semaphore(perHostLimit));
+    try {
+      permits.acquire();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return RecacheResult.failed;
+    }
+    Lock lock = getDownloadLock(url);
+    lock.lock();
+    try {
+      // Use the latest published entry, in case the CRL was downloaded while waiting
+      cachedCRL = crls.getOrDefault(url, cachedCRL);
+      CachedCRL updated = download(url, cachedCRL);
+      return updated.crlInfo() == cachedCRL.crlInfo() ? RecacheResult.notModified : RecacheResult.updated;
+    }
+    catch (Exception e) {
+      log.warn("Failed to re-cache CRL from {}: {}", url, e.getMessage());
+      return RecacheResult.failed;
+    }
+    finally {
+      lock.unlock();
+      permits.release();
+    }
+  }
+
+  private Lock getDownloadLock(String url) {
+    return downloadLocks.computeIfAbsent(url, key -> new ReentrantLock());
+  }
+
+  /**
+   * Downloads a CRL and publishes the result in the cache. Must be called holding the download lock of the URL.
+   *
+   * @param url the distribution point URL
+   * @param cachedCRL the currently cached CRL, or null if the CRL is not cached
+   * @return the cached CRL after download
+   * @throws IOException on errors downloading or storing the CRL
+   */
+  private CachedCRL download(String url, CachedCRL cachedCRL) throws IOException {
+    CRLRecord previous = cachedCRL == null ? null : cachedCRL.record();
+    String fileName = getFileName(url);
+    // The CRL is streamed to a download file in the cache folder, which is moved in place once the CRL is parsed
+    File downloadFile = new File(cacheFolder, fileName + DOWNLOAD_SUFFIX);
+    ConditionalFetcher.Response response = crlFetcher.fetch(url,
+      previous == null ? null : previous.getEtag(),
+      previous == null ? null : previous.getLastModified(),
+      downloadFile);
+
+    CachedCRL updated;
+    if (response.notModified() && cachedCRL != null) {
+      log.debug("CRL from {} not modified", url);
+      updated = new CachedCRL(cachedCRL.crlInfo(), cachedCRL.indexFile(), CRLRecord.builder()
+        .url(url)
+        .fileName(previous.getFileName())
+        .etag(previous.getEtag())
+        .lastModified(previous.getLastModified())
+        .lastChecked(System.currentTimeMillis())
+        .nextUpdate(previous.getNextUpdate())
+        .build());
+    }
+    else {
+      X509CRL crl;
+      try {
+        crl = parseCRL(downloadFile);
+        Files.move(downloadFile.toPath(), new File(cacheFolder, fileName + CRL_SUFFIX).toPath(),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      finally {
+        Files.deleteIfExists(downloadFile.toPath());
+      }
+      long size = new File(cacheFolder, fileName + CRL_SUFFIX).length();
+      crl = index(fileName, crl);
+      updated = new CachedCRL(new CRLInfo(crl, url), getIndexFile(crl), CRLRecord.builder()
+        .url(url)
+        .fileName(fileName)
+        .etag(response.etag())
+        .lastModified(response.lastModified())
+        .lastChecked(System.currentTimeMillis())
+        .nextUpdate(crl.getNextUpdate() == null ? 0 : crl.getNextUpdate().getTime())
+        .build());
+      log.debug("Cached CRL from {} with {} bytes", url, size);
+    }
+    writeAtomic(new File(cacheFolder, updated.record().getFileName() + RECORD_SUFFIX),
+      objectMapper.writeValueAsBytes(updated.record()));
+    crls.put(url, updated);
+    if (cachedCRL != null && cachedCRL.indexFile() != null && !cachedCRL.indexFile().equals(updated.indexFile())) {
+      deleteIndexFile(cachedCRL.indexFile());
+    }
+    return updated;
+  }
+
+  /**
+   * Converts a CRL to an {@link IndexedX509CRL} if it holds enough revoked certificates to be indexed.
+   *
+   * @param fileName the file name of the cached CRL
+   * @param crl the parsed CRL
+   * @return the indexed CRL, or the parsed CRL if the CRL is not indexed
+   */
+  private X509CRL index(String fileName, X509CRL crl) {
+    if (indexMinEntries <= 0 || crl.getRevokedCertificates() == null
+      || crl.getRevokedCertificates().size() < indexMinEntries) {
+      return crl;
+    }
+    try {
+      byte[] crlBytes = crl.getEncoded();
+      File indexFile = new File(cacheFolder, fileName + "-" + getFileName(crlBytes).substring(0, 16) + INDEX_SUFFIX);
+      IndexedX509CRL indexedCRL = IndexedX509CRL.create(crl, crlBytes, indexFile);
+      if (indexedCRL == null) {
+        log.debug("CRL from {} can not be indexed", crl.getIssuerX500Principal());
+        return crl;
+      }
+      log.debug("Indexed {} revoked certificates of CRL from {}", indexedCRL.getRevokedCount(),
+        crl.getIssuerX500Principal());
+      return indexedCRL;
+    }
+    catch (IOException | CRLException e) {
+      log.warn("Unable to index CRL from {}: {}", crl.getIssuerX500Principal(), e.getMessage());
+      return crl;
+    }
+  }
+
+  private static File getIndexFile(X509CRL crl) {
+    return crl instanceof IndexedX509CRL indexedCRL ? indexedCRL.getIndexFile() : null;
+  }
+
+  private static void deleteIndexFile(File indexFile) {
+    // The index of a replaced CRL may still be mapped by ongoing validations. Mappings remain valid after the file is
+    // deleted on platforms that allow deleting mapped files, otherwise the file is removed on next startup.
+    if (!indexFile.delete()) {
+      log.debug("Unable to delete CRL index file {}", indexFile.getName());
+    }
+  }
+
+  private void loadCachedCRLs() {
+    File[] recordFiles = cacheFolder.listFiles((dir, name) -> name.endsWith(RECORD_SUFFIX));
+    if (recordFiles == null) {
+      return;
+    }
+    File[] indexFiles = cacheFolder.listFiles((dir, name) -> name.endsWith(INDEX_SUFFIX));
+    if (indexFiles != null) {
+      Arrays.stream(indexFiles).forEach(ServiceCRLCache::deleteIndexFile);
+    }
+    for (File recordFile : recordFiles) {
+      try {
+        CRLRecord record = objectMapper.readValue(recordFile, CRLRecord.class);
+        X509CRL crl = index(record.getFileName(),
+          parseCRL(new File(cacheFolder, record.getFileName() + CRL_SUFFIX)));
+        crls.put(record.getUrl(), new CachedCRL(new CRLInfo(crl, record.getUrl()), getIndexFile(crl), record));
+      }
+      catch (Exception e) {
+        log.warn("Unable to load cached CRL {}: {}", recordFile.getName(), e.getMessage());
+      }
+    }
+    log.info("Loaded {} cached CRLs from {}", crls.size(), cacheFolder.getAbsolutePath());
+  }
+
+  private static X509CRL parseCRL(File crlFile) throws IOException {
+    try (InputStream inputStream = new BufferedInputStream(new FileInputStream(crlFile))) {
+      return (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(inputStream);
+    }
+    catch (CertificateException | CRLException | ClassCastException e) {
+      throw new IOException("Unable to parse CRL: " + e.getMessage(), e);
+    }
+  }
+
+  private static void writeAtomic(File file, byte[] data) throws IOException {
+    File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+    Files.write(tempFile.toPath(), data);
+    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static String getFileName(String url) {
+    return getFileName(url.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String getFileName(byte[] data) {
+    try {
+      return Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  private static String getHost(String url) {
+    try {
+      String host = URI.create(url).getHost();
+      return host == null ? "" : host.toLowerCase();
+    }
+    catch (IllegalArgumentException e) {
+      return "";
+    }
+  }
+
+  private enum RecacheResult {
+    updated, notModified, skipped, failed
+  }
+
+  private record CachedCRL(CRLInfo crlInfo, File indexFile, CRLRecord record) {
+  }
+
+}
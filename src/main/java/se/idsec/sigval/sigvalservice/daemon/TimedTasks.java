@@ -16,19 +16,21 @@
 
 package se.idsec.sigval.sigvalservice.daemon;
 
-import com.nimbusds.jose.JOSEException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import se.swedenconnect.sigval.cert.validity.crl.CRLCache;
 import se.idsec.sigval.sigvalservice.configuration.SignatureValidatorProvider;
+import se.idsec.sigval.sigvalservice.job.ValidationJobService;
 
-import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.CertificateException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 @Slf4j
@@ -36,42 +38,89 @@ public class TimedTasks implements InitializingBean {
 
   private final CRLCache crlCache;
   private final SignatureValidatorProvider signatureValidatorProvider;
+  private final ValidationJobService validationJobService;
+  private final TaskScheduler taskScheduler;
+  private final AtomicBoolean recacheInProgress = new AtomicBoolean();
+  private boolean loadedFromSnapshot;
 
   @Autowired
   public TimedTasks(CRLCache crlCache, SignatureValidatorProvider signatureValidatorProvider,
+    ValidationJobService validationJobService, TaskScheduler taskScheduler,
     @Value("${sigval-service.crl.recache-delay-seconds:3600}") String configuredCrlCacheDelaySeconds,
     @Value("${sigval-service.validators.reload-interval-seconds:600}") String validatorReloadSeconds) {
     this.crlCache = crlCache;
     log.info("Setup CRL re-cache delay (seconds): {}", configuredCrlCacheDelaySeconds);
     this.signatureValidatorProvider = signatureValidatorProvider;
     log.info("Setup Validator reload interval (seconds): {}", validatorReloadSeconds);
+    this.validationJobService = validationJobService;
+    this.taskScheduler = taskScheduler;
   }
 
   @Scheduled(initialDelayString = "${sigval-service.crl.recache-delay-seconds:3600}" + "000", fixedDelayString =
     "${sigval-service.crl.recache-delay-seconds:3600}" + "000")
-  public synchronized void recacheCRLs() {
+  public void recacheCRLs() {
+    // The CRL cache serves lookups while re-caching, so re-caching does not hold the lock used by validator reloads
+    if (!recacheInProgress.compareAndSet(false, true)) {
+      log.debug("CRL re-cache already in progress");
+      return;
+    }
     try {
       log.info("Initiated CRL re-cache");
       crlCache.recache();
       log.debug("Finished CRL re-cache");
     } catch (Exception e) {
       log.warn("Failed to re-cache CRLs", e);
+    } finally {
+      recacheInProgress.set(false);
     }
   }
 
   @Scheduled(initialDelayString = "${sigval-service.validators.reload-interval-seconds:600}" + "000", fixedDelayString =
     "${sigval-service.validators.reload-interval-seconds}" + "000")
-  public synchronized void reloadValidators() throws IOException, NoSuchAlgorithmException, CertificateException, JOSEException {
+  public void reloadValidators() {
     try {
-      signatureValidatorProvider.loadValidators();
+      if (signatureValidatorProvider.reloadValidators(false)) {
+        log.info("Loaded signature validators");
+      }
     } catch (Exception e) {
       log.warn("Failed to reload signature validators", e);
     }
   }
 
+  @Scheduled(initialDelayString = "${sigval-service.jobs.cleanup-interval-seconds:60}" + "000", fixedDelayString =
+    "${sigval-service.jobs.cleanup-interval-seconds:60}" + "000")
+  public void removeExpiredJobs() {
+    try {
+      validationJobService.removeExpiredJobs();
+    } catch (Exception e) {
+      log.warn("Failed to remove expired validation jobs", e);
+    }
+  }
 
   @Override public void afterPropertiesSet() throws Exception {
+    if (signatureValidatorProvider.loadValidatorsFromSnapshot()) {
+      // Validators are available from the TSL snapshots. CRLs and TSL sources are refreshed when the service is ready
+      log.info("Loaded signature validators from TSL snapshots");
+      loadedFromSnapshot = true;
+      return;
+    }
+    // Validators are always loaded when none are loaded
     recacheCRLs();
     reloadValidators();
   }
+
+  /**
+   * Refreshes CRLs and TSL sources in the background on the task scheduler when the validators were loaded from TSL
+   * snapshots at startup.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void refreshAfterSnapshotLoad() {
+    if (!loadedFromSnapshot) {
+      return;
+    }
+    taskScheduler.schedule(() -> {
+      recacheCRLs();
+      reloadValidators();
+    }, Instant.now());
+  }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.fetch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Downloads revocation and trust data, such as CRLs and TSL CA repositories.
+ *
+ * <p>
+ * HTTP downloads are conditional when the ETag or Last-Modified header of a previous download is provided, so that
+ * unchanged data is answered by status 304 without being transferred again. URLs using other schemes supported by the
+ * JVM are downloaded unconditionally. Data is either held in memory or written to a file while it is received, and
+ * downloads exceeding the max size are rejected.
+ * </p>
+ *
+ * <p>
+ * If an {@link EndpointCircuitBreaker} is provided, HTTP downloads from endpoints whose breaker is open are rejected
+ * without any request being sent.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class ConditionalFetcher {
+
+  private final WebClient webClient;
+  private final int maxSize;
+  private final EndpointCircuitBreaker circuitBreaker;
+
+  /**
+   * Constructor.
+   *
+   * @param webClient the web client used for HTTP downloads
+   * @param maxSize the max size of downloaded data in bytes
+   */
+  public ConditionalFetcher(WebClient webClient, int maxSize) {
+    this(webClient, maxSize, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param webClient the web client used for HTTP downloads
+   * @param maxSize the max size of downloaded data in bytes
+   * @param circuitBreaker the circuit breaker of HTTP endpoints, or null to always send requests
+   */
+  public ConditionalFetcher(WebClient webClient, int maxSize, EndpointCircuitBreaker circuitBreaker) {
+    this.webClient = webClient.mutate()
+      .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxSize))
+      .build();
+    this.maxSize = maxSize;
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  /**
+   * Downloads data from a URL into memory.
+   *
+   * @param url the URL
+   * @param etag the ETag of the previous download or null
+   * @param lastModified the Last-Modified header of the previous download or null
+   * @return the response
+   * @throws IOException on download errors
+   */
+  public Response fetch(String url, String etag, String lastModified) throws IOException {
+    URI uri = getUri(url);
+    if (!isHttp(uri)) {
+      try (InputStream inputStream = uri.toURL().openStream()) {
+        return new Response(false, inputStream.readAllBytes(), null, null);
+      }
+    }
+    return exchange(uri, etag, lastModified, clientResponse -> {
+      HttpHeaders headers = clientResponse.headers().asHttpHeaders();
+      return clientResponse.bodyToMono(byte[].class)
+        .map(bytes -> new Response(false, bytes, headers.getETag(), headers.getFirst(HttpHeaders.LAST_MODIFIED)));
+    });
+  }
+
+  /**
+   * Downloads data from a URL to a file. The body is written to the file as it is received, without being held in
+   * memory. The file is deleted if the download fails, and is not written if the data is not modified.
+   *
+   * @param url the URL
+   * @param etag the ETag of the previous download or null
+   * @param lastModified the Last-Modified header of the previous download or null
+   * @param file the file to write the downloaded data to
+   * @return the response, holding no data
+   * @throws IOException on download errors
+   */
+  public Response fetch(String url, String etag, String lastModified, File file) throws IOException {
+    URI uri = getUri(url);
+    try {
+      if (!isHttp(uri)) {
+        try (InputStream inputStream = uri.toURL().openStream()) {
+          Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+          return new Response(false, null, null, null);
+        }
+      }
+      return exchange(uri, etag, lastModified, clientResponse -> {
+        HttpHeaders headers = clientResponse.headers().asHttpHeaders();
+        if (headers.getContentLength() > maxSize) {
+          return clientResponse.releaseBody().then(Mono.error(new DataBufferLimitException(
+            "Content length " + headers.getContentLength() + " of " + url + " exceeds max size " + maxSize)));
+        }
+        AtomicLong size = new AtomicLong();
+        Flux<DataBuffer> body = clientResponse.bodyToFlux(DataBuffer.class)
+          .handle((buffer, sink) -> {
+            if (size.addAndGet(buffer.readableByteCount()) > maxSize) {
+              DataBufferUtils.release(buffer);
+              sink.error(new DataBufferLimitException("Data from " + url + " exceeds max size " + maxSize));
+              return;
+            }
+            sink.next(buffer);
+          });
+        return DataBufferUtils.write(body, file.toPath())
+          .thenReturn(new Response(false, null, headers.getETag(), headers.getFirst(HttpHeaders.LAST_MODIFIED)));
+      });
+    }
+    catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(file.toPath());
+      throw e;
+    }
+  }
+
+  /**
+   * Sends a conditional GET request and maps a successful response by the provided body handler.
+   */
+  private Response exchange(URI uri, String etag, String lastModified,
+    Function<ClientResponse, Mono<Response>> bodyHandler) throws IOException {
+    if (circuitBreaker != null) {
+      circuitBreaker.checkAvailable(uri);
+    }
+    Response response;
+    try {
+      response = webClient.get()
+        .uri(uri)
+        .headers(headers -> {
+          if (etag != null) {
+            headers.setIfNoneMatch(etag);
+          }
+          if (lastModified != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+          }
+        })
+        .exchangeToMono(clientResponse -> {
+          if (clientResponse.statusCode().value() == 304) {
+            return clientResponse.releaseBody().thenReturn(new Response(true, null, etag, lastModified));
+          }
+          if (clientResponse.statusCode().isError()) {
+            return clientResponse.releaseBody().then(Mono.error(new HttpStatusException(clientResponse.statusCode()
+              .value(), "Http error " + clientResponse.statusCode() + " downloading " + uri)));
+          }
+          return bodyHandler.apply(clientResponse);
+        })
+        .block();
+    }
+    catch (Exception e) {
+      IOException ioException = e.getCause() instanceof IOException cause
+        ? cause
+        : new IOException("Failed to download " + uri + ": " + e.getMessage(), e);
+      if (circuitBreaker != null) {
+        // Error responses below 500 and oversized data show that the endpoint is reachable
+        if ((ioException instanceof HttpStatusException statusException && statusException.status < 500)
+          || e instanceof DataBufferLimitException || e.getCause() instanceof DataBufferLimitException) {
+          circuitBreaker.recordSuccess(uri);
+        }
+        else {
+          circuitBreaker.recordFailure(uri, ioException);
+        }
+      }
+      throw ioException;
+    }
+    if (circuitBreaker != null) {
+      circuitBreaker.recordSuccess(uri);
+    }
+    if (response == null) {
+      throw new IOException("No data returned from " + uri);
+    }
+    return response;
+  }
+
+  private static URI getUri(String url) throws IOException {
+    try {
+      return URI.create(url);
+    }
+    catch (IllegalArgumentException e) {
+      throw new IOException("Illegal URL: " + url, e);
+    }
+  }
+
+  private static boolean isHttp(URI uri) {
+    String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase();
+    return scheme.equals("http") || scheme.equals("https");
+  }
+
+  /**
+   * The response of a download.
+   *
+   * @param notModified true if the server reported that the data was not modified
+   * @param data the downloaded data, or null if not modified
+   * @param etag the ETag of the data or null
+   * @param lastModified the Last-Modified header of the data or null
+   */
+  public record Response(boolean notModified, byte[] data, String etag, String lastModified) {
+  }
+
+  /**
+   * Error status returned by an HTTP endpoint.
+   */
+  private static class HttpStatusException extends IOException {
+
+    private final int status;
+
+    HttpStatusException(int status, String message) {
+      super(message);
+      this.status = status;
+    }
+  }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.fetch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breakers for the HTTP endpoints that revocation and trust data are downloaded from.
+ *
+ * <p>
+ * Each endpoint, identified by scheme, host and port, has its own breaker. After a number of consecutive failed
+ * downloads the breaker of the endpoint opens, and downloads from the endpoint are then rejected at once with the last
+ * failure, instead of waiting for the connect and read timeouts. Requests therefore fail fast to the behavior
+ * configured for unavailable revocation data. While the breaker is open, the endpoint is probed in the background by a
+ * HEAD request to the last failed URL, once per open period. The breaker closes when the endpoint responds to a probe
+ * with a status below 500, and stays open for another period otherwise.
+ * </p>
+ *
+ * <p>
+ * Only network errors, timeouts and server errors (status 500 and above) are counted as failures, since any other
+ * response shows that the endpoint is reachable.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class EndpointCircuitBreaker implements DisposableBean {
+
+  private final int failureThreshold;
+  private final long openMillis;
+  private final WebClient webClient;
+  private final ScheduledExecutorService probeExecutor;
+
+  private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+  private final Counter rejectedCounter;
+  private final Counter openedCounter;
+  private final Counter closedCounter;
+
+  /**
+   * Constructor.
+   *
+   * @param failureThreshold the number of consecutive failures opening the breaker of an endpoint, or 0 to never open
+   *   any breaker
+   * @param openMillis the time in milliseconds that a breaker stays open before the endpoint is probed
+   * @param webClient the web client used to probe endpoints
+   * @param meterRegistry meter registry
+   */
+  public EndpointCircuitBreaker(int failureThreshold, long openMillis, WebClient webClient,
+    MeterRegistry meterRegistry) {
+    this.failureThreshold = failureThreshold;
+    this.openMillis = Math.max(1000, openMillis);
+    this.webClient = webClient;
+    AtomicInteger threadCount = new AtomicInteger();
+    this.probeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "endpoint-probe-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.rejectedCounter = meterRegistry.counter("sigval.circuit-breaker.requests", "result", "rejected");
+    this.openedCounter = meterRegistry.counter("sigval.circuit-breaker.transitions", "state", "open");
+    this.closedCounter = meterRegistry.counter("sigval.circuit-breaker.transitions", "state", "closed");
+    Gauge.builder("sigval.circuit-breaker.open", this, EndpointCircuitBreaker::getOpenCount)
+      .register(meterRegistry);
+  }
+
+  /**
+   * Checks that downloads from the endpoint of a URI are allowed.
+   *
+   * @param uri the URI to download from
+   * @throws IOException if the breaker of the endpoint is open
+   */
+  public void checkAvailable(URI uri) throws IOException {
+    Endpoint endpoint = endpoints.get(getEndpointId(uri));
+    if (endpoint == null) {
+      return;
+    }
+    String lastFailure = endpoint.getOpenFailure();
+    if (lastFailure != null) {
+      rejectedCounter.increment();
+      throw new IOException("Endpoint " + endpoint.id + " is unavailable: " + lastFailure);
+    }
+  }
+
+  /**
+   * Records a download that reached the endpoint of a URI.
+   *
+   * @param uri the downloaded URI
+   */
+  public void recordSuccess(URI uri) {
+    Endpoint endpoint = endpoints.get(getEndpointId(uri));
+    if (endpoint != null && endpoint.reset()) {
+      closedCounter.increment();
+      log.info("Endpoint {} is available again", endpoint.id);
+    }
+  }
+
+  /**
+   * Records a download that failed to reach the endpoint of a URI, opening the breaker of the endpoint if the failure
+   * threshold is reached.
+   *
+   * @param uri the downloaded URI
+   * @param failure the failure
+   */
+  public void recordFailure(URI uri, Exception failure) {
+    if (failureThreshold <= 0) {
+      return;
+    }
+    String id = getEndpointId(uri);
+    Endpoint endpoint = endpoints.computeIfAbsent(id, Endpoint::new);
+    if (endpoint.failed(uri, failure.getMessage())) {
+      openedCounter.increment();
+      log.warn("Endpoint {} is unavailable after {} failures - rejecting downloads for {} seconds: {}", id,
+        failureThreshold, openMillis / 1000, failure.getMessage());
+      scheduleProbe(endpoint);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    probeExecutor.shutdownNow();
+  }
+
+  int getOpenCount() {
+    return (int) endpoints.values().stream().filter(endpoint -> endpoint.getOpenFailure() != null).count();
+  }
+
+  private void scheduleProbe(Endpoint endpoint) {
+    if (endpoint.markProbeScheduled()) {
+      probeExecutor.schedule(() -> probe(endpoint), openMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void probe(Endpoint endpoint) {
+    URI probeUri = endpoint.startProbe();
+    if (probeUri == null) {
+      // Closed by a successful download since the probe was scheduled
+      return;
+    }
+    try {
+      Integer status = webClient.head()
+        .uri(probeUri)
+        .exchangeToMono(clientResponse -> clientResponse.releaseBody()
+          .thenReturn(clientResponse.statusCode().value()))
+        .block();
+      if (status != null && status < 500) {
+        recordSuccess(probeUri);
+        return;
+      }
+      endpoint.reopen("Http status " + status);
+    }
+    catch (Exception e) {
+      endpoint.reopen(e.getMessage());
+    }
+    if (endpoint.getOpenFailure() != null) {
+      log.debug("Endpoint {} is still unavailable", endpoint.id);
+      scheduleProbe(endpoint);
+    }
+  }
+
+  private static String getEndpointId(URI uri) {
+    return String.valueOf(uri.getScheme()).toLowerCase() + "://" + uri.getHost() + ":" + uri.getPort();
+  }
+
+  /**
+   * The breaker state of an endpoint.
+   */
+  private final class Endpoint {
+
+    private final String id;
+    private int failures;
+    private String openFailure;
+    private URI probeUri;
+    private boolean probeScheduled;
+
+    Endpoint(String id) {
+      this.id = id;
+    }
+
+    synchronized String getOpenFailure() {
+      return openFailure;
+    }
+
+    /**
+     * Resets the breaker.
+     *
+     * @return true if the breaker was open
+     */
+    synchronized boolean reset() {
+      boolean open = openFailure != null;
+      failures = 0;
+      openFailure = null;
+      return open;
+    }
+
+    synchronized void reopen(String failure) {
+      if (openFailure != null) {
+        openFailure = failure == null ? "unknown error" : failure;
+      }
+    }
+
+    synchronized boolean markProbeScheduled() {
+      if (probeScheduled) {
+        return false;
+      }
+      probeScheduled = true;
+      return true;
+    }
+
+    /**
+     * Starts a scheduled probe.
+     *
+     * @return the URI to probe, or null if the breaker is no longer open
+     */
+    synchronized URI startProbe() {
+      probeScheduled = false;
+      return openFailure == null ? null : probeUri;
+    }
+
+    /**
+     * Records a failure.
+     *
+     * @return true if the failure opened the breaker
+     */
+    synchronized boolean failed(URI uri, String failure) {
+      probeUri = uri;
+      if (openFailure != null) {
+        return false;
+      }
+      if (++failures < failureThreshold) {
+        return false;
+      }
+      openFailure = failure == null ? "unknown error" : failure;
+      return true;
+    }
+  }
+
+}
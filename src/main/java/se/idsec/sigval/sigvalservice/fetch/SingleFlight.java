@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.fetch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent loads of the same key into one load.
+ *
+ * <p>
+ * The first caller for a key performs the load. Callers requesting the same key while the load is in flight wait for
+ * it and receive its result, or its exception. Nothing is cached once the load completes, so a later call performs a
+ * new load. Calls are counted by the metric {@code sigval.single-flight.requests}, tagged with the type of the loaded
+ * data and with the result {@code executed} or {@code coalesced}.
+ * </p>
+ *
+ * @param <K> the key type
+ * @param <V> the loaded value type
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+public class SingleFlight<K, V> {
+
+  private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final Counter executedCounter;
+  private final Counter coalescedCounter;
+
+  /**
+   * Constructor.
+   *
+   * @param type the type of the loaded data used to tag metrics (e.g. crl or certificate)
+   * @param meterRegistry meter registry
+   */
+  public SingleFlight(String type, MeterRegistry meterRegistry) {
+    this.executedCounter = meterRegistry.counter("sigval.single-flight.requests", "type", type, "result", "executed");
+    this.coalescedCounter = meterRegistry.counter("sigval.single-flight.requests", "type", type,
+      "result", "coalesced");
+  }
+
+  /**
+   * Loads the value of a key, or waits for the load in flight for the key.
+   *
+   * @param key the key
+   * @param loader the loader invoked if no load of the key is in flight
+   * @param <E> the checked exception type of the loader
+   * @return the loaded value
+   * @throws E if the load fails
+   */
+  @SuppressWarnings("unchecked")
+  public <E extends Exception> V execute(K key, Loader<V, E> loader) throws E {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      coalescedCounter.increment();
+      try {
+        return existing.get();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for load of " + key, e);
+      }
+      catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+          throw error;
+        }
+        // Loads of one key share the same loader type, so the cause is of the loader's exception type
+        throw (E) cause;
+      }
+    }
+    executedCounter.increment();
+    try {
+      V value = loader.load();
+      future.complete(value);
+      return value;
+    }
+    catch (Throwable e) {
+      future.completeExceptionally(e);
+      throw e;
+    }
+    finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  /**
+   * Loader of a value.
+   *
+   * @param <V> the value type
+   * @param <E> the checked exception type
+   */
+  @FunctionalInterface
+  public interface Loader<V, E extends Exception> {
+
+    /**
+     * Loads the value.
+     *
+     * @return the value
+     * @throws E on errors loading the value
+     */
+    V load() throws E;
+  }
+
+}
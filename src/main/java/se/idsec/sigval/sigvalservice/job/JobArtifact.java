@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.job;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The artifact produced by a completed validation job.
+ */
+@Getter
+@AllArgsConstructor
+public class JobArtifact {
+
+  /** The content of the artifact */
+  private final byte[] content;
+
+  /** The content type of the artifact */
+  private final String contentType;
+
+  /** The file name of the artifact, or null if the artifact has no file name */
+  private final String fileName;
+
+}
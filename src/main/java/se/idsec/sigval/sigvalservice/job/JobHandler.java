@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.job;
+
+import java.util.Map;
+
+/**
+ * Processes the document of a validation job of a particular {@link JobType}.
+ */
+@FunctionalInterface
+public interface JobHandler {
+
+  /**
+   * Processes the document of a job.
+   *
+   * @param document the bytes of the signed document
+   * @param parameters the request parameters of the job
+   * @return the artifact produced by the job
+   * @throws Exception on errors processing the document
+   */
+  JobArtifact process(byte[] document, Map<String, String> parameters) throws Exception;
+
+}
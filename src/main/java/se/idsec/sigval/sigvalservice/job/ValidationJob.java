@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.job;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import se.idsec.sigval.sigvalservice.validation.SpooledDocument;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An asynchronous validation job. The job status is returned to clients polling the job and is persisted as the job
+ * metadata when jobs are persisted to disk.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ValidationJob {
+
+  private String id;
+  private JobType type;
+  private Map<String, String> parameters;
+  private volatile JobStatus status;
+  private long created;
+  private volatile Long completed;
+  private volatile String errorMessage;
+  private volatile String resultContentType;
+  private volatile String resultFileName;
+
+  /** The document to process when the document is not persisted. Closed when the job has completed */
+  @JsonIgnore private volatile SpooledDocument document;
+
+  /** The produced artifact content when results are held in memory */
+  @JsonIgnore private volatile byte[] result;
+
+  /** Completed when the job is done or failed */
+  @JsonIgnore private final CompletableFuture<ValidationJob> completion = new CompletableFuture<>();
+
+  /**
+   * Tests whether the job has completed.
+   *
+   * @return true if the job is done or failed
+   */
+  @JsonIgnore
+  public boolean isFinished() {
+    return status == JobStatus.done || status == JobStatus.failed;
+  }
+
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import se.idsec.sigval.sigvalservice.result.ResultPageDataGenerator;
+import se.idsec.sigval.sigvalservice.validation.SVTIssuanceService;
+import se.idsec.sigval.sigvalservice.validation.SignedDocumentValidationService;
+import se.idsec.sigval.sigvalservice.validation.SpooledDocument;
+import se.idsec.sigval.sigvalservice.validation.SvtEnhancedDocument;
+import se.idsec.sigval.sigvalservice.validation.ValidationExecutor;
+import se.idsec.sigval.sigvalservice.validation.ValidationReportService;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Queue and worker pool for asynchronous validation jobs.
+ *
+ * <p>
+ * Jobs are processed by a bounded pool of workers using the {@link JobHandler} of the type of the job. Results are
+ * retained until the configured time to live has passed after the job completed. If a persist folder is configured,
+ * the document and metadata of each job, and the produced artifact, are stored on disk, and the document of a queued
+ * job is only read from disk when the job is processed. Jobs that had not completed when the service was stopped are
+ * then queued again when the service is started. Without a persist folder, the spooled document of a queued job is
+ * held until the job has completed.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@Component
+public class ValidationJobService implements DisposableBean {
+
+  private static final Pattern JOB_ID_PATTERN = Pattern.compile("[0-9a-f\\-]{36}");
+
+  private final Map<String, ValidationJob> jobs = new ConcurrentHashMap<>();
+  private final Map<JobType, JobHandler> jobHandlers = new EnumMap<>(JobType.class);
+  private final ExecutorService executor;
+  private final File persistFolder;
+  private final long resultTtlMillis;
+  private final ObjectMapper objectMapper;
+
+  @Autowired
+  public ValidationJobService(
+    @Value("${sigval-service.jobs.workers:2}") int workers,
+    @Value("${sigval-service.jobs.max-queued:100}") int maxQueued,
+    @Value("${sigval-service.jobs.persist-folder:#{null}}") String persistFolder,
+    @Value("${sigval-service.jobs.result-ttl-seconds:3600}") long resultTtlSeconds,
+    SignedDocumentValidationService signedDocumentValidationService, ResultPageDataGenerator resultPageDataGenerator,
+    ValidationReportService validationReportService, SVTIssuanceService svtIssuanceService,
+    ObjectMapper objectMapper, MeterRegistry meterRegistry) throws IOException {
+
+    this.objectMapper = objectMapper;
+    this.resultTtlMillis = resultTtlSeconds * 1000;
+    this.persistFolder = persistFolder == null ? null : new File(persistFolder);
+    if (this.persistFolder != null) {
+      Files.createDirectories(this.persistFolder.toPath());
+    }
+
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(Math.max(1, maxQueued)), runnable -> {
+      // Job workers are bounded by themselves and validate their documents directly, not on the validation pool
+      Thread thread = new Thread(() -> ValidationExecutor.runInline(runnable),
+        "validation-job-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, "sigval.jobs");
+    Gauge.builder("sigval.jobs.retained", jobs, Map::size).register(meterRegistry);
+    log.info("Validation jobs - workers: {}, max queued: {}, persist folder: {}, result TTL (seconds): {}",
+      workers, maxQueued, persistFolder, resultTtlSeconds);
+
+    jobHandlers.put(JobType.validate, (document, parameters) -> {
+      SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult =
+        signedDocumentValidationService.validate(document);
+      byte[] result = objectMapper.writeValueAsBytes(resultPageDataGenerator.getResultPageData(validationResult,
+        parameters.get("name"), null, parameters.getOrDefault("lang", "en")));
+      return new JobArtifact(result, MediaType.APPLICATION_JSON_VALUE, null);
+    });
+    jobHandlers.put(JobType.report, (document, parameters) -> new JobArtifact(
+      validationReportService.getValidationReport(document, null,
+        validationReportService.getReportOptions(parameters.get("certpath"), parameters.get("include-docs"))),
+      MediaType.TEXT_XML_VALUE, null));
+    jobHandlers.put(JobType.svt, (document, parameters) -> {
+      SvtEnhancedDocument svtEnhancedDocument =
+        svtIssuanceService.issueSvt(document, parameters.get("name"), parameters.get("replace"));
+      return new JobArtifact(svtEnhancedDocument.getDocument(), svtEnhancedDocument.getMediaType().toString(),
+        svtEnhancedDocument.getFileName());
+    });
+  }
+
+  /**
+   * Submits a job to the job queue. The job takes over the spooled document, which is closed when the job has
+   * completed, when the document has been stored in the persist folder, or when the job can not be queued.
+   *
+   * @param type job type
+   * @param document the signed document
+   * @param parameters the request parameters of the job
+   * @return the queued job
+   * @throws IOException on errors persisting the job
+   * @throws RejectedExecutionException if the job queue is full
+   */
+  public ValidationJob submit(JobType type, SpooledDocument document, Map<String, String> parameters)
+    throws IOException, RejectedExecutionException {
+    ValidationJob job = new ValidationJob();
+    job.setId(UUID.randomUUID().toString());
+    job.setType(type);
+    job.setParameters(parameters);
+    job.setStatus(JobStatus.queued);
+    job.setCreated(System.currentTimeMillis());
+
+    if (persistFolder != null) {
+      // The persisted document is read when the job is processed
+      try (document) {
+        document.writeTo(getFile(job.getId(), "doc").toPath());
+        persist(job);
+      }
+      catch (IOException e) {
+        remove(job.getId());
+        throw e;
+      }
+    }
+    else {
+      job.setDocument(document);
+    }
+    jobs.put(job.getId(), job);
+    try {
+      executor.execute(() -> run(job));
+    }
+    catch (RejectedExecutionException e) {
+      log.warn("Validation job rejected - job queue is full");
+      if (persistFolder == null) {
+        document.close();
+      }
+      remove(job.getId());
+      throw e;
+    }
+    log.debug("Queued {} job {}", type, job.getId());
+    return job;
+  }
+
+  /**
+   * Gets a job.
+   *
+   * @param id job id
+   * @return the job or null if no such job is retained
+   */
+  public ValidationJob getJob(String id) {
+    return id == null ? null : jobs.get(id);
+  }
+
+  /**
+   * Gets the artifact content produced by a job that is done.
+   *
+   * @param job the job
+   * @return artifact content
+   * @throws IOException on errors reading a persisted artifact
+   */
+  public byte[] getResult(ValidationJob job) throws IOException {
+    byte[] result = job.getResult();
+    if (result != null) {
+      return result;
+    }
+    if (persistFolder == null) {
+      throw new IOException("No result available for job " + job.getId());
+    }
+    return Files.readAllBytes(getFile(job.getId(), "result").toPath());
+  }
+
+  /**
+   * Removes jobs that completed longer ago than the result time to live.
+   */
+  public void removeExpiredJobs() {
+    long expiry = System.currentTimeMillis() - resultTtlMillis;
+    jobs.values().stream()
+      .filter(job -> job.getCompleted() != null && job.getCompleted() < expiry)
+      .map(ValidationJob::getId)
+      .toList()
+      .forEach(id -> {
+        log.debug("Removing expired validation job {}", id);
+        remove(id);
+      });
+  }
+
+  /**
+   * Loads the jobs persisted in the persist folder, queuing jobs that had not completed.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadPersistedJobs() {
+    if (persistFolder == null) {
+      return;
+    }
+    File[] metadataFiles = persistFolder.listFiles((dir, name) -> name.endsWith(".json"));
+    if (metadataFiles == null) {
+      return;
+    }
+    for (File metadataFile : metadataFiles) {
+      try {
+        ValidationJob job = objectMapper.readValue(metadataFile, ValidationJob.class);
+        if (!JOB_ID_PATTERN.matcher(job.getId()).matches()) {
+          continue;
+        }
+        jobs.put(job.getId(), job);
+        if (job.isFinished()) {
+          job.getCompletion().complete(job);
+          continue;
+        }
+        job.setStatus(JobStatus.queued);
+        try {
+          executor.execute(() -> run(job));
+        }
+        catch (RejectedExecutionException e) {
+          // The job fails and expires like other completed jobs
+          log.warn("Persisted {} job {} rejected - job queue is full", job.getType(), job.getId());
+          job.setErrorMessage("Job queue is full");
+          job.setStatus(JobStatus.failed);
+          complete(job);
+          continue;
+        }
+        log.info("Queued persisted {} job {}", job.getType(), job.getId());
+      }
+      catch (Exception e) {
+        log.warn("Failed to load persisted validation job from {}: {}", metadataFile.getName(), e.getMessage());
+      }
+    }
+  }
+
+  private void run(ValidationJob job) {
+    job.setStatus(JobStatus.running);
+    try {
+      JobHandler jobHandler = jobHandlers.get(job.getType());
+      if (jobHandler == null) {
+        throw new IllegalStateException("No handler available for job type " + job.getType());
+      }
+      SpooledDocument document = job.getDocument();
+      byte[] documentBytes = document != null
+        ? document.getDocumentBytes()
+        : Files.readAllBytes(getFile(job.getId(), "doc").toPath());
+      JobArtifact artifact = jobHandler.process(documentBytes, job.getParameters());
+      if (persistFolder != null) {
+        Files.write(getFile(job.getId(), "result").toPath(), artifact.getContent());
+      }
+      else {
+        job.setResult(artifact.getContent());
+      }
+      job.setResultContentType(artifact.getContentType());
+      job.setResultFileName(artifact.getFileName());
+      job.setStatus(JobStatus.done);
+    }
+    catch (Exception e) {
+      log.debug("Validation job {} failed: {}", job.getId(), e.getMessage());
+      job.setErrorMessage(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+      job.setStatus(JobStatus.failed);
+    }
+    complete(job);
+  }
+
+  private void complete(ValidationJob job) {
+    job.setCompleted(System.currentTimeMillis());
+    SpooledDocument document = job.getDocument();
+    if (document != null) {
+      document.close();
+      job.setDocument(null);
+    }
+    if (persistFolder != null) {
+      try {
+        persist(job);
+        Files.deleteIfExists(getFile(job.getId(), "doc").toPath());
+      }
+      catch (IOException e) {
+        log.warn("Failed to persist validation job {}: {}", job.getId(), e.getMessage());
+      }
+    }
+    job.getCompletion().complete(job);
+  }
+
+  private void persist(ValidationJob job) throws IOException {
+    File metadataFile = getFile(job.getId(), "json");
+    File tempFile = getFile(job.getId(), "json.tmp");
+    objectMapper.writeValue(tempFile, job);
+    Files.move(tempFile.toPath(), metadataFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void remove(String id) {
+    jobs.remove(id);
+    if (persistFolder != null) {
+      for (String suffix : new String[] { "json", "doc", "result" }) {
+        try {
+          Files.deleteIfExists(getFile(id, suffix).toPath());
+        }
+        catch (IOException e) {
+          log.warn("Failed to delete persisted validation job file {}.{}: {}", id, suffix, e.getMessage());
+        }
+      }
+    }
+  }
+
+  private File getFile(String id, String suffix) {
+    return new File(persistFolder, id + "." + suffix);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+}
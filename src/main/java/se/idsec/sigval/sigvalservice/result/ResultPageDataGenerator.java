@@ -17,7 +17,6 @@
 package se.idsec.sigval.sigvalservice.result;
 
 import lombok.extern.slf4j.Slf4j;
-import org.bouncycastle.cert.X509CertificateHolder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -35,12 +34,13 @@ import se.swedenconnect.sigval.pdf.data.ExtendedPdfSigValResult;
 import se.idsec.sigval.sigvalservice.configuration.ui.UIText;
 import se.idsec.sigval.sigvalservice.configuration.ui.UIUtils;
 import se.idsec.sigval.sigvalservice.result.cert.CertUtils;
+import se.idsec.sigval.sigvalservice.result.cert.ParsedCertificate;
+import se.idsec.sigval.sigvalservice.result.cert.ParsedCertificateCache;
 import se.idsec.sigval.sigvalservice.result.cert.SubjectDnAttribute;
 import se.idsec.sigval.sigvalservice.result.data.*;
 import se.swedenconnect.sigval.svt.claims.PolicyValidationClaims;
 import se.swedenconnect.sigval.svt.claims.ValidationConclusion;
 import se.swedenconnect.sigval.xml.data.ExtendedXmlSigvalResult;
-import se.swedenconnect.cert.extensions.AuthnContext;
 
 import java.io.IOException;
 import java.security.cert.X509Certificate;
@@ -60,13 +60,17 @@ public class ResultPageDataGenerator {
 
   private final UIText uiText;
 
+  private final ParsedCertificateCache parsedCertificateCache;
+
   @Autowired
   public ResultPageDataGenerator(UIText uiText,
     @Value("${sigval-service.ui.hide-attribute:}") String[] attributeDisplayBlacklistArray,
-    @Value("${sigval-service.ui.hide-loa-uri:}") String[] loaAcrBlacklistArray) {
+    @Value("${sigval-service.ui.hide-loa-uri:}") String[] loaAcrBlacklistArray,
+    ParsedCertificateCache parsedCertificateCache) {
     this.attributeDisplayBlacklist = Arrays.asList(attributeDisplayBlacklistArray);
     this.loaAcrBlacklist = Arrays.asList(loaAcrBlacklistArray);
     this.uiText = uiText;
+    this.parsedCertificateCache = parsedCertificateCache;
   }
 
   public ResultPageData getResultPageData(SignedDocumentValidationResult<? extends ExtendedSigValResult> sigValResult, String documentName, String documentType, String lang) {
@@ -95,32 +99,14 @@ public class ResultPageDataGenerator {
     resultPageData.setResultSignatureDataList(signatureData);
 
     boolean oneValidSigCoversAlldata = signatureData.stream()
-      .filter(resultSignatureData -> resultSignatureData.getStatus().equals(SigValidStatus.ok))
+      .filter(resultSignatureData -> SigValidStatus.ok.equals(resultSignatureData.getStatus()))
       .anyMatch(ResultSignatureData::isCoversAllData);
     List<ResultSignatureData> validSignatures = signatureData.stream()
-      .filter(resultSignatureData -> resultSignatureData.getStatus().equals(SigValidStatus.ok))
+      .filter(resultSignatureData -> SigValidStatus.ok.equals(resultSignatureData.getStatus()))
       .toList();
     int validSigCount = validSignatures.size();
     resultPageData.setValidSignatures(validSigCount);
-    if (validSigCount > 0 && oneValidSigCoversAlldata) {
-      if (validSigCount == signatureValidationResults.size()) {
-        resultPageData.setStatus(DocValidStatus.ok);
-      }
-      else {
-        resultPageData.setStatus(DocValidStatus.someinvalid);
-      }
-    }
-    else {
-      // No valid signature, or no valid signature coveres doc. Determine which
-      if (validSigCount > 0) {
-        // There is a valid signature, but no valid signature covers the whole document
-        resultPageData.setStatus(DocValidStatus.novalidcoversdoc);
-      }
-      else {
-        // There is no valid signature
-        resultPageData.setStatus(DocValidStatus.invalid);
-      }
-    }
+    resultPageData.setStatus(getDocumentStatus(signatureValidationResults.size(), validSigCount, oneValidSigCoversAlldata));
 
     return resultPageData;
   }
@@ -133,22 +119,10 @@ public class ResultPageDataGenerator {
     builder.svt(signatureValResult.getSvtJWT() != null);
     builder.signedDataAvailable(signatureValResult.getSignedDocument() != null);
     if (signatureValResult.getException() != null) builder.errorMessage(signatureValResult.getException().getMessage());
-    SignatureValidationResult.Status status = signatureValResult.getStatus();
-    switch (status) {
-
-    case SUCCESS:
-      builder.status(SigValidStatus.ok);
+    SigValidStatus status = getSignatureStatus(signatureValResult.getStatus());
+    builder.status(status);
+    if (SigValidStatus.ok.equals(status)) {
       builder.validationDateLimit(getValidationDateLimit(signatureValResult));
-      break;
-    case INTERDETERMINE:
-    case ERROR_NOT_TRUSTED:
-      builder.status(SigValidStatus.incomplete);
-      break;
-    case ERROR_INVALID_SIGNATURE:
-    case ERROR_SIGNER_INVALID:
-    case ERROR_SIGNER_NOT_ACCEPTED:
-    case ERROR_BAD_FORMAT:
-      builder.status(SigValidStatus.sigerror);
     }
 
     //Set timestamp
@@ -167,6 +141,130 @@ public class ResultPageDataGenerator {
     return builder.build();
   }
 
+  /**
+   * Gets the verdict of a signature validation result without generating any result page data.
+   *
+   * <p>
+   * Without a policy, the verdict holds the same document status as the result page. With a policy, the verdict is
+   * decided by the policy: {@link VerdictPolicy#anyValidCovering} requires one valid signature that covers the whole
+   * document, and {@link VerdictPolicy#allValid} requires all signatures to be valid and at least one of them to cover
+   * the whole document. The deciding signature is the first valid signature covering the whole document, except when
+   * the {@link VerdictPolicy#allValid} policy fails on a signature that is not valid.
+   * </p>
+   *
+   * @param sigValResult signature validation result
+   * @param policy the policy deciding whether the document is valid, or null to evaluate all signatures
+   * @return verdict
+   */
+  public ValidationVerdict getVerdict(SignedDocumentValidationResult<? extends ExtendedSigValResult> sigValResult,
+    VerdictPolicy policy) {
+
+    List<? extends ExtendedSigValResult> signatureValidationResults = sigValResult.getSignatureValidationResults() == null
+      ? Collections.emptyList()
+      : sigValResult.getSignatureValidationResults();
+    ValidationVerdict.ValidationVerdictBuilder builder = ValidationVerdict.builder()
+      .policy(policy)
+      .numberOfSignatures(signatureValidationResults.size());
+
+    if (policy == null) {
+      int validSigCount = 0;
+      boolean oneValidSigCoversAlldata = false;
+      for (ExtendedSigValResult signatureValResult : signatureValidationResults) {
+        if (SigValidStatus.ok.equals(getSignatureStatus(signatureValResult.getStatus()))) {
+          validSigCount++;
+          oneValidSigCoversAlldata |= signatureValResult.isCoversDocument();
+        }
+      }
+      DocValidStatus status = getDocumentStatus(signatureValidationResults.size(), validSigCount,
+        oneValidSigCoversAlldata);
+      return builder
+        .valid(DocValidStatus.ok.equals(status))
+        .status(status)
+        .validSignatures(validSigCount)
+        .build();
+    }
+
+    Integer firstValidCovering = null;
+    Integer firstNotValid = null;
+    for (int i = 0; i < signatureValidationResults.size(); i++) {
+      ExtendedSigValResult signatureValResult = signatureValidationResults.get(i);
+      boolean validSignature = SigValidStatus.ok.equals(getSignatureStatus(signatureValResult.getStatus()));
+      if (validSignature && signatureValResult.isCoversDocument() && firstValidCovering == null) {
+        firstValidCovering = i;
+      }
+      if (!validSignature && firstNotValid == null) {
+        firstNotValid = i;
+      }
+    }
+    if (policy == VerdictPolicy.anyValidCovering) {
+      return builder
+        .valid(firstValidCovering != null)
+        .decidingSignature(firstValidCovering)
+        .build();
+    }
+    // All signatures must be valid, and at least one of them must cover the whole document
+    if (firstNotValid != null) {
+      return builder.valid(false).decidingSignature(firstNotValid).build();
+    }
+    return builder
+      .valid(firstValidCovering != null)
+      .decidingSignature(firstValidCovering)
+      .build();
+  }
+
+  /**
+   * Maps the status of a signature validation result to the signature status of the result page.
+   *
+   * @param status signature validation result status
+   * @return signature status
+   */
+  public static SigValidStatus getSignatureStatus(SignatureValidationResult.Status status) {
+    if (status == null) {
+      return null;
+    }
+    switch (status) {
+    case SUCCESS:
+      return SigValidStatus.ok;
+    case INTERDETERMINE:
+    case ERROR_NOT_TRUSTED:
+      return SigValidStatus.incomplete;
+    case ERROR_INVALID_SIGNATURE:
+    case ERROR_SIGNER_INVALID:
+    case ERROR_SIGNER_NOT_ACCEPTED:
+    case ERROR_BAD_FORMAT:
+      return SigValidStatus.sigerror;
+    }
+    return null;
+  }
+
+  /**
+   * Gets the status of a signed document.
+   *
+   * @param signatureCount the number of signatures of the document
+   * @param validSigCount the number of valid signatures
+   * @param oneValidSigCoversAlldata whether at least one valid signature covers the whole document
+   * @return document status
+   */
+  public static DocValidStatus getDocumentStatus(int signatureCount, int validSigCount,
+    boolean oneValidSigCoversAlldata) {
+    if (signatureCount == 0) {
+      return DocValidStatus.unsigned;
+    }
+    if (validSigCount > 0 && oneValidSigCoversAlldata) {
+      if (validSigCount == signatureCount) {
+        return DocValidStatus.ok;
+      }
+      return DocValidStatus.someinvalid;
+    }
+    // No valid signature, or no valid signature coveres doc. Determine which
+    if (validSigCount > 0) {
+      // There is a valid signature, but no valid signature covers the whole document
+      return DocValidStatus.novalidcoversdoc;
+    }
+    // There is no valid signature
+    return DocValidStatus.invalid;
+  }
+
   private String getValidationDateLimit(ExtendedSigValResult signatureValResult) {
     try {
       if (signatureValResult.getSvtJWT() != null){
@@ -250,10 +348,17 @@ public class ResultPageDataGenerator {
   }
 
   private void setSignerCertData(X509Certificate signerCertificate, ResultSignatureData.ResultSignatureDataBuilder builder, String lang) {
+    ParsedCertificate parsedCertificate;
+    try {
+      parsedCertificate = parsedCertificateCache.get(signerCertificate);
+    }
+    catch (Exception ignored) {
+      // No certificate data is available for a missing or unencodable signer certificate
+      builder.signerAttribute(new ArrayList<>());
+      return;
+    }
+    SAMLAuthContext authContextExtData = parsedCertificate.getAuthContext();
     try {
-      X509CertificateHolder certificateHolder = new X509CertificateHolder(signerCertificate.getEncoded());
-      AuthnContext authnContext = AuthnContext.fromExtensions(certificateHolder.getExtensions());
-      SAMLAuthContext authContextExtData = authnContext.getStatementInfoList().get(0);
       AuthContextInfo authContextInfo = authContextExtData.getAuthContextInfo();
       builder
         .assertionRef(authContextInfo.getAssertionRef())
@@ -261,15 +366,17 @@ public class ResultPageDataGenerator {
         .loa(getDisplayLoa(authContextInfo.getAuthnContextClassRef(), loaAcrBlacklist))
         .signingTime(dateFormat.format(Date.from(authContextInfo.getAuthenticationInstant())))
         .serviceProvider(authContextInfo.getServiceID());
-      List<DisplayAttribute> displayAttributes = getAttrsFromAuthContextExt(authContextExtData, lang, signerCertificate);
-      builder.signerAttribute(displayAttributes);
+      List<DisplayAttribute> displayAttributes = parsedCertificate.getDisplayAttributes(lang,
+        displayLang -> getAttrsFromAuthContextExt(authContextExtData, displayLang, signerCertificate));
+      builder.signerAttribute(new ArrayList<>(displayAttributes));
       return;
     }
     catch (Exception ignored) {
       // This just means that the signing certificate did not contain any auth context extension
     }
-    List<DisplayAttribute> displayAttributes = getAttrsFromSubjectField(signerCertificate, lang);
-    builder.signerAttribute(displayAttributes);
+    List<DisplayAttribute> displayAttributes = parsedCertificate.getDisplayAttributes(lang,
+      displayLang -> getAttrsFromSubjectField(parsedCertificate.getSubjectAttributes(), displayLang));
+    builder.signerAttribute(new ArrayList<>(displayAttributes));
   }
 
   private String getDisplayLoa(String authnContextClassRef, List<String> loaAcrBlacklist) {
@@ -336,24 +443,19 @@ public class ResultPageDataGenerator {
     return new StringBuilder().append(valueObject).toString();
   }
 
-  private List<DisplayAttribute> getAttrsFromSubjectField(X509Certificate signCert, String lang) {
-    if (signCert == null) return new ArrayList<>();
-    try {
-      Map<SubjectDnAttribute, String> subjectAttributes = CertUtils.getSubjectAttributes(signCert);
-      return subjectAttributes.keySet().stream()
-        .filter(subjectDnAttribute -> !attributeDisplayBlacklist.contains(subjectDnAttribute.getOid()))
-        .map(subjectDnAttribute -> {
-          String name = subjectDnAttribute.equals(SubjectDnAttribute.unknown)
-            ? subjectDnAttribute.getOid()
-            : uiText.getBundle(UIText.UiBundle.x509Attr, lang).getString(subjectDnAttribute.name());
-          return new DisplayAttribute(name,subjectAttributes.get(subjectDnAttribute), subjectDnAttribute.getOrder());
-        })
-        .sorted(Comparator.comparingInt(DisplayAttribute::getOrder))
-        .collect(Collectors.toList());
-    } catch (IOException ex) {
-      log.error("Unable to parse subject name from certificate", ex);
-      return new ArrayList<>();
-    }
+  private List<DisplayAttribute> getAttrsFromSubjectField(Map<SubjectDnAttribute, String> subjectAttributes,
+    String lang) {
+    if (subjectAttributes == null) return new ArrayList<>();
+    return subjectAttributes.keySet().stream()
+      .filter(subjectDnAttribute -> !attributeDisplayBlacklist.contains(subjectDnAttribute.getOid()))
+      .map(subjectDnAttribute -> {
+        String name = subjectDnAttribute.equals(SubjectDnAttribute.unknown)
+          ? subjectDnAttribute.getOid()
+          : uiText.getBundle(UIText.UiBundle.x509Attr, lang).getString(subjectDnAttribute.name());
+        return new DisplayAttribute(name,subjectAttributes.get(subjectDnAttribute), subjectDnAttribute.getOrder());
+      })
+      .sorted(Comparator.comparingInt(DisplayAttribute::getOrder))
+      .collect(Collectors.toList());
   }
 
   private static ResultSignatureData getPdfSigResult(ExtendedPdfSigValResult signatureValResult,
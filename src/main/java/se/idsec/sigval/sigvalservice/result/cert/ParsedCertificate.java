@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.result.cert;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.cert.X509CertificateHolder;
+import se.idsec.sigval.sigvalservice.result.DisplayAttribute;
+import se.swedenconnect.cert.extensions.AuthnContext;
+import se.swedenconnect.cert.extensions.data.saci.SAMLAuthContext;
+
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A signer certificate together with the data derived from it for result pages.
+ *
+ * <p>
+ * The authentication context extension and the subject attributes are parsed once when the certificate is parsed. The
+ * display attributes of the certificate are computed once per language by the result page data generator and held by
+ * this object, so that certificates seen before are not parsed again when result pages are generated.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class ParsedCertificate {
+
+  /** The certificate */
+  @Getter
+  private final X509Certificate certificate;
+
+  /** The first statement of the authentication context extension, or null if the certificate has none */
+  @Getter
+  private final SAMLAuthContext authContext;
+
+  /** The recognized subject DN attributes, or null if the subject name could not be parsed */
+  @Getter
+  private final Map<SubjectDnAttribute, String> subjectAttributes;
+
+  private final Map<String, List<DisplayAttribute>> displayAttributes = new ConcurrentHashMap<>();
+
+  /**
+   * Parses a certificate.
+   *
+   * @param certificate the certificate
+   * @param encoded the DER encoding of the certificate
+   */
+  public ParsedCertificate(X509Certificate certificate, byte[] encoded) {
+    this.certificate = certificate;
+    this.authContext = parseAuthContext(encoded);
+    this.subjectAttributes = parseSubjectAttributes(certificate);
+  }
+
+  /**
+   * Gets the display attributes of the certificate in a language, computing them on first use.
+   *
+   * @param lang the language of the attribute names
+   * @param displayAttributesFunction the function computing the display attributes of a language
+   * @return unmodifiable list of display attributes
+   */
+  public List<DisplayAttribute> getDisplayAttributes(String lang,
+    Function<String, List<DisplayAttribute>> displayAttributesFunction) {
+    return displayAttributes.computeIfAbsent(lang == null ? "" : lang,
+      key -> Collections.unmodifiableList(displayAttributesFunction.apply(lang)));
+  }
+
+  private static SAMLAuthContext parseAuthContext(byte[] encoded) {
+    try {
+      AuthnContext authnContext = AuthnContext.fromExtensions(new X509CertificateHolder(encoded).getExtensions());
+      return authnContext.getStatementInfoList().get(0);
+    }
+    catch (Exception ignored) {
+      // This just means that the certificate did not contain any auth context extension
+      return null;
+    }
+  }
+
+  private static Map<SubjectDnAttribute, String> parseSubjectAttributes(X509Certificate certificate) {
+    try {
+      return Collections.unmodifiableMap(CertUtils.getSubjectAttributes(certificate));
+    }
+    catch (IOException ex) {
+      log.error("Unable to parse subject name from certificate", ex);
+      return null;
+    }
+  }
+
+}
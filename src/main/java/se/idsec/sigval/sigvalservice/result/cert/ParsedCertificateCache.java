@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.result.cert;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of parsed signer certificates used when generating result pages.
+ *
+ * <p>
+ * Certificates are keyed by the SHA-256 hash of their DER encoding, so that the same certificate decoded from different
+ * documents is parsed only once. The least recently used certificates are evicted when the configured max number of
+ * entries is exceeded.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@Component
+public class ParsedCertificateCache {
+
+  private final int maxEntries;
+  private final Map<String, ParsedCertificate> cache;
+
+  private final Counter hitCounter;
+  private final Counter missCounter;
+
+  @Autowired
+  public ParsedCertificateCache(
+    @Value("${sigval-service.ui.cert-cache.max-entries:1000}") int maxEntries,
+    MeterRegistry meterRegistry) {
+    this.maxEntries = maxEntries;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ParsedCertificate> eldest) {
+        return size() > ParsedCertificateCache.this.maxEntries;
+      }
+    };
+    this.hitCounter = meterRegistry.counter("sigval.certificate.parse-cache.requests", "result", "hit");
+    this.missCounter = meterRegistry.counter("sigval.certificate.parse-cache.requests", "result", "miss");
+    Gauge.builder("sigval.certificate.parse-cache.entries", this, ParsedCertificateCache::getEntryCount)
+      .register(meterRegistry);
+    log.info("Parsed certificate cache max entries: {}", maxEntries);
+  }
+
+  /**
+   * Gets the parsed certificate, parsing the certificate if it is not cached.
+   *
+   * @param certificate the certificate
+   * @return the parsed certificate
+   * @throws CertificateEncodingException if the certificate can not be encoded
+   */
+  public ParsedCertificate get(X509Certificate certificate) throws CertificateEncodingException {
+    byte[] encoded = certificate.getEncoded();
+    if (maxEntries <= 0) {
+      return new ParsedCertificate(certificate, encoded);
+    }
+    String key = getKey(encoded);
+    ParsedCertificate parsedCertificate;
+    synchronized (cache) {
+      parsedCertificate = cache.get(key);
+    }
+    if (parsedCertificate != null) {
+      hitCounter.increment();
+      return parsedCertificate;
+    }
+    missCounter.increment();
+    parsedCertificate = new ParsedCertificate(certificate, encoded);
+    synchronized (cache) {
+      ParsedCertificate cached = cache.putIfAbsent(key, parsedCertificate);
+      return cached == null ? parsedCertificate : cached;
+    }
+  }
+
+  int getEntryCount() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  private static String getKey(byte[] encoded) {
+    try {
+      return Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(encoded));
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+}
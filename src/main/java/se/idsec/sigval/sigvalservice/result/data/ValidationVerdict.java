@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.result.data;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Verdict of a verdict only validation of a signed document.
+ *
+ * <p>
+ * When a policy is requested, the verdict is decided by the policy and the signature that decided it is identified,
+ * while the document status and the number of valid signatures are not included.
+ * </p>
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ValidationVerdict {
+
+  private boolean valid;
+  private VerdictPolicy policy;
+  private DocValidStatus status;
+  private int numberOfSignatures;
+  private Integer validSignatures;
+  /** The index of the signature that decided the verdict of a policy */
+  private Integer decidingSignature;
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.result.data;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Policies for deciding whether a signed document is valid in verdict only validation.
+ */
+@AllArgsConstructor
+@Getter
+public enum VerdictPolicy {
+
+  /** At least one valid signature covers the whole document */
+  anyValidCovering("any-valid-covering"),
+  /** All signatures are valid and at least one of them covers the whole document */
+  allValid("all-valid");
+
+  @JsonValue
+  private final String id;
+
+  /**
+   * Gets the policy with the given id.
+   *
+   * @param id policy id
+   * @return policy
+   * @throws IllegalArgumentException if there is no policy with the given id
+   */
+  public static VerdictPolicy getPolicy(String id) throws IllegalArgumentException {
+    for (VerdictPolicy policy : values()) {
+      if (policy.getId().equalsIgnoreCase(id)) {
+        return policy;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported verdict policy: " + id);
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor for batch validation of signed documents.
+ *
+ * <p>
+ * Batch validations run on a fixed number of threads, separate from the threads serving interactive requests. The
+ * number of document bytes submitted but not yet validated is limited across all batches. A batch that submits a
+ * document when the limit is reached is blocked until earlier documents have been validated, so a large batch is
+ * read no faster than it can be validated. The number of documents submitted but not yet validated is limited in the
+ * same way, so the queue of the batch threads is bounded.
+ * </p>
+ *
+ * <p>
+ * Batch threads validate their documents directly instead of on the validation pool, see
+ * {@link ValidationExecutor#runInline(Runnable)}.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@Component
+public class BatchValidationExecutor implements DisposableBean {
+
+  private final ExecutorService executor;
+  private final Semaphore inFlightBytes;
+  private final int maxInFlightBytes;
+  private final Semaphore inFlightDocuments;
+
+  @Autowired
+  public BatchValidationExecutor(
+    @Value("${sigval-service.batch.parallelism:0}") int parallelism,
+    @Value("${sigval-service.batch.max-in-flight-size:32MB}") DataSize maxInFlightSize,
+    @Value("${sigval-service.batch.max-queued:100}") int maxQueued,
+    MeterRegistry meterRegistry) {
+
+    int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    this.maxInFlightBytes = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxInFlightSize.toBytes()));
+    this.inFlightBytes = new Semaphore(maxInFlightBytes, true);
+    // A document holds its permit until its task is done, so the queue never holds more than threads + max queued
+    int maxInFlightDocuments = threads + Math.max(1, maxQueued);
+    this.inFlightDocuments = new Semaphore(maxInFlightDocuments, true);
+
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(maxInFlightDocuments), runnable -> {
+      Thread thread = new Thread(() -> ValidationExecutor.runInline(runnable),
+        "batch-validation-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, "sigval.batch.validation");
+    Gauge.builder("sigval.batch.validation.in-flight", this, BatchValidationExecutor::getInFlightBytes)
+      .baseUnit("bytes")
+      .register(meterRegistry);
+    log.info("Batch validation parallelism: {}, max in flight size: {}, max queued: {}", threads, maxInFlightSize,
+      Math.max(1, maxQueued));
+  }
+
+  /**
+   * Creates a completion service for the documents of one batch.
+   *
+   * @param <T> the type of result
+   * @return completion service running its tasks on the batch validation threads
+   */
+  public <T> CompletionService<T> newCompletionService() {
+    return new ExecutorCompletionService<>(executor);
+  }
+
+  /**
+   * Submits the validation of a document, waiting until the document fits within the max in flight size and the max
+   * number of queued documents.
+   *
+   * @param completionService completion service of the batch
+   * @param documentSize the size of the document in bytes
+   * @param task validation task
+   * @param <T> the type of result
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public <T> void submit(CompletionService<T> completionService, int documentSize, Callable<T> task)
+    throws InterruptedException {
+    int permits = Math.max(1, Math.min(documentSize, maxInFlightBytes));
+    inFlightDocuments.acquire();
+    try {
+      inFlightBytes.acquire(permits);
+    }
+    catch (InterruptedException e) {
+      inFlightDocuments.release();
+      throw e;
+    }
+    try {
+      completionService.submit(() -> {
+        try {
+          return task.call();
+        }
+        finally {
+          inFlightBytes.release(permits);
+          inFlightDocuments.release();
+        }
+      });
+    }
+    catch (RuntimeException e) {
+      inFlightBytes.release(permits);
+      inFlightDocuments.release();
+      throw e;
+    }
+  }
+
+  int getInFlightBytes() {
+    return maxInFlightBytes - inFlightBytes.availablePermits();
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.util.encoders.Hex;
+import se.idsec.sigval.sigvalservice.fetch.SingleFlight;
+import se.idsec.signservice.security.certificate.CertificateValidationResult;
+import se.idsec.signservice.security.certificate.CertificateValidator;
+import se.swedenconnect.sigval.cert.chain.ExtendedCertPathValidatorResult;
+import se.swedenconnect.sigval.cert.validity.ValidationStatus;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertPathBuilderException;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Certificate validator that caches successful certificate path validation results.
+ *
+ * <p>
+ * Results are keyed by the fingerprint of the validated certificate together with the certificates provided for
+ * building the path, and by a validation time bucket. A cached result is used until the end of its time bucket, or
+ * until the first certificate of the validated path expires if that is earlier. An instance is created each time the
+ * trust configuration is loaded, so results are never reused across trust configurations. Validations that fail, or
+ * that provide their own CRLs or trust anchors, are not cached.
+ * </p>
+ *
+ * <p>
+ * Only results where the validity of every certificate of the path was determined to be valid are cached. A result
+ * that was accepted without a definitive status, such as when no revocation information was available and the
+ * validator accepts that, is validated again on the next request so that it is not reused for the rest of a time
+ * bucket.
+ * </p>
+ *
+ * <p>
+ * Certificate path validation includes revocation checking, where OCSP responses and CRLs are fetched by the wrapped
+ * validator. When a cached result is used within the refresh-ahead period before the end of its time bucket, the
+ * certificate is validated again by the {@link CertificateResultRefresher} and the new result is cached for the next
+ * time bucket. The cached result is used until then, so certificates in frequent use are not validated on the
+ * requesting thread when a time bucket ends. Concurrent validations of a certificate that has no cached result share
+ * one validation, so that a burst of documents signed under a new CA results in one revocation check per certificate.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class CachingCertificateValidator implements CertificateValidator {
+
+  private final CertificateValidator certificateValidator;
+  private final long timeBucketMillis;
+  private final int maxEntries;
+  private final long refreshAheadMillis;
+  private final CertificateResultRefresher refresher;
+  private final String name;
+
+  private final LinkedHashMap<CacheKey, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private final SingleFlight<CacheKey, CertificateValidationResult> validations;
+
+  private final Counter hitCounter;
+  private final Counter missCounter;
+
+  /**
+   * Constructor.
+   *
+   * @param certificateValidator the wrapped certificate validator
+   * @param name the name of the validator used to tag metrics (e.g. sig, tsa or svt)
+   * @param timeBucketSeconds the length of the time bucket in which a result may be reused
+   * @param maxEntries the max number of cached results
+   * @param refreshAheadSeconds the period before the end of a time bucket in which used results are refreshed
+   * @param refresher the background refresher, or null to disable background refresh
+   * @param meterRegistry meter registry
+   */
+  public CachingCertificateValidator(CertificateValidator certificateValidator, String name, long timeBucketSeconds,
+    int maxEntries, long refreshAheadSeconds, CertificateResultRefresher refresher, MeterRegistry meterRegistry) {
+    this.certificateValidator = certificateValidator;
+    this.timeBucketMillis = Math.max(1, timeBucketSeconds) * 1000;
+    this.maxEntries = Math.max(1, maxEntries);
+    this.refreshAheadMillis = Math.min(Math.max(0, refreshAheadSeconds) * 1000, timeBucketMillis);
+    this.refresher = refresher;
+    this.name = name;
+    this.hitCounter = meterRegistry.counter("sigval.cert-validator.cache.requests", "validator", name,
+      "result", "hit");
+    this.missCounter = meterRegistry.counter("sigval.cert-validator.cache.requests", "validator", name,
+      "result", "miss");
+    this.validations = new SingleFlight<>("certificate", meterRegistry);
+  }
+
+  @Override
+  public CertificateValidationResult validate(X509Certificate subjectCertificate,
+    List<X509Certificate> additionalCertificates, List<X509CRL> crls)
+    throws CertPathBuilderException, CertPathValidatorException, GeneralSecurityException {
+
+    if (crls != null && !crls.isEmpty()) {
+      return certificateValidator.validate(subjectCertificate, additionalCertificates, crls);
+    }
+    long now = System.currentTimeMillis();
+    CacheKey key = new CacheKey(getFingerprint(subjectCertificate, additionalCertificates), now / timeBucketMillis);
+    CacheEntry cacheEntry;
+    synchronized (cache) {
+      cacheEntry = cache.get(key);
+      if (cacheEntry != null && cacheEntry.expires() <= now) {
+        cache.remove(key);
+        cacheEntry = null;
+      }
+    }
+    if (cacheEntry != null) {
+      hitCounter.increment();
+      if (refresher != null && cacheEntry.refreshable() && now >= cacheEntry.expires() - refreshAheadMillis
+        && cacheEntry.refreshing().compareAndSet(false, true)) {
+        refresh(key, subjectCertificate, additionalCertificates);
+      }
+      return cacheEntry.result();
+    }
+    missCounter.increment();
+    return validations.execute(key, () -> {
+      CertificateValidationResult result = certificateValidator.validate(subjectCertificate, additionalCertificates,
+        crls);
+      if (isDefinitivelyValid(result)) {
+        put(key, getCacheEntry(key.timeBucket(), subjectCertificate, result));
+      }
+      return result;
+    });
+  }
+
+  @Override
+  public CertificateValidationResult validate(X509Certificate subjectCertificate,
+    List<X509Certificate> additionalCertificates, List<X509CRL> crls, List<X509Certificate> trustAnchors)
+    throws CertPathBuilderException, CertPathValidatorException, GeneralSecurityException {
+    return certificateValidator.validate(subjectCertificate, additionalCertificates, crls, trustAnchors);
+  }
+
+  @Override
+  public boolean isRevocationCheckingActive() {
+    return certificateValidator.isRevocationCheckingActive();
+  }
+
+  @Override
+  public List<X509Certificate> getDefaultTrustAnchors() {
+    return certificateValidator.getDefaultTrustAnchors();
+  }
+
+  /**
+   * Gets the number of cached results.
+   *
+   * @return number of cached results
+   */
+  public int getEntryCount() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  private void refresh(CacheKey key, X509Certificate subjectCertificate, List<X509Certificate> additionalCertificates) {
+    CacheKey nextKey = new CacheKey(key.chainFingerprint(), key.timeBucket() + 1);
+    refresher.refresh(name, () -> {
+      CertificateValidationResult result = certificateValidator.validate(subjectCertificate, additionalCertificates,
+        null);
+      // A result that is not definitively valid is validated again on the requesting thread
+      if (isDefinitivelyValid(result)) {
+        put(nextKey, getCacheEntry(nextKey.timeBucket(), subjectCertificate, result));
+      }
+      return result;
+    });
+  }
+
+  private CacheEntry getCacheEntry(long timeBucket, X509Certificate subjectCertificate,
+    CertificateValidationResult result) {
+    long bucketEnd = (timeBucket + 1) * timeBucketMillis;
+    long pathExpiry = getPathExpiry(subjectCertificate, result);
+    // Results that expire with a certificate of the path are not refreshed
+    return new CacheEntry(result, Math.min(bucketEnd, pathExpiry), bucketEnd <= pathExpiry, new AtomicBoolean());
+  }
+
+  private void put(CacheKey key, CacheEntry cacheEntry) {
+    synchronized (cache) {
+      cache.put(key, cacheEntry);
+      Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = cache.entrySet().iterator();
+      while (cache.size() > maxEntries && iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Tells whether the validity of every certificate of the validated path was determined to be valid.
+   *
+   * @param result the certificate validation result
+   * @return true if the result may be cached
+   */
+  private static boolean isDefinitivelyValid(CertificateValidationResult result) {
+    if (!(result instanceof ExtendedCertPathValidatorResult extendedResult)) {
+      return false;
+    }
+    List<ValidationStatus> validationStatusList = extendedResult.getValidationStatusList();
+    if (validationStatusList == null || validationStatusList.isEmpty()) {
+      return false;
+    }
+    for (ValidationStatus validationStatus : validationStatusList) {
+      if (validationStatus == null
+        || !ValidationStatus.CertificateValidity.VALID.equals(validationStatus.getValidity())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long getPathExpiry(X509Certificate subjectCertificate, CertificateValidationResult result) {
+    long expiry = subjectCertificate.getNotAfter().getTime();
+    List<X509Certificate> path = result.getValidatedCertificatePath();
+    if (path != null) {
+      for (X509Certificate certificate : path) {
+        expiry = Math.min(expiry, certificate.getNotAfter().getTime());
+      }
+    }
+    return expiry;
+  }
+
+  private static String getFingerprint(X509Certificate subjectCertificate,
+    List<X509Certificate> additionalCertificates) throws GeneralSecurityException {
+    MessageDigest digest = getDigest();
+    String subjectFingerprint = Hex.toHexString(digest.digest(subjectCertificate.getEncoded()));
+    // The order of the additional certificates does not affect the path that is built
+    TreeSet<String> additionalFingerprints = new TreeSet<>();
+    if (additionalCertificates != null) {
+      for (X509Certificate certificate : additionalCertificates) {
+        additionalFingerprints.add(Hex.toHexString(digest.digest(certificate.getEncoded())));
+      }
+    }
+    additionalFingerprints.remove(subjectFingerprint);
+    return subjectFingerprint + additionalFingerprints;
+  }
+
+  private static MessageDigest getDigest() throws NoSuchAlgorithmException {
+    return MessageDigest.getInstance("SHA-256");
+  }
+
+  private record CacheKey(String chainFingerprint, long timeBucket) {
+  }
+
+  private record CacheEntry(CertificateValidationResult result, long expires, boolean refreshable,
+    AtomicBoolean refreshing) {
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import se.idsec.signservice.security.certificate.CertificateValidator;
+import se.idsec.signservice.security.sign.SignatureValidationResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+import se.swedenconnect.sigval.pdf.data.ExtendedPdfSigValResult;
+import se.swedenconnect.sigval.pdf.verify.ExtendedPDFSignatureValidator;
+
+import java.io.IOException;
+import java.security.SignatureException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PDF signature validator that obtains its results through the {@link ValidationResultCache}.
+ *
+ * <p>
+ * This validator is provided to components such as the PDF SVT claims issuer that perform their own document
+ * validation, so that a document that was recently validated by this service is not validated again. Returned results
+ * are shared through the cache and must not be modified.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+public class CachingPDFSignatureValidator implements ExtendedPDFSignatureValidator {
+
+  private final ExtendedPDFSignatureValidator pdfSignatureValidator;
+  private final ValidationResultCache validationResultCache;
+  private final long generation;
+
+  /**
+   * Constructor.
+   *
+   * @param pdfSignatureValidator the validator used on cache misses
+   * @param validationResultCache the validation result cache
+   * @param generation the generation of the validators that pdfSignatureValidator belongs to
+   */
+  public CachingPDFSignatureValidator(ExtendedPDFSignatureValidator pdfSignatureValidator,
+    ValidationResultCache validationResultCache, long generation) {
+    this.pdfSignatureValidator = pdfSignatureValidator;
+    this.validationResultCache = validationResultCache;
+    this.generation = generation;
+  }
+
+  @Override
+  public SignedDocumentValidationResult<ExtendedPdfSigValResult> extendedResultValidation(byte[] pdfDocBytes)
+    throws SignatureException {
+    try {
+      return validationResultCache.getValidationResult(pdfDocBytes, generation,
+        pdfSignatureValidator::extendedResultValidation);
+    }
+    catch (IOException e) {
+      throw new SignatureException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public List<SignatureValidationResult> validate(byte[] document) throws SignatureException {
+    return new ArrayList<>(extendedResultValidation(document).getSignatureValidationResults());
+  }
+
+  @Override
+  public boolean isSigned(byte[] document) throws IllegalArgumentException {
+    return pdfSignatureValidator.isSigned(document);
+  }
+
+  @Override
+  public List<X509Certificate> getRequiredSignerCertificates() {
+    return pdfSignatureValidator.getRequiredSignerCertificates();
+  }
+
+  @Override
+  public CertificateValidator getCertificateValidator() {
+    return pdfSignatureValidator.getCertificateValidator();
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs background refresh of cached certificate path validation results.
+ *
+ * <p>
+ * A refresh validates a certificate again, including revocation checking by the wrapped validator, and stores the
+ * result for the next time bucket of a {@link CachingCertificateValidator}. This is not a cache of OCSP responses.
+ * OCSP requests are sent by the sigval certificate validator, which does not expose the responses, so revocation
+ * status is only reused as part of a cached path validation result.
+ * </p>
+ *
+ * <p>
+ * Refreshes that can not be queued, or that fail, are counted and dropped. The certificate is then validated on the
+ * requesting thread when the cached result expires.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class CertificateResultRefresher {
+
+  private final ExecutorService executor;
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * Constructor.
+   *
+   * @param threads the number of refresh threads
+   * @param queueCapacity the max number of queued refreshes
+   * @param meterRegistry meter registry
+   */
+  public CertificateResultRefresher(int threads, int queueCapacity, MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    int poolSize = Math.max(1, threads);
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+      Thread thread = new Thread(runnable, "cert-refresh-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor,
+      "sigval.cert-validator.refresh");
+  }
+
+  /**
+   * Queues a refresh of a cached result.
+   *
+   * @param validator the name of the validator used to tag metrics (e.g. sig, tsa or svt)
+   * @param refresh the refresh, which stores its result for the next time bucket
+   */
+  public void refresh(String validator, Callable<?> refresh) {
+    try {
+      executor.execute(() -> {
+        try {
+          refresh.call();
+          count(validator, "success");
+        }
+        catch (Exception e) {
+          count(validator, "failure");
+          log.debug("Background refresh of certificate validation result failed: {}", e.getMessage());
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      count(validator, "failure");
+      log.debug("Background refresh of certificate validation result rejected");
+    }
+  }
+
+  /**
+   * Stops the refresh threads. Queued refreshes are dropped.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void count(String validator, String result) {
+    meterRegistry.counter("sigval.cert-validator.cache.refreshes", "validator", validator, "result", result)
+      .increment();
+  }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import se.idsec.sigval.sigvalservice.configuration.FileSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads posted signed documents, spooling documents larger than a threshold to temporary files.
+ *
+ * <p>
+ * When spooling is enabled, at most the threshold number of bytes of a posted document is buffered in memory. Larger
+ * documents are streamed to a temporary file and hashed while being written, and documents up to the configured max
+ * size are accepted. The signature validators operate on the document bytes, so a spooled document is loaded into
+ * memory once, into an array of the exact document size, when it is validated. When spooling is disabled, documents
+ * are held in memory and limited by {@code spring.servlet.multipart.max-file-size}, except for documents read by
+ * {@link #spoolWithoutMemoryLimit(InputStream)}.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@Component
+public class DocumentSpooler {
+
+  private static final String SPOOL_FILE_PREFIX = "sigval-spool-";
+
+  private final boolean enabled;
+  private final long threshold;
+  private final long maxSize;
+  private final Path spoolFolder;
+  private final AtomicLong spooledBytes = new AtomicLong();
+
+  @Autowired
+  public DocumentSpooler(
+    @Value("${sigval-service.spool.enabled:false}") boolean enabled,
+    @Value("${sigval-service.spool.threshold:4MB}") DataSize threshold,
+    @Value("${sigval-service.spool.max-size:200MB}") DataSize maxSize,
+    @Value("${sigval-service.spool.folder:#{null}}") String spoolFolder,
+    FileSize maxFileSize,
+    MeterRegistry meterRegistry) throws IOException {
+
+    this.enabled = enabled;
+    // Spooled documents are loaded into a single array when validated
+    this.maxSize = enabled
+      ? Math.min(maxSize.toBytes(), Integer.MAX_VALUE - 8)
+      : maxFileSize.getIntValue();
+    this.threshold = enabled ? Math.min(threshold.toBytes(), this.maxSize) : Long.MAX_VALUE;
+    this.spoolFolder = spoolFolder == null ? null : Path.of(spoolFolder);
+    if (enabled && this.spoolFolder != null) {
+      Files.createDirectories(this.spoolFolder);
+    }
+    Gauge.builder("sigval.spool.size", spooledBytes, AtomicLong::get)
+      .baseUnit("bytes")
+      .register(meterRegistry);
+    log.info("Document spooling enabled: {}, threshold: {}, max size: {} bytes", enabled, threshold, this.maxSize);
+  }
+
+  /**
+   * Reads a posted document, rejecting the document as soon as it exceeds the max size.
+   *
+   * @param inputStream the request body
+   * @return the read document, which must be closed to delete any spool file
+   * @throws IOException on read errors
+   * @throws DocumentTooLargeException if the document is too large
+   */
+  public SpooledDocument spool(InputStream inputStream) throws IOException {
+    return spool(inputStream, maxSize);
+  }
+
+  /**
+   * Reads a posted document as {@link #spool(InputStream)}, but when spooling is disabled, the document is read into
+   * memory without applying the max file size. This is used by the validation report and SVT issuance APIs, which
+   * accept documents of any size unless spooling is enabled.
+   *
+   * @param inputStream the request body
+   * @return the read document, which must be closed to delete any spool file
+   * @throws IOException on read errors
+   * @throws DocumentTooLargeException if spooling is enabled and the document exceeds the max size
+   */
+  public SpooledDocument spoolWithoutMemoryLimit(InputStream inputStream) throws IOException {
+    return spool(inputStream, enabled ? maxSize : Integer.MAX_VALUE - 8);
+  }
+
+  private SpooledDocument spool(InputStream inputStream, long limit) throws IOException {
+    MessageDigest digest = getDigest();
+    if (inputStream == null) {
+      return new SpooledDocument(new byte[0], Hex.toHexString(digest.digest()));
+    }
+    ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      checkSize(memory.size() + (long) read, limit);
+      digest.update(buffer, 0, read);
+      if (memory.size() + read > threshold) {
+        return spoolToFile(memory, buffer, read, inputStream, digest, limit);
+      }
+      memory.write(buffer, 0, read);
+    }
+    return new SpooledDocument(memory.toByteArray(), Hex.toHexString(digest.digest()));
+  }
+
+  /**
+   * Gets the max size of a posted document.
+   *
+   * @return max number of bytes
+   */
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  private SpooledDocument spoolToFile(ByteArrayOutputStream memory, byte[] buffer, int read, InputStream inputStream,
+    MessageDigest digest, long limit) throws IOException {
+
+    Path spoolFile = spoolFolder == null
+      ? Files.createTempFile(SPOOL_FILE_PREFIX, ".tmp")
+      : Files.createTempFile(spoolFolder, SPOOL_FILE_PREFIX, ".tmp");
+    long size = 0;
+    try (OutputStream out = Files.newOutputStream(spoolFile)) {
+      memory.writeTo(out);
+      out.write(buffer, 0, read);
+      size = memory.size() + (long) read;
+      memory.reset();
+      while ((read = inputStream.read(buffer)) != -1) {
+        checkSize(size + read, limit);
+        digest.update(buffer, 0, read);
+        out.write(buffer, 0, read);
+        size += read;
+      }
+    }
+    catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(spoolFile);
+      throw e;
+    }
+    long spooledSize = size;
+    spooledBytes.addAndGet(spooledSize);
+    log.debug("Spooled posted document of {} bytes to {}", spooledSize, spoolFile);
+    return new SpooledDocument(spoolFile, spooledSize, Hex.toHexString(digest.digest()),
+      () -> spooledBytes.addAndGet(-spooledSize));
+  }
+
+  private static void checkSize(long size, long limit) throws DocumentTooLargeException {
+    if (size > limit) {
+      log.warn("Posted document rejected - document exceeds max size {}", limit);
+      throw new DocumentTooLargeException("Too large document. Max size is " + limit + " bytes");
+    }
+  }
+
+  private static MessageDigest getDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+}
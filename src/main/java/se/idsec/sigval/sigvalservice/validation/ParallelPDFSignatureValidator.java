@@ -0,0 +1,215 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+import org.bouncycastle.util.Store;
+import se.idsec.signservice.security.certificate.CertificateValidator;
+import se.idsec.signservice.security.sign.SignatureValidationResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+import se.swedenconnect.sigval.pdf.data.ExtendedPdfSigValResult;
+import se.swedenconnect.sigval.pdf.verify.ExtendedPDFSignatureValidator;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SignatureException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * PDF signature validator that validates the signer certificates of all signatures of a document in parallel.
+ *
+ * <p>
+ * The wrapped document validator validates the signatures of a document one at a time, and the time needed to
+ * validate a document is dominated by building and revocation checking the certificate path of each signer. This
+ * validator extracts the signer certificate of each signature before the document is validated and starts validating
+ * the certificates on the {@link SignatureTaskExecutor}. The wrapped validator then validates the document as before,
+ * obtaining each certificate validation result from the {@link PrefetchingCertificateValidator}, so that results are
+ * assembled in document order by the wrapped validator.
+ * </p>
+ *
+ * <p>
+ * Documents with fewer than two signatures are passed directly to the wrapped validator. Whether a document may hold
+ * more than one signature is first checked by counting the signature byte ranges in the document bytes, so that
+ * documents with a single signature are not loaded for prefetching. If SVT validation is enabled, documents holding a
+ * document timestamp, which may be an SVT, are also passed directly to the wrapped validator, since signatures
+ * covered by a valid SVT are not validated individually.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class ParallelPDFSignatureValidator implements ExtendedPDFSignatureValidator {
+
+  private static final String DOC_TIMESTAMP_SUBFILTER = "ETSI.RFC3161";
+
+  /** The key of the byte range entry that every signature dictionary holds */
+  private static final byte[] BYTE_RANGE_KEY = "/ByteRange".getBytes(StandardCharsets.US_ASCII);
+
+  private final ExtendedPDFSignatureValidator pdfSignatureValidator;
+  private final PrefetchingCertificateValidator certificateValidator;
+  private final SignatureTaskExecutor signatureTaskExecutor;
+  private final boolean svtValidationEnabled;
+
+  /**
+   * Constructor.
+   *
+   * @param pdfSignatureValidator the wrapped document validator
+   * @param certificateValidator the certificate validator used by the wrapped validator to validate signer
+   *   certificates
+   * @param signatureTaskExecutor the executor used to validate certificates in parallel
+   * @param svtValidationEnabled whether the wrapped validator validates SVTs
+   */
+  public ParallelPDFSignatureValidator(ExtendedPDFSignatureValidator pdfSignatureValidator,
+    PrefetchingCertificateValidator certificateValidator, SignatureTaskExecutor signatureTaskExecutor,
+    boolean svtValidationEnabled) {
+    this.pdfSignatureValidator = pdfSignatureValidator;
+    this.certificateValidator = certificateValidator;
+    this.signatureTaskExecutor = signatureTaskExecutor;
+    this.svtValidationEnabled = svtValidationEnabled;
+  }
+
+  @Override
+  public SignedDocumentValidationResult<ExtendedPdfSigValResult> extendedResultValidation(byte[] pdfDocBytes)
+    throws SignatureException {
+    List<PrefetchingCertificateValidator.PrefetchRequest> requests = getPrefetchRequests(pdfDocBytes);
+    if (requests.size() < 2) {
+      return pdfSignatureValidator.extendedResultValidation(pdfDocBytes);
+    }
+    log.debug("Validating {} signer certificates in parallel", requests.size());
+    certificateValidator.prefetch(requests, signatureTaskExecutor);
+    try {
+      return pdfSignatureValidator.extendedResultValidation(pdfDocBytes);
+    }
+    finally {
+      certificateValidator.clearPrefetch();
+    }
+  }
+
+  @Override
+  public List<SignatureValidationResult> validate(byte[] document) throws SignatureException {
+    return new ArrayList<>(extendedResultValidation(document).getSignatureValidationResults());
+  }
+
+  @Override
+  public boolean isSigned(byte[] document) throws IllegalArgumentException {
+    return pdfSignatureValidator.isSigned(document);
+  }
+
+  @Override
+  public List<X509Certificate> getRequiredSignerCertificates() {
+    return pdfSignatureValidator.getRequiredSignerCertificates();
+  }
+
+  @Override
+  public CertificateValidator getCertificateValidator() {
+    return pdfSignatureValidator.getCertificateValidator();
+  }
+
+  private List<PrefetchingCertificateValidator.PrefetchRequest> getPrefetchRequests(byte[] pdfDocBytes) {
+    List<PrefetchingCertificateValidator.PrefetchRequest> requests = new ArrayList<>();
+    if (!signatureTaskExecutor.isEnabled() || countByteRanges(pdfDocBytes, 2) < 2) {
+      return requests;
+    }
+    try (PDDocument document = Loader.loadPDF(pdfDocBytes)) {
+      List<PDSignature> signatures = document.getSignatureDictionaries();
+      if (signatures.size() < 2) {
+        return requests;
+      }
+      for (PDSignature signature : signatures) {
+        if (DOC_TIMESTAMP_SUBFILTER.equals(signature.getSubFilter())) {
+          if (svtValidationEnabled) {
+            return new ArrayList<>();
+          }
+          continue;
+        }
+        PrefetchingCertificateValidator.PrefetchRequest request =
+          getPrefetchRequest(signature.getContents(pdfDocBytes));
+        if (request != null) {
+          requests.add(request);
+        }
+      }
+    }
+    catch (Exception e) {
+      // The document is validated without prefetching. Any error is reported by the wrapped validator.
+      log.debug("Unable to extract signer certificates for parallel validation: {}", e.getMessage());
+      return new ArrayList<>();
+    }
+    return requests;
+  }
+
+  /**
+   * Counts the occurrences of the byte range key in the document bytes, up to a limit. The count is an upper bound
+   * of the number of signatures. A signature dictionary can not be stored in a compressed object stream, since its
+   * signature value is excluded from the signed byte ranges of the file, while the key may also occur in other
+   * content.
+   *
+   * @param pdfDocBytes the document bytes
+   * @param limit the count at which counting stops
+   * @return the number of occurrences, at most limit
+   */
+  static int countByteRanges(byte[] pdfDocBytes, int limit) {
+    int count = 0;
+    int last = pdfDocBytes.length - BYTE_RANGE_KEY.length;
+    for (int i = 0; i <= last && count < limit; i++) {
+      if (pdfDocBytes[i] != '/') {
+        continue;
+      }
+      int j = 1;
+      while (j < BYTE_RANGE_KEY.length && pdfDocBytes[i + j] == BYTE_RANGE_KEY[j]) {
+        j++;
+      }
+      if (j == BYTE_RANGE_KEY.length) {
+        count++;
+        i += j - 1;
+      }
+    }
+    return count;
+  }
+
+  private PrefetchingCertificateValidator.PrefetchRequest getPrefetchRequest(byte[] signatureContents)
+    throws Exception {
+    CMSSignedData signedData = new CMSSignedData(signatureContents);
+    Collection<SignerInformation> signers = signedData.getSignerInfos().getSigners();
+    if (signers.size() != 1) {
+      return null;
+    }
+    Store<X509CertificateHolder> certificateStore = signedData.getCertificates();
+    Collection<X509CertificateHolder> signerCertificates =
+      certificateStore.getMatches(signers.iterator().next().getSID());
+    if (signerCertificates.isEmpty()) {
+      return null;
+    }
+    JcaX509CertificateConverter converter = new JcaX509CertificateConverter();
+    X509Certificate signerCertificate = converter.getCertificate(signerCertificates.iterator().next());
+    List<X509Certificate> certificates = new ArrayList<>();
+    for (X509CertificateHolder certificateHolder : certificateStore.getMatches(null)) {
+      certificates.add(converter.getCertificate(certificateHolder));
+    }
+    return new PrefetchingCertificateValidator.PrefetchRequest(signerCertificate, certificates);
+  }
+
+}
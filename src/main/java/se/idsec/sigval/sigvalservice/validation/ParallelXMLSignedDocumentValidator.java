@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.util.encoders.Base64;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+import se.swedenconnect.sigval.xml.data.ExtendedXmlSigvalResult;
+import se.swedenconnect.sigval.xml.verify.XMLSignatureElementValidator;
+import se.swedenconnect.sigval.xml.verify.impl.XMLSignedDocumentValidator;
+
+import java.io.ByteArrayInputStream;
+import java.security.SignatureException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * XML signed document validator that validates the signer certificates of all signature elements of a document in
+ * parallel.
+ *
+ * <p>
+ * The signature elements of a document are validated one at a time by the signature element validator, and the time
+ * needed is dominated by building and revocation checking the certificate path of each signer. Before the document is
+ * validated, this validator reads the signer certificate of each signature element from its {@code ds:KeyInfo} and
+ * starts validating the certificates on the {@link SignatureTaskExecutor}. The DOM is only read on the calling thread,
+ * before validation starts. The signature elements, including any SVT, are then validated as before, and each
+ * certificate validation result is obtained from the {@link PrefetchingCertificateValidator}, so that results are
+ * assembled in document order.
+ * </p>
+ *
+ * <p>
+ * Only the signature elements that are children of the document element are prefetched, as these are the signature
+ * elements validated by the document validator. Nested signature elements, such as the signature of an SVT or a
+ * counter-signature inside a {@code ds:Object}, are not validated as signatures of the document. If SVT validation is
+ * enabled, signature elements carrying an SVT are not prefetched, since signatures covered by a valid SVT are not
+ * validated individually.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class ParallelXMLSignedDocumentValidator extends XMLSignedDocumentValidator {
+
+  private static final String XMLDSIG_NS = "http://www.w3.org/2000/09/xmldsig#";
+  private static final String SVT_ELEMENT_NAME = "SignatureValidationToken";
+
+  private final PrefetchingCertificateValidator certificateValidator;
+  private final SignatureTaskExecutor signatureTaskExecutor;
+  private final boolean svtValidationEnabled;
+
+  /**
+   * Constructor.
+   *
+   * @param signatureElementValidator the validator of each signature element
+   * @param certificateValidator the certificate validator used by the signature element validator to validate signer
+   *   certificates
+   * @param signatureTaskExecutor the executor used to validate certificates in parallel
+   * @param svtValidationEnabled whether the signature element validator validates SVTs
+   */
+  public ParallelXMLSignedDocumentValidator(XMLSignatureElementValidator signatureElementValidator,
+    PrefetchingCertificateValidator certificateValidator, SignatureTaskExecutor signatureTaskExecutor,
+    boolean svtValidationEnabled) {
+    super(signatureElementValidator);
+    this.certificateValidator = certificateValidator;
+    this.signatureTaskExecutor = signatureTaskExecutor;
+    this.svtValidationEnabled = svtValidationEnabled;
+  }
+
+  @Override
+  public SignedDocumentValidationResult<ExtendedXmlSigvalResult> extendedResultValidation(Document document)
+    throws SignatureException {
+    List<PrefetchingCertificateValidator.PrefetchRequest> requests = getPrefetchRequests(document);
+    if (requests.size() < 2) {
+      return super.extendedResultValidation(document);
+    }
+    log.debug("Validating {} signer certificates in parallel", requests.size());
+    certificateValidator.prefetch(requests, signatureTaskExecutor);
+    try {
+      return super.extendedResultValidation(document);
+    }
+    finally {
+      certificateValidator.clearPrefetch();
+    }
+  }
+
+  private List<PrefetchingCertificateValidator.PrefetchRequest> getPrefetchRequests(Document document) {
+    List<PrefetchingCertificateValidator.PrefetchRequest> requests = new ArrayList<>();
+    if (!signatureTaskExecutor.isEnabled() || document == null) {
+      return requests;
+    }
+    try {
+      List<Element> signatureElements = getSignatureElements(document);
+      if (signatureElements.size() < 2) {
+        return requests;
+      }
+      CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+      for (Element signatureElement : signatureElements) {
+        if (svtValidationEnabled && signatureElement.getElementsByTagNameNS("*", SVT_ELEMENT_NAME).getLength() > 0) {
+          continue;
+        }
+        List<X509Certificate> certificates = new ArrayList<>();
+        Element keyInfo = getChildElement(signatureElement, "KeyInfo");
+        if (keyInfo == null) {
+          continue;
+        }
+        // Only the certificates of the key info of this signature element, not of any nested signature
+        NodeList certificateElements = keyInfo.getElementsByTagNameNS(XMLDSIG_NS, "X509Certificate");
+        for (int j = 0; j < certificateElements.getLength(); j++) {
+          byte[] encoded = Base64.decode(certificateElements.item(j).getTextContent().replaceAll("\\s", ""));
+          certificates.add(
+            (X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(encoded)));
+        }
+        X509Certificate signerCertificate = getSignerCertificate(certificates);
+        if (signerCertificate != null) {
+          requests.add(new PrefetchingCertificateValidator.PrefetchRequest(signerCertificate, certificates));
+        }
+      }
+    }
+    catch (Exception e) {
+      // The document is validated without prefetching. Any error is reported by the signature element validator.
+      log.debug("Unable to extract signer certificates for parallel validation: {}", e.getMessage());
+      return new ArrayList<>();
+    }
+    return requests;
+  }
+
+  /**
+   * Gets the signature elements that are children of the document element.
+   *
+   * @param document the document
+   * @return the top level signature elements in document order
+   */
+  private static List<Element> getSignatureElements(Document document) {
+    List<Element> signatureElements = new ArrayList<>();
+    Element documentElement = document.getDocumentElement();
+    if (documentElement == null) {
+      return signatureElements;
+    }
+    for (Node node = documentElement.getFirstChild(); node != null; node = node.getNextSibling()) {
+      if (isDsigElement(node, "Signature")) {
+        signatureElements.add((Element) node);
+      }
+    }
+    return signatureElements;
+  }
+
+  private static Element getChildElement(Element parent, String localName) {
+    for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+      if (isDsigElement(node, localName)) {
+        return (Element) node;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isDsigElement(Node node, String localName) {
+    return node.getNodeType() == Node.ELEMENT_NODE && XMLDSIG_NS.equals(node.getNamespaceURI())
+      && localName.equals(node.getLocalName());
+  }
+
+  /**
+   * Gets the signer certificate among the certificates of a signature element, being the certificate that has not
+   * issued any of the other certificates.
+   *
+   * @param certificates the certificates of the signature element
+   * @return the signer certificate or null if no single signer certificate is found
+   */
+  private static X509Certificate getSignerCertificate(List<X509Certificate> certificates) {
+    List<X509Certificate> candidates = certificates.stream()
+      .filter(certificate -> certificates.stream()
+        .noneMatch(other -> other != certificate
+          && other.getIssuerX500Principal().equals(certificate.getSubjectX500Principal())))
+      .toList();
+    return candidates.size() == 1 ? candidates.get(0) : null;
+  }
+
+}
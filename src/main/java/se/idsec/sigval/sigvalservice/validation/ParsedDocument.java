@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.JWSObjectJSON;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.w3c.dom.Document;
+import se.swedenconnect.sigval.commons.document.DocType;
+import se.swedenconnect.sigval.xml.utils.XMLDocumentBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+/**
+ * A signed document that has been parsed once within a request.
+ *
+ * <p>
+ * The parsed representation is reused by the validation of the document within the request that parsed it, so that
+ * the document is not parsed again for each step. The XML DOM document is retained for XML documents. JOSE documents
+ * are checked when parsed. PDF documents are only identified by their header, since the PDF validators load the
+ * document from its bytes and report any error in the document structure. No parsed representation is retained for
+ * PDF and JOSE documents.
+ * </p>
+ *
+ * <p>
+ * A parsed document is mutable and not thread safe, since the XML validators register ID attributes in the DOM. It
+ * must therefore only be used by the request that parsed it, and must never be stored in the http session. Requests
+ * that read a document from the session parse their own instance.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class ParsedDocument {
+
+  /** The bytes of the signed document */
+  @Getter private final byte[] documentBytes;
+
+  /** The type of the signed document */
+  @Getter private final DocType docType;
+
+  /** The parsed XML document, or null if this is not an XML document */
+  @Getter private Document xmlDocument;
+
+  private ParsedDocument(byte[] documentBytes, DocType docType) {
+    this.documentBytes = documentBytes;
+    this.docType = docType;
+  }
+
+  /**
+   * Parses a signed document.
+   *
+   * @param documentBytes the bytes of the signed document
+   * @return parsed document
+   * @throws IOException on errors parsing the document
+   * @throws IllegalArgumentException if the document is not of a supported document type
+   */
+  public static ParsedDocument parse(byte[] documentBytes) throws IOException, IllegalArgumentException {
+
+    DocType docType = DocType.getDocType(documentBytes);
+    ParsedDocument parsedDocument = new ParsedDocument(documentBytes, docType);
+    switch (docType) {
+    case XML:
+      parsedDocument.xmlDocument = parseXml(documentBytes);
+      break;
+    case PDF:
+      // The PDF validators load the document from its bytes, so the document is not loaded here
+      break;
+    case JOSE:
+    case JOSE_COMPACT:
+      parseJose(documentBytes);
+      break;
+    default:
+      log.warn("Upload rejected - Unrecognized file content");
+      throw new IllegalArgumentException("Upload rejected - Illegal file content");
+    }
+    return parsedDocument;
+  }
+
+  private static Document parseXml(byte[] bytes) throws IOException {
+    try {
+      return XMLDocumentBuilder.getDocument(bytes);
+    }
+    catch (Exception ex) {
+      log.warn("Error processing the uploaded XML document");
+      throw new IOException("Error parsing uploaded XML document (" + ex.getMessage() + ").");
+    }
+  }
+
+  private static void parseJose(byte[] bytes) throws IOException {
+    String joseString = new String(bytes, StandardCharsets.UTF_8);
+    try {
+      JWSObject.parse(joseString);
+      log.debug("Found compact serialized JWS");
+      return;
+    }
+    catch (ParseException e) {
+      log.debug("No compact serialized JWS signature");
+    }
+
+    try {
+      JWSObjectJSON.parse(joseString);
+      log.debug("Found JSON serialized JWS");
+      return;
+    }
+    catch (ParseException e) {
+      log.debug("No JSON serialized JWS signature");
+    }
+    log.warn("Error processing the uploaded JOSE document");
+    throw new IOException("Error parsing uploaded JOSE document");
+  }
+
+}
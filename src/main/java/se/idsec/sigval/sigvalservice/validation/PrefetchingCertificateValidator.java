@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import se.idsec.signservice.security.certificate.CertificateValidationResult;
+import se.idsec.signservice.security.certificate.CertificateValidator;
+
+import java.security.GeneralSecurityException;
+import java.security.cert.CertPathBuilderException;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Certificate validator that returns results of certificate validations started in advance on other threads.
+ *
+ * <p>
+ * Before a document is validated, the signer certificates of its signatures are submitted for validation through
+ * {@link #prefetch(List, SignatureTaskExecutor)}. When the signature validator then validates a signer certificate,
+ * on the thread that started the prefetch, the result of the matching prefetched validation is returned. Certificate
+ * validations that were not prefetched are passed to the wrapped validator.
+ * </p>
+ *
+ * <p>
+ * Certificate validations requested while a prefetch is active are counted by the metric
+ * {@code sigval.signature.prefetch.requests}, tagged with the document type and with the result {@code hit} if a
+ * prefetched validation was used or {@code miss} if the certificate was validated by the wrapped validator.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+public class PrefetchingCertificateValidator implements CertificateValidator {
+
+  private final CertificateValidator certificateValidator;
+  private final ThreadLocal<Prefetch> prefetch = new ThreadLocal<>();
+  private final Counter hitCounter;
+  private final Counter missCounter;
+
+  /**
+   * Constructor.
+   *
+   * @param certificateValidator the wrapped certificate validator
+   * @param type the type of documents validated with this validator, used to tag metrics
+   * @param meterRegistry meter registry
+   */
+  public PrefetchingCertificateValidator(CertificateValidator certificateValidator, String type,
+    MeterRegistry meterRegistry) {
+    this.certificateValidator = certificateValidator;
+    this.hitCounter = Counter.builder("sigval.signature.prefetch.requests")
+      .tag("type", type)
+      .tag("result", "hit")
+      .register(meterRegistry);
+    this.missCounter = Counter.builder("sigval.signature.prefetch.requests")
+      .tag("type", type)
+      .tag("result", "miss")
+      .register(meterRegistry);
+  }
+
+  /**
+   * Starts validating the provided certificates on the signature task executor. The results are available to
+   * validations on the calling thread until {@link #clearPrefetch()} is called.
+   *
+   * @param requests the certificates to validate
+   * @param signatureTaskExecutor the executor used to validate the certificates
+   */
+  public void prefetch(List<PrefetchRequest> requests, SignatureTaskExecutor signatureTaskExecutor) {
+    List<Callable<CertificateValidationResult>> tasks = new ArrayList<>();
+    for (PrefetchRequest request : requests) {
+      tasks.add(() -> certificateValidator.validate(request.subjectCertificate(), request.additionalCertificates(),
+        null));
+    }
+    prefetch.set(new Prefetch(requests, signatureTaskExecutor.start(tasks)));
+  }
+
+  /**
+   * Removes prefetched results from the calling thread, cancelling validations that have not been started.
+   */
+  public void clearPrefetch() {
+    Prefetch current = prefetch.get();
+    if (current != null) {
+      current.tasks().cancel();
+      prefetch.remove();
+    }
+  }
+
+  @Override
+  public CertificateValidationResult validate(X509Certificate subjectCertificate,
+    List<X509Certificate> additionalCertificates, List<X509CRL> crls)
+    throws CertPathBuilderException, CertPathValidatorException, GeneralSecurityException {
+
+    Prefetch current = prefetch.get();
+    if (current != null && (crls == null || crls.isEmpty())) {
+      Set<X509Certificate> additional = getAdditional(subjectCertificate, additionalCertificates);
+      for (int i = 0; i < current.requests().size(); i++) {
+        PrefetchRequest request = current.requests().get(i);
+        if (request.subjectCertificate().equals(subjectCertificate)
+          && getAdditional(subjectCertificate, request.additionalCertificates()).equals(additional)) {
+          hitCounter.increment();
+          return getPrefetched(current, i);
+        }
+      }
+    }
+    if (current != null) {
+      missCounter.increment();
+    }
+    return certificateValidator.validate(subjectCertificate, additionalCertificates, crls);
+  }
+
+  @Override
+  public CertificateValidationResult validate(X509Certificate subjectCertificate,
+    List<X509Certificate> additionalCertificates, List<X509CRL> crls, List<X509Certificate> trustAnchors)
+    throws CertPathBuilderException, CertPathValidatorException, GeneralSecurityException {
+    return certificateValidator.validate(subjectCertificate, additionalCertificates, crls, trustAnchors);
+  }
+
+  @Override
+  public boolean isRevocationCheckingActive() {
+    return certificateValidator.isRevocationCheckingActive();
+  }
+
+  @Override
+  public List<X509Certificate> getDefaultTrustAnchors() {
+    return certificateValidator.getDefaultTrustAnchors();
+  }
+
+  private CertificateValidationResult getPrefetched(Prefetch current, int index)
+    throws CertPathBuilderException, CertPathValidatorException, GeneralSecurityException {
+    try {
+      return current.tasks().get(index);
+    }
+    catch (GeneralSecurityException | RuntimeException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new GeneralSecurityException(e.getMessage(), e);
+    }
+  }
+
+  private static Set<X509Certificate> getAdditional(X509Certificate subjectCertificate,
+    List<X509Certificate> additionalCertificates) {
+    Set<X509Certificate> additional = additionalCertificates == null
+      ? new HashSet<>()
+      : new HashSet<>(additionalCertificates);
+    additional.remove(subjectCertificate);
+    return additional;
+  }
+
+  /**
+   * A certificate to validate in advance.
+   *
+   * @param subjectCertificate the certificate to validate
+   * @param additionalCertificates certificates available for building the certificate path
+   */
+  public record PrefetchRequest(X509Certificate subjectCertificate, List<X509Certificate> additionalCertificates) {
+  }
+
+  private record Prefetch(List<PrefetchRequest> requests,
+    SignatureTaskExecutor.ParallelTasks<CertificateValidationResult> tasks) {
+  }
+
+}
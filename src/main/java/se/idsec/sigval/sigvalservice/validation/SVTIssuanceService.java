@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import se.idsec.sigval.sigvalservice.configuration.SignatureValidatorProvider;
+import se.idsec.sigval.sigvalservice.configuration.ValidatorSnapshot;
+import se.swedenconnect.sigval.commons.document.DocType;
+import se.swedenconnect.sigval.commons.svt.SVTExtendpolicy;
+import se.swedenconnect.sigval.commons.svt.SVTUtils;
+import se.swedenconnect.sigval.pdf.timestamp.issue.impl.PDFDocTimstampProcessor;
+import se.swedenconnect.sigval.svt.issuer.SVTModel;
+import se.swedenconnect.sigval.xml.utils.XMLDocumentBuilder;
+
+import java.io.IOException;
+
+/**
+ * Issues SVT tokens for signed documents. Used by the SVT issuance API and by SVT jobs.
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@Component
+public class SVTIssuanceService {
+
+  @Value("${sigval-service.svt.default-replace}") boolean defaultReplaceSvt;
+  @Value("${sigval-service.ui.downloaded-svt-suffix}") String svtSuffix;
+  @Value("${sigval-service.svt.issue-on-failed-validation:false}") boolean issueSvtOnFailedValidation;
+
+  private final SignatureValidatorProvider signatureValidatorProvider;
+  private final SVTModel svtModel;
+
+  @Autowired
+  public SVTIssuanceService(SignatureValidatorProvider signatureValidatorProvider, SVTModel svtModel) {
+    this.signatureValidatorProvider = signatureValidatorProvider;
+    this.svtModel = svtModel;
+  }
+
+  /**
+   * Issues an SVT for a signed document.
+   *
+   * @param documentBytes the bytes of the signed document
+   * @param name the name of the signed document, or null to use a default name
+   * @param replace true to replace existing SVT tokens, false to extend them, or null for the configured default
+   * @return the SVT enhanced document
+   * @throws IOException on errors issuing the SVT
+   * @throws IllegalArgumentException if the document type is not recognized
+   */
+  public SvtEnhancedDocument issueSvt(byte[] documentBytes, String name, String replace)
+    throws IOException, IllegalArgumentException {
+
+    SVTExtendpolicy svtExtendpolicy;
+    if (StringUtils.isNotBlank(replace)) {
+      svtExtendpolicy = replace.equalsIgnoreCase("true")
+        ? SVTExtendpolicy.REPLACE
+        : SVTExtendpolicy.EXTEND;
+    }
+    else {
+      svtExtendpolicy = defaultReplaceSvt
+        ? SVTExtendpolicy.REPLACE
+        : SVTExtendpolicy.EXTEND;
+    }
+
+    byte[] svtEnhancedDocument;
+    MediaType mediaType;
+    ValidatorSnapshot validators = signatureValidatorProvider.getValidators();
+
+    // Generate a report based on document type
+    DocType docType = DocType.getDocType(documentBytes);
+    switch (docType) {
+    case XML:
+      try {
+        Document xmlDocument = XMLDocumentBuilder.getDocument(documentBytes);
+        svtEnhancedDocument = validators.getXmlDocumentSVTIssuer()
+          .issueSvt(xmlDocument, svtModel, svtExtendpolicy, issueSvtOnFailedValidation);
+        mediaType = MediaType.TEXT_XML;
+      }
+      catch (Exception ex) {
+        log.error("Error issuing XML SVT token {}", ex.getMessage());
+        throw new IOException(ex.getMessage());
+      }
+      break;
+    case PDF:
+      try {
+        SignedJWT signedSvtJWT = validators.getPdfsvtSigValClaimsIssuer()
+          .getSignedSvtJWT(documentBytes, svtModel);
+        if (!SVTUtils.checkIfSVTShouldBeIssued(signedSvtJWT, issueSvtOnFailedValidation)) {
+          throw new IOException("SVT request for document with invalid signatures");
+        }
+        PDFDocTimstampProcessor.Result result = PDFDocTimstampProcessor.createSVTSealedPDF(
+          documentBytes, signedSvtJWT.serialize(), validators.getSvtTsSigner());
+        svtEnhancedDocument = result.getDocument();
+        mediaType = MediaType.APPLICATION_PDF;
+      }
+      catch (Exception ex) {
+        log.error("Error issuing PDF SVT token {}", ex.getMessage());
+        throw new IOException(ex.getMessage());
+      }
+      break;
+    case JOSE:
+    case JOSE_COMPACT:
+      try {
+        svtEnhancedDocument = validators.getJoseDocumentSVTIssuer()
+          .issueSvt(documentBytes, svtModel, svtExtendpolicy, issueSvtOnFailedValidation);
+        mediaType = MediaType.APPLICATION_JSON;
+      }
+      catch (Exception ex) {
+        log.error("Error issuing JOSE SVT token {}", ex.getMessage());
+        throw new IOException(ex.getMessage());
+      }
+      break;
+    default:
+      log.debug("Bad request - data type not recognized");
+      throw new IllegalArgumentException("Bad request - data type not recognized");
+    }
+
+    if (svtEnhancedDocument == null) {
+      throw new IOException("No SVT document was created");
+    }
+
+    // Get filename
+    name = StringUtils.isBlank(name) ? "svt_enhanced_signed_document" : name;
+    name = name.replaceAll("\\s*,\\s*", "-");
+    return new SvtEnhancedDocument(svtEnhancedDocument, mediaType, getSvtFileName(name, mediaType));
+  }
+
+  private String getSvtFileName(String fileName, MediaType tbsType) {
+
+    if (tbsType.equals(MediaType.TEXT_XML)) {
+      return fileName.toLowerCase().endsWith(".xml")
+        ? stripFileName(fileName, 4) + svtSuffix + ".xml"
+        : fileName + svtSuffix + ".xml";
+    }
+    if (tbsType.equals(MediaType.APPLICATION_PDF)) {
+      return fileName.toLowerCase().endsWith(".pdf")
+        ? stripFileName(fileName, 4) + svtSuffix + ".pdf"
+        : fileName + svtSuffix + ".pdf";
+    }
+    if (tbsType.equals(MediaType.APPLICATION_JSON)) {
+      return fileName.toLowerCase().endsWith(".json")
+        ? stripFileName(fileName, 5) + svtSuffix + ".json"
+        : fileName + svtSuffix + ".json";
+    }
+    return fileName;
+  }
+
+  private String stripFileName(String fileName, int len) {
+    return fileName.substring(0, fileName.length() - len);
+  }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for validating the signatures of one document in parallel.
+ *
+ * <p>
+ * The tasks of one document are executed by a limited number of workers on a pool shared by all documents. A task
+ * that has not been started when its result is requested is executed by the requesting thread. The result of a
+ * document is therefore never delayed by a busy pool beyond what sequential validation would take.
+ * </p>
+ *
+ * <p>
+ * The queue of the pool is bounded. Workers that are rejected by a full pool are not started, and their tasks are
+ * executed by the requesting thread.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@Component
+public class SignatureTaskExecutor implements DisposableBean {
+
+  /** Whether signatures are validated in parallel */
+  @Getter private final boolean enabled;
+
+  private final int maxParallelPerDocument;
+  private final ExecutorService executor;
+
+  @Autowired
+  public SignatureTaskExecutor(
+    @Value("${sigval-service.validation.parallel.enabled:true}") boolean enabled,
+    @Value("${sigval-service.validation.parallel.pool-size:0}") int poolSize,
+    @Value("${sigval-service.validation.parallel.max-per-document:4}") int maxParallelPerDocument,
+    @Value("${sigval-service.validation.parallel.queue-capacity:100}") int queueCapacity,
+    MeterRegistry meterRegistry) {
+    this.enabled = enabled;
+    this.maxParallelPerDocument = Math.max(1, maxParallelPerDocument);
+    // Signature tasks include revocation checking, so the pool is larger than the number of processors
+    int threads = poolSize > 0 ? poolSize : 2 * Runtime.getRuntime().availableProcessors();
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+      Thread thread = new Thread(runnable, "signature-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, "sigval.signature.pool");
+    log.info("Parallel signature validation enabled: {}, pool size: {}, max parallel per document: {}",
+      enabled, threads, this.maxParallelPerDocument);
+  }
+
+  /**
+   * Starts executing the tasks of one document.
+   *
+   * @param tasks the tasks of the document
+   * @param <T> the type of task result
+   * @return the started tasks
+   */
+  public <T> ParallelTasks<T> start(List<Callable<T>> tasks) {
+    ParallelTasks<T> parallelTasks = new ParallelTasks<>(tasks);
+    int workers = Math.min(maxParallelPerDocument, tasks.size());
+    try {
+      for (int i = 0; i < workers; i++) {
+        executor.execute(parallelTasks::work);
+      }
+    }
+    catch (RejectedExecutionException e) {
+      log.debug("Signature task executor rejected task - remaining tasks are executed by the requesting thread");
+    }
+    return parallelTasks;
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * The started tasks of one document.
+   *
+   * @param <T> the type of task result
+   */
+  public static class ParallelTasks<T> {
+
+    private final List<Callable<T>> tasks;
+    private final List<CompletableFuture<T>> results;
+    private final List<AtomicBoolean> claimed;
+    private final AtomicInteger nextTask = new AtomicInteger();
+
+    private ParallelTasks(List<Callable<T>> tasks) {
+      this.tasks = tasks;
+      this.results = new ArrayList<>(tasks.size());
+      this.claimed = new ArrayList<>(tasks.size());
+      for (int i = 0; i < tasks.size(); i++) {
+        results.add(new CompletableFuture<>());
+        claimed.add(new AtomicBoolean());
+      }
+    }
+
+    /**
+     * Gets the number of tasks.
+     *
+     * @return number of tasks
+     */
+    public int size() {
+      return tasks.size();
+    }
+
+    /**
+     * Gets the result of a task, executing the task on the calling thread if it has not been started.
+     *
+     * @param index the index of the task
+     * @return the result of the task
+     * @throws Exception the exception thrown by the task
+     */
+    public T get(int index) throws Exception {
+      run(index);
+      try {
+        return results.get(index).get();
+      }
+      catch (ExecutionException e) {
+        if (e.getCause() instanceof Exception cause) {
+          throw cause;
+        }
+        throw e;
+      }
+    }
+
+    /**
+     * Gets the results of all tasks in task order.
+     *
+     * @return task results
+     * @throws Exception the exception thrown by the first failing task
+     */
+    public List<T> getAll() throws Exception {
+      List<T> all = new ArrayList<>(tasks.size());
+      for (int i = 0; i < tasks.size(); i++) {
+        all.add(get(i));
+      }
+      return all;
+    }
+
+    /**
+     * Prevents tasks that have not been started from being executed.
+     */
+    public void cancel() {
+      for (int i = 0; i < tasks.size(); i++) {
+        if (claimed.get(i).compareAndSet(false, true)) {
+          results.get(i).cancel(false);
+        }
+      }
+    }
+
+    private void work() {
+      int index;
+      while ((index = nextTask.getAndIncrement()) < tasks.size()) {
+        run(index);
+      }
+    }
+
+    private void run(int index) {
+      if (!claimed.get(index).compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        results.get(index).complete(tasks.get(index).call());
+      }
+      catch (Throwable e) {
+        results.get(index).completeExceptionally(e);
+      }
+    }
+  }
+
+}
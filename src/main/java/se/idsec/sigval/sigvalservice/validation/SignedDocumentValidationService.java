@@ -0,0 +1,221 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import se.idsec.sigval.sigvalservice.configuration.SignatureValidatorProvider;
+import se.idsec.sigval.sigvalservice.configuration.ValidatorSnapshot;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+import se.swedenconnect.sigval.commons.document.DocType;
+import se.swedenconnect.sigval.jose.data.ExtendedJOSESigvalResult;
+import se.swedenconnect.sigval.pdf.data.ExtendedPdfSigValResult;
+import se.swedenconnect.sigval.xml.data.ExtendedXmlSigvalResult;
+import se.swedenconnect.sigval.xml.utils.XMLDocumentBuilder;
+
+import java.io.IOException;
+import java.security.SignatureException;
+
+/**
+ * Validates signed documents using the current validators, consulting the {@link ValidationResultCache} before
+ * performing a full validation. Full validations are executed through the {@link ValidationExecutor}.
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@Component
+public class SignedDocumentValidationService {
+
+  private final SignatureValidatorProvider signatureValidatorProvider;
+  private final ValidationResultCache validationResultCache;
+  private final ValidationExecutor validationExecutor;
+
+  @Autowired
+  public SignedDocumentValidationService(SignatureValidatorProvider signatureValidatorProvider,
+    ValidationResultCache validationResultCache, ValidationExecutor validationExecutor) {
+    this.signatureValidatorProvider = signatureValidatorProvider;
+    this.validationResultCache = validationResultCache;
+    this.validationExecutor = validationExecutor;
+  }
+
+  /**
+   * Validates a signed document of any supported document type.
+   *
+   * @param documentBytes the bytes of the signed document
+   * @return signed document validation result
+   * @throws SignatureException on errors validating the document
+   * @throws IOException if the document type is not supported or the document can not be parsed
+   */
+  public SignedDocumentValidationResult<? extends ExtendedSigValResult> validate(byte[] documentBytes)
+    throws SignatureException, IOException {
+    return validate(documentBytes, null);
+  }
+
+  /**
+   * Validates a posted signed document of any supported document type. The hash computed when the document was read
+   * is used to look up the validation result cache.
+   *
+   * @param document the posted signed document
+   * @return signed document validation result
+   * @throws SignatureException on errors validating the document
+   * @throws IOException if the document type is not supported or the document can not be read or parsed
+   */
+  public SignedDocumentValidationResult<? extends ExtendedSigValResult> validate(SpooledDocument document)
+    throws SignatureException, IOException {
+    return validate(document.getDocumentBytes(), document.getDocumentHash());
+  }
+
+  /**
+   * Validates a signed document of any supported document type with an already computed hash.
+   *
+   * @param documentBytes the bytes of the signed document
+   * @param documentHash hex encoded SHA-256 hash of the document, or null to compute the hash if needed
+   * @return signed document validation result
+   * @throws SignatureException on errors validating the document
+   * @throws IOException if the document type is not supported or the document can not be parsed
+   */
+  public SignedDocumentValidationResult<? extends ExtendedSigValResult> validate(byte[] documentBytes,
+    String documentHash) throws SignatureException, IOException {
+
+    DocType docType = DocType.getDocType(documentBytes);
+    switch (docType) {
+    case XML:
+      return validateXml(documentBytes, documentHash);
+    case PDF:
+      return validatePdf(documentBytes, documentHash);
+    case JOSE:
+    case JOSE_COMPACT:
+      return validateJose(documentBytes, documentHash);
+    default:
+      throw new IOException("Unable to handle uploaded document - illegal document content");
+    }
+  }
+
+  /**
+   * Validates a signed document that was parsed when it was uploaded. Parsed XML documents are validated without
+   * parsing the document again.
+   *
+   * @param parsedDocument the parsed signed document
+   * @return signed document validation result
+   * @throws SignatureException on errors validating the document
+   * @throws IOException if the document type is not supported or the document can not be parsed
+   */
+  public SignedDocumentValidationResult<? extends ExtendedSigValResult> validate(ParsedDocument parsedDocument)
+    throws SignatureException, IOException {
+
+    Document xmlDocument = parsedDocument.getXmlDocument();
+    if (xmlDocument == null) {
+      return validate(parsedDocument.getDocumentBytes());
+    }
+    ValidatorSnapshot validators = signatureValidatorProvider.getValidators();
+    return validationResultCache.getValidationResult(parsedDocument.getDocumentBytes(),
+      validators.getGeneration(),
+      bytes -> validationExecutor.execute(
+        () -> validators.getXmlSignedDocumentValidator().extendedResultValidation(xmlDocument)));
+  }
+
+  public SignedDocumentValidationResult<ExtendedXmlSigvalResult> validateXml(byte[] documentBytes)
+    throws SignatureException, IOException {
+    return validateXml(documentBytes, null);
+  }
+
+  public SignedDocumentValidationResult<ExtendedPdfSigValResult> validatePdf(byte[] documentBytes)
+    throws SignatureException, IOException {
+    return validatePdf(documentBytes, null);
+  }
+
+  public SignedDocumentValidationResult<ExtendedJOSESigvalResult> validateJose(byte[] documentBytes)
+    throws SignatureException, IOException {
+    return validateJose(documentBytes, null);
+  }
+
+  /**
+   * Gets the generation of the current validators.
+   *
+   * @return validator generation
+   */
+  public long getGeneration() {
+    return signatureValidatorProvider.getGeneration();
+  }
+
+  /**
+   * Tests whether a previously obtained validation result may be used instead of validating the document again.
+   *
+   * @param validationTime the time in milliseconds when the result was obtained
+   * @param generation the generation of the validators that produced the result
+   * @return true if the result was produced by the current validators within the current validation time bucket
+   */
+  public boolean isFresh(long validationTime, long generation) {
+    return validationResultCache.isFresh(validationTime, generation, signatureValidatorProvider.getGeneration());
+  }
+
+  /**
+   * Makes a previously obtained validation result available to validators that consult the validation result cache.
+   *
+   * @param documentBytes the bytes of the signed document
+   * @param generation the generation of the validators that produced the result
+   * @param validationResult the validation result
+   */
+  public void cacheValidationResult(byte[] documentBytes, long generation,
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult) {
+    validationResultCache.put(documentBytes, generation, validationResult);
+  }
+
+  private SignedDocumentValidationResult<ExtendedXmlSigvalResult> validateXml(byte[] documentBytes,
+    String documentHash) throws SignatureException, IOException {
+    ValidatorSnapshot validators = signatureValidatorProvider.getValidators();
+    return validationResultCache.getValidationResult(documentBytes, documentHash,
+      validators.getGeneration(),
+      bytes -> validationExecutor.execute(() -> validators.getXmlSignedDocumentValidator()
+        .extendedResultValidation(getXmlDocument(bytes))));
+  }
+
+  private SignedDocumentValidationResult<ExtendedPdfSigValResult> validatePdf(byte[] documentBytes,
+    String documentHash) throws SignatureException, IOException {
+    ValidatorSnapshot validators = signatureValidatorProvider.getValidators();
+    return validationResultCache.getValidationResult(documentBytes, documentHash,
+      validators.getGeneration(),
+      bytes -> validationExecutor.execute(
+        () -> validators.getPdfSignatureValidator().extendedResultValidation(bytes)));
+  }
+
+  private SignedDocumentValidationResult<ExtendedJOSESigvalResult> validateJose(byte[] documentBytes,
+    String documentHash) throws SignatureException, IOException {
+    ValidatorSnapshot validators = signatureValidatorProvider.getValidators();
+    return validationResultCache.getValidationResult(documentBytes, documentHash,
+      validators.getGeneration(),
+      bytes -> validationExecutor.execute(
+        () -> validators.getJoseSignedDocumentValidator().extendedResultValidation(bytes)));
+  }
+
+  private Document getXmlDocument(byte[] documentBytes) throws IOException {
+    try {
+      return XMLDocumentBuilder.getDocument(documentBytes);
+    }
+    catch (IOException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new IOException("Error parsing XML document (" + e.getMessage() + ").", e);
+    }
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A posted signed document that is either held in memory or spooled to a temporary file.
+ *
+ * <p>
+ * The size and the SHA-256 hash of the document are computed while the document is read, so that the document is
+ * not hashed again when its validation result is cached. Spooled documents are read into memory only when their
+ * bytes are first requested, and the loaded bytes are returned by later requests, so the document is held in memory
+ * at most once. The spool file is deleted and the loaded bytes are released when the document is first closed, and
+ * later calls to {@link #close()} have no effect.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+public class SpooledDocument implements AutoCloseable {
+
+  /** The size of the document in bytes */
+  @Getter private final long size;
+
+  /** Hex encoded SHA-256 hash of the document */
+  @Getter private final String documentHash;
+
+  private byte[] documentBytes;
+  private final Path spoolFile;
+  private Runnable onClose;
+
+  SpooledDocument(byte[] documentBytes, String documentHash) {
+    this.documentBytes = documentBytes;
+    this.size = documentBytes.length;
+    this.documentHash = documentHash;
+    this.spoolFile = null;
+    this.onClose = null;
+  }
+
+  SpooledDocument(Path spoolFile, long size, String documentHash, Runnable onClose) {
+    this.documentBytes = null;
+    this.size = size;
+    this.documentHash = documentHash;
+    this.spoolFile = spoolFile;
+    this.onClose = onClose;
+  }
+
+  /**
+   * Tests whether the document is spooled to a temporary file.
+   *
+   * @return true if the document is held in a temporary file
+   */
+  public boolean isSpooled() {
+    return spoolFile != null;
+  }
+
+  /**
+   * Tests whether the document is empty.
+   *
+   * @return true if no document bytes were read
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Gets the bytes of the document. The bytes of a spooled document are read from the spool file on the first call,
+   * and the same array is returned by later calls. The returned array must not be modified.
+   *
+   * @return document bytes
+   * @throws IOException on errors reading the spool file
+   */
+  public synchronized byte[] getDocumentBytes() throws IOException {
+    if (documentBytes == null) {
+      if (spoolFile == null) {
+        throw new IOException("Document is closed");
+      }
+      documentBytes = Files.readAllBytes(spoolFile);
+    }
+    return documentBytes;
+  }
+
+  /**
+   * Writes the document to a file. The spool file of a spooled document is copied without reading the document into
+   * memory.
+   *
+   * @param file the file to write
+   * @throws IOException on errors writing the file, or if the document is closed
+   */
+  public synchronized void writeTo(Path file) throws IOException {
+    if (documentBytes != null) {
+      Files.write(file, documentBytes);
+    }
+    else if (spoolFile != null) {
+      Files.copy(spoolFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    else {
+      throw new IOException("Document is closed");
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (spoolFile == null) {
+      return;
+    }
+    documentBytes = null;
+    try {
+      Files.deleteIfExists(spoolFile);
+    }
+    catch (IOException e) {
+      log.warn("Failed to delete spool file {}: {}", spoolFile, e.getMessage());
+    }
+    if (onClose != null) {
+      onClose.run();
+      onClose = null;
+    }
+  }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.security.SignatureException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool for the CPU-bound work of validating signed documents.
+ *
+ * <p>
+ * When enabled, document validations are executed on a fixed number of threads, by default one per processor, and
+ * the calling thread waits for the result. This is intended to be combined with virtual threads for request handling
+ * ({@code spring.threads.virtual.enabled}), where a waiting request only parks a virtual thread. A burst of requests
+ * then queues on this pool instead of occupying the servlet container threads. When disabled, validations are
+ * executed on the calling thread.
+ * </p>
+ *
+ * <p>
+ * The queue of the pool is bounded. Revocation checking is performed by the validators as part of the validation, so
+ * a validation may wait for network I/O while occupying a pool thread. When the pool and its queue are full, further
+ * validations are rejected with a {@link ValidationRejectedException}, which is reported to API clients as 503
+ * Service Unavailable, instead of queueing without limit.
+ * </p>
+ *
+ * <p>
+ * Threads of other bounded pools, such as the batch validation and job workers, execute their validations directly
+ * by running them through {@link #runInline(Runnable)}, so that they do not wait for, or compete with, the requests
+ * queued on this pool.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@Component
+public class ValidationExecutor implements DisposableBean {
+
+  /** Set on the threads that execute validations directly */
+  private static final ThreadLocal<Boolean> INLINE_THREAD = new ThreadLocal<>();
+
+  private final ExecutorService executor;
+  private final Counter rejectedCounter;
+
+  @Autowired
+  public ValidationExecutor(
+    @Value("${sigval-service.validation.pool.enabled:false}") boolean enabled,
+    @Value("${sigval-service.validation.pool.size:0}") int poolSize,
+    @Value("${sigval-service.validation.pool.queue-capacity:100}") int queueCapacity,
+    MeterRegistry meterRegistry) {
+
+    this.rejectedCounter = Counter.builder("sigval.validation.pool.rejected")
+      .description("Validations rejected because the validation pool queue is full")
+      .register(meterRegistry);
+    if (!enabled) {
+      this.executor = null;
+      log.info("Validation pool disabled - validating documents on the calling thread");
+      return;
+    }
+    int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+      Thread thread = new Thread(() -> runInline(runnable), "validation-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, "sigval.validation.pool");
+    Gauge.builder("sigval.validation.pool.occupancy", threadPoolExecutor,
+        pool -> (double) pool.getActiveCount() / pool.getMaximumPoolSize())
+      .register(meterRegistry);
+    log.info("Validation pool enabled with {} threads and queue capacity {}", threads, Math.max(1, queueCapacity));
+  }
+
+  /**
+   * Runs a runnable with validations executed directly on the current thread. Used as the body of the threads of
+   * bounded pools that validate documents.
+   *
+   * @param runnable the runnable to run
+   */
+  public static void runInline(Runnable runnable) {
+    INLINE_THREAD.set(Boolean.TRUE);
+    try {
+      runnable.run();
+    }
+    finally {
+      INLINE_THREAD.remove();
+    }
+  }
+
+  /**
+   * Executes a validation task on the validation pool, or on the calling thread if the pool is disabled.
+   *
+   * @param task validation task
+   * @param <T> the type of result
+   * @return the result of the task
+   * @throws SignatureException on errors validating the document
+   * @throws IOException on errors parsing the document
+   * @throws ValidationRejectedException if the validation pool and its queue are full
+   */
+  public <T> T execute(ValidationTask<T> task) throws SignatureException, IOException, ValidationRejectedException {
+    if (executor == null || INLINE_THREAD.get() != null) {
+      // Pool disabled, or a validation executing on a thread that validates directly
+      return task.call();
+    }
+    Future<T> future;
+    try {
+      future = executor.submit(task::call);
+    }
+    catch (RejectedExecutionException e) {
+      rejectedCounter.increment();
+      log.debug("Validation rejected - validation pool queue is full");
+      throw new ValidationRejectedException("Validation capacity exceeded - try again later", e);
+    }
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for document validation", e);
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SignatureException signatureException) {
+        throw signatureException;
+      }
+      if (cause instanceof IOException ioException) {
+        throw ioException;
+      }
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new SignatureException(cause.getMessage(), cause);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * A validation task.
+   *
+   * @param <T> the type of result
+   */
+  @FunctionalInterface
+  public interface ValidationTask<T> {
+    T call() throws SignatureException, IOException;
+  }
+
+}
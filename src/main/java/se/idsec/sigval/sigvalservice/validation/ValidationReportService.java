@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import se.idsec.sigval.sigvalservice.configuration.SignatureValidatorProvider;
+import se.idsec.sigval.sigvalservice.configuration.ValidatorSnapshot;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+import se.swedenconnect.sigval.commons.document.DocType;
+import se.swedenconnect.sigval.jose.data.ExtendedJOSESigvalResult;
+import se.swedenconnect.sigval.pdf.data.ExtendedPdfSigValResult;
+import se.swedenconnect.sigval.report.data.SignedDataRepresentation;
+import se.swedenconnect.sigval.report.data.SigvalReportOptions;
+import se.swedenconnect.sigval.xml.data.ExtendedXmlSigvalResult;
+
+import java.io.IOException;
+import java.security.SignatureException;
+
+/**
+ * Creates signed validation reports for signed documents. Used by the validation report API and by validation report
+ * jobs.
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@Component
+public class ValidationReportService {
+
+  @Value("${sigval-service.report.default-include-tschain}") boolean defaultIncludeTsChain;
+  @Value("${sigval-service.report.default-include-chain}") boolean defaultIncludeChain;
+  @Value("${sigval-service.report.default-include-siged-doc}") boolean defaultIncludeSignedDoc;
+
+  private final SignatureValidatorProvider signatureValidatorProvider;
+  private final SignedDocumentValidationService signedDocumentValidationService;
+
+  @Autowired
+  public ValidationReportService(SignatureValidatorProvider signatureValidatorProvider,
+    SignedDocumentValidationService signedDocumentValidationService) {
+    this.signatureValidatorProvider = signatureValidatorProvider;
+    this.signedDocumentValidationService = signedDocumentValidationService;
+  }
+
+  /**
+   * Validates a signed document and creates a signed validation report for the validation result.
+   *
+   * @param documentBytes the bytes of the signed document
+   * @param documentHash hex encoded SHA-256 hash of the document, or null to compute the hash if needed
+   * @param sigvalReportOptions report options
+   * @return the signed validation report
+   * @throws SignatureException on errors validating the document or signing the report
+   * @throws IOException on errors parsing the document
+   * @throws IllegalArgumentException if the document type is not recognized
+   */
+  public byte[] getValidationReport(byte[] documentBytes, String documentHash, SigvalReportOptions sigvalReportOptions)
+    throws SignatureException, IOException, IllegalArgumentException {
+
+    DocType docType = DocType.getDocType(documentBytes);
+    switch (docType) {
+    case XML:
+    case PDF:
+    case JOSE:
+    case JOSE_COMPACT:
+      return getValidationReport(docType, signedDocumentValidationService.validate(documentBytes, documentHash),
+        sigvalReportOptions);
+    default:
+      log.debug("Bad validation request - data type not recognized");
+      throw new IllegalArgumentException("Bad request - data type not recognized");
+    }
+  }
+
+  /**
+   * Creates a signed validation report for an existing validation result.
+   *
+   * @param docType the type of the validated document
+   * @param validationResult the validation result
+   * @param sigvalReportOptions report options
+   * @return the signed validation report
+   * @throws SignatureException on errors signing the report
+   * @throws IOException on errors creating the report
+   * @throws IllegalArgumentException if the document type is not recognized
+   */
+  @SuppressWarnings("unchecked")
+  public byte[] getValidationReport(DocType docType,
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> validationResult,
+    SigvalReportOptions sigvalReportOptions) throws SignatureException, IOException, IllegalArgumentException {
+
+    ValidatorSnapshot validators = signatureValidatorProvider.getValidators();
+
+    // Generate report based on document type
+    switch (docType) {
+    case XML:
+      return validators.getXmlSigValReportGenerator().getSignedValidationReport(
+        (SignedDocumentValidationResult<ExtendedXmlSigvalResult>) validationResult, sigvalReportOptions,
+        validators.getReportSigner());
+    case PDF:
+      return validators.getPdfSigValReportGenerator().getSignedValidationReport(
+        (SignedDocumentValidationResult<ExtendedPdfSigValResult>) validationResult, sigvalReportOptions,
+        validators.getReportSigner());
+    case JOSE:
+    case JOSE_COMPACT:
+      return validators.getJoseSigValReportGenerator().getSignedValidationReport(
+        (SignedDocumentValidationResult<ExtendedJOSESigvalResult>) validationResult, sigvalReportOptions,
+        validators.getReportSigner());
+    default:
+      log.debug("Bad validation request - data type not recognized");
+      throw new IllegalArgumentException("Bad request - data type not recognized");
+    }
+  }
+
+  /**
+   * Gets the report options for the report request parameters. Parameters that are not set, or that do not have the
+   * value true or false, use the configured default.
+   *
+   * @param certpath whether to include the certificate path of signatures, or null for the default
+   * @param includeDocs whether to include the signed documents, or null for the default
+   * @return report options
+   */
+  public SigvalReportOptions getReportOptions(String certpath, String includeDocs) {
+
+    boolean includeCertPath = defaultIncludeChain;
+    boolean includeTsChain = defaultIncludeTsChain;
+    boolean includeSignedData = defaultIncludeSignedDoc;
+
+    if (certpath != null) {
+      if (certpath.equalsIgnoreCase("true")){
+        includeCertPath = true;
+      }
+      if (certpath.equalsIgnoreCase("false")){
+        includeCertPath = false;
+      }
+    }
+
+    if (includeDocs != null) {
+      if (includeDocs.equalsIgnoreCase("true")){
+        includeSignedData = true;
+      }
+      if (includeDocs.equalsIgnoreCase("false")){
+        includeSignedData = false;
+      }
+    }
+
+    SignedDataRepresentation signedDataRepresentation = includeSignedData
+      ? SignedDataRepresentation.DIRECT
+      : SignedDataRepresentation.DIGEST;
+
+    return new SigvalReportOptions(includeTsChain, includeCertPath, signedDataRepresentation);
+  }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import se.idsec.sigval.sigvalservice.fetch.SingleFlight;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SignatureException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of signed document validation results.
+ *
+ * <p>
+ * Results are keyed by the SHA-256 hash of the validated document, the generation of the validators that produced the
+ * result and a validation time bucket. A result is therefore never reused after the trust configuration is reloaded,
+ * and never for longer than the configured time bucket. The cache is weighted by the number of document bytes held by
+ * each result and the least recently used results are evicted when the configured max size is exceeded.
+ * </p>
+ *
+ * <p>
+ * Concurrent misses for the same document and validators share one validation. Cached results are shared between
+ * concurrent requests, sessions and report generators, and must be treated as read-only by all users of the cache.
+ * </p>
+ *
+ * @author Martin Lindström (martin@idsec.se)
+ * @author Stefan Santesson (stefan@idsec.se)
+ */
+@Slf4j
+@Component
+public class ValidationResultCache {
+
+  private final boolean enabled;
+  private final long maxBytes;
+  private final long timeBucketMillis;
+
+  private final LinkedHashMap<CacheKey, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedBytes;
+  private final SingleFlight<CacheKey, SignedDocumentValidationResult<? extends ExtendedSigValResult>> validations;
+
+  private final Counter hitCounter;
+  private final Counter missCounter;
+  private final Counter evictionCounter;
+
+  @Autowired
+  public ValidationResultCache(
+    @Value("${sigval-service.validation-cache.enabled:true}") boolean enabled,
+    @Value("${sigval-service.validation-cache.max-size:64MB}") DataSize maxSize,
+    @Value("${sigval-service.validation-cache.time-bucket-seconds:300}") long timeBucketSeconds,
+    MeterRegistry meterRegistry) {
+    this.enabled = enabled;
+    this.maxBytes = maxSize.toBytes();
+    this.timeBucketMillis = Math.max(1, timeBucketSeconds) * 1000;
+    this.hitCounter = meterRegistry.counter("sigval.validation.cache.requests", "result", "hit");
+    this.missCounter = meterRegistry.counter("sigval.validation.cache.requests", "result", "miss");
+    this.evictionCounter = meterRegistry.counter("sigval.validation.cache.evictions");
+    this.validations = new SingleFlight<>("validation", meterRegistry);
+    Gauge.builder("sigval.validation.cache.size", this, ValidationResultCache::getCachedBytes)
+      .baseUnit("bytes")
+      .register(meterRegistry);
+    Gauge.builder("sigval.validation.cache.entries", this, ValidationResultCache::getEntryCount)
+      .register(meterRegistry);
+    log.info("Validation result cache enabled: {}, max size: {}, time bucket (seconds): {}", enabled, maxSize,
+      timeBucketSeconds);
+  }
+
+  /**
+   * Returns a cached validation result for the document, or validates the document and caches the result. The returned
+   * result may be shared with other requests and must not be modified.
+   *
+   * @param document the bytes of the signed document
+   * @param generation the generation of the validators used to validate the document
+   * @param validationFunction the function used to validate the document on a cache miss
+   * @param <R> the type of signature validation result
+   * @return signed document validation result
+   * @throws SignatureException on errors validating the document
+   * @throws IOException on errors parsing the document
+   */
+  public <R extends ExtendedSigValResult> SignedDocumentValidationResult<R> getValidationResult(byte[] document,
+    long generation, DocumentValidationFunction<R> validationFunction) throws SignatureException, IOException {
+    return getValidationResult(document, null, generation, validationFunction);
+  }
+
+  /**
+   * Returns a cached validation result for a document with an already computed hash, or validates the document and
+   * caches the result. The returned result may be shared with other requests and must not be modified.
+   *
+   * @param document the bytes of the signed document
+   * @param documentHash hex encoded SHA-256 hash of the document, or null to compute the hash
+   * @param generation the generation of the validators used to validate the document
+   * @param validationFunction the function used to validate the document on a cache miss
+   * @param <R> the type of signature validation result
+   * @return signed document validation result
+   * @throws SignatureException on errors validating the document
+   * @throws IOException on errors parsing the document
+   */
+  @SuppressWarnings("unchecked")
+  public <R extends ExtendedSigValResult> SignedDocumentValidationResult<R> getValidationResult(byte[] document,
+    String documentHash, long generation, DocumentValidationFunction<R> validationFunction)
+    throws SignatureException, IOException {
+
+    if (!enabled) {
+      return validationFunction.validate(document);
+    }
+    CacheKey key = documentHash == null
+      ? getCacheKey(document, generation)
+      : getCacheKey(documentHash, generation);
+    CacheEntry cacheEntry = get(key);
+    if (cacheEntry != null) {
+      hitCounter.increment();
+      log.debug("Validation result cache hit for document {}", key.documentHash());
+      return (SignedDocumentValidationResult<R>) cacheEntry.result();
+    }
+    missCounter.increment();
+    try {
+      return (SignedDocumentValidationResult<R>) validations.execute(key, () -> {
+        // A validation of the same document may have completed since the cache was checked
+        CacheEntry completed = get(key);
+        if (completed != null) {
+          return completed.result();
+        }
+        SignedDocumentValidationResult<R> result = validationFunction.validate(document);
+        put(key, result, document.length);
+        return result;
+      });
+    }
+    catch (SignatureException | IOException | RuntimeException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      // The validation function only throws the exceptions above
+      throw new SignatureException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Adds an already computed validation result to the cache.
+   *
+   * @param document the bytes of the signed document
+   * @param generation the generation of the validators used to validate the document
+   * @param result the validation result
+   */
+  public void put(byte[] document, long generation,
+    SignedDocumentValidationResult<? extends ExtendedSigValResult> result) {
+    if (!enabled || result == null) {
+      return;
+    }
+    put(getCacheKey(document, generation), result, document.length);
+  }
+
+  /**
+   * Removes all cached validation results.
+   */
+  public void clear() {
+    synchronized (cache) {
+      cache.clear();
+      cachedBytes = 0;
+    }
+  }
+
+  /**
+   * Tests whether a result obtained at a given time by a given validator generation may still be used.
+   *
+   * @param validationTime the time in milliseconds when the result was obtained
+   * @param resultGeneration the generation of the validators that produced the result
+   * @param currentGeneration the generation of the current validators
+   * @return true if the result is still fresh
+   */
+  public boolean isFresh(long validationTime, long resultGeneration, long currentGeneration) {
+    return resultGeneration == currentGeneration
+      && validationTime / timeBucketMillis == System.currentTimeMillis() / timeBucketMillis;
+  }
+
+  private CacheEntry get(CacheKey key) {
+    synchronized (cache) {
+      return cache.get(key);
+    }
+  }
+
+  long getCachedBytes() {
+    synchronized (cache) {
+      return cachedBytes;
+    }
+  }
+
+  int getEntryCount() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  private void put(CacheKey key, SignedDocumentValidationResult<? extends ExtendedSigValResult> result,
+    long documentLength) {
+    long weight = getWeight(result, documentLength);
+    if (weight > maxBytes) {
+      log.debug("Validation result for document {} is too large to cache ({} bytes)", key.documentHash(), weight);
+      return;
+    }
+    synchronized (cache) {
+      CacheEntry replaced = cache.put(key, new CacheEntry(result, weight));
+      if (replaced != null) {
+        cachedBytes -= replaced.weight();
+      }
+      cachedBytes += weight;
+      Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = cache.entrySet().iterator();
+      while (cachedBytes > maxBytes && iterator.hasNext()) {
+        CacheEntry evicted = iterator.next().getValue();
+        iterator.remove();
+        cachedBytes -= evicted.weight();
+        evictionCounter.increment();
+      }
+    }
+  }
+
+  private long getWeight(SignedDocumentValidationResult<? extends ExtendedSigValResult> result, long documentLength) {
+    long weight = documentLength;
+    if (result.getSignatureValidationResults() != null) {
+      for (ExtendedSigValResult sigValResult : result.getSignatureValidationResults()) {
+        byte[] signedDocument = sigValResult.getSignedDocument();
+        weight += signedDocument == null ? 0 : signedDocument.length;
+      }
+    }
+    return weight;
+  }
+
+  private CacheKey getCacheKey(byte[] document, long generation) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return getCacheKey(Hex.toHexString(digest.digest(document)), generation);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  private CacheKey getCacheKey(String documentHash, long generation) {
+    return new CacheKey(documentHash, generation, System.currentTimeMillis() / timeBucketMillis);
+  }
+
+  /**
+   * Function validating a signed document.
+   *
+   * @param <R> the type of signature validation result
+   */
+  @FunctionalInterface
+  public interface DocumentValidationFunction<R extends ExtendedSigValResult> {
+    SignedDocumentValidationResult<R> validate(byte[] document) throws SignatureException, IOException;
+  }
+
+  private record CacheKey(String documentHash, long generation, long timeBucket) {
+  }
+
+  private record CacheEntry(SignedDocumentValidationResult<? extends ExtendedSigValResult> result, long weight) {
+  }
+
+}
@@ -16,7 +16,7 @@
 
 $(document).ready(function () {
     $("#uploadedFileInput").fileinput({
-        uploadUrl: "sigupload", // server upload action
+        uploadUrl: "sigupload-validate", // server upload and validation action
         uploadAsync: false,
         showPreview: false,
         allowedFileExtensions: ['xml',"pdf","json","jose"],
@@ -33,7 +33,7 @@ $(document).ready(function () {
         if (message !== undefined){
             alert(message);
         } else {
-            setTimeout(function(){window.location="validate";},500);
+            window.location="result";
         }
     });
 
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.configuration.keys;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.security.auth.x500.X500Principal;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.cert.CertPathBuilder;
+import java.security.cert.CertSelector;
+import java.security.cert.CertStore;
+import java.security.cert.Certificate;
+import java.security.cert.CollectionCertStoreParameters;
+import java.security.cert.PKIXBuilderParameters;
+import java.security.cert.PKIXCertPathBuilderResult;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CertSelector;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Testing the indexed certificate store
+ */
+public class IndexedCertStoreTest {
+
+  static X509Certificate rootCert;
+  static X509Certificate caCert;
+  static X509Certificate otherCaCert;
+  static X509Certificate eeCert;
+  static X509Certificate otherEeCert;
+  static List<X509Certificate> certificates;
+
+  @BeforeAll
+  static void init() throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(256);
+    KeyPair rootKey = generator.generateKeyPair();
+    KeyPair caKey = generator.generateKeyPair();
+    KeyPair otherCaKey = generator.generateKeyPair();
+
+    rootCert = issue("CN=Root", rootKey, "CN=Root", rootKey, null, true);
+    caCert = issue("CN=CA", caKey, "CN=Root", rootKey, rootCert, true);
+    // Same subject name as the CA but another key
+    otherCaCert = issue("CN=CA", otherCaKey, "CN=Root", rootKey, rootCert, true);
+    eeCert = issue("CN=Signer", generator.generateKeyPair(), "CN=CA", caKey, caCert, false);
+    otherEeCert = issue("CN=Other signer", generator.generateKeyPair(), "CN=CA", otherCaKey, otherCaCert, false);
+    certificates = List.of(rootCert, caCert, otherCaCert, eeCert, otherEeCert);
+  }
+
+  @Test
+  void testLookups() throws Exception {
+    CertStore indexed = IndexedCertStore.create(certificates);
+    CertStore collection = CertStore.getInstance("Collection", new CollectionCertStoreParameters(certificates));
+
+    X509CertSelector bySubject = new X509CertSelector();
+    bySubject.setSubject(new X500Principal("CN=CA"));
+    assertSameMatches(Set.of(caCert, otherCaCert), bySubject, indexed, collection);
+
+    X509CertSelector bySubjectKeyIdentifier = new X509CertSelector();
+    bySubjectKeyIdentifier.setSubjectKeyIdentifier(getExtension(caCert, Extension.subjectKeyIdentifier));
+    assertSameMatches(Set.of(caCert), bySubjectKeyIdentifier, indexed, collection);
+
+    X509CertSelector byAuthorityKeyIdentifier = new X509CertSelector();
+    byAuthorityKeyIdentifier.setAuthorityKeyIdentifier(getExtension(eeCert, Extension.authorityKeyIdentifier));
+    assertSameMatches(Set.of(eeCert), byAuthorityKeyIdentifier, indexed, collection);
+
+    X509CertSelector byCertificate = new X509CertSelector();
+    byCertificate.setCertificate(otherCaCert);
+    assertSameMatches(Set.of(otherCaCert), byCertificate, indexed, collection);
+
+    // Criteria that are not indexed match all certificates
+    X509CertSelector bySerialNumber = new X509CertSelector();
+    bySerialNumber.setSerialNumber(eeCert.getSerialNumber());
+    assertSameMatches(Set.of(eeCert), bySerialNumber, indexed, collection);
+
+    // Combined criteria are all matched
+    X509CertSelector bySubjectAndKey = new X509CertSelector();
+    bySubjectAndKey.setSubject(new X500Principal("CN=CA"));
+    bySubjectAndKey.setSubjectPublicKey(otherCaCert.getPublicKey());
+    assertSameMatches(Set.of(otherCaCert), bySubjectAndKey, indexed, collection);
+
+    X509CertSelector noMatch = new X509CertSelector();
+    noMatch.setSubject(new X500Principal("CN=Unknown"));
+    assertSameMatches(Set.of(), noMatch, indexed, collection);
+  }
+
+  @Test
+  void testDuplicatesAreStoredOnce() throws Exception {
+    CertStore indexed = IndexedCertStore.create(Arrays.asList(rootCert, caCert, caCert, rootCert));
+    Assertions.assertEquals(2, indexed.getCertificates(null).size());
+    X509CertSelector bySubject = new X509CertSelector();
+    bySubject.setSubject(new X500Principal("CN=CA"));
+    Assertions.assertEquals(1, indexed.getCertificates(bySubject).size());
+    Assertions.assertTrue(indexed.getCRLs(null).isEmpty());
+  }
+
+  @Test
+  void testPathBuilding() throws Exception {
+    CertStore indexed = IndexedCertStore.create(certificates);
+    X509CertSelector target = new X509CertSelector();
+    target.setCertificate(otherEeCert);
+    PKIXBuilderParameters parameters = new PKIXBuilderParameters(Set.of(new TrustAnchor(rootCert, null)), target);
+    parameters.addCertStore(indexed);
+    parameters.setRevocationEnabled(false);
+    PKIXCertPathBuilderResult result = (PKIXCertPathBuilderResult) CertPathBuilder.getInstance("PKIX")
+      .build(parameters);
+    Assertions.assertEquals(List.of(otherEeCert, otherCaCert), result.getCertPath().getCertificates());
+  }
+
+  private static void assertSameMatches(Set<X509Certificate> expected, CertSelector selector, CertStore indexed,
+    CertStore collection) throws Exception {
+    Collection<? extends Certificate> indexedMatches = indexed.getCertificates(selector);
+    Assertions.assertEquals(expected, new HashSet<>(indexedMatches));
+    Assertions.assertEquals(expected.size(), indexedMatches.size());
+    Assertions.assertEquals(new HashSet<>(collection.getCertificates(selector)), new HashSet<>(indexedMatches));
+  }
+
+  /**
+   * Gets the DER encoded value of an extension, as used by certificate selectors.
+   */
+  private static byte[] getExtension(X509Certificate certificate, ASN1ObjectIdentifier oid) {
+    return ASN1OctetString.getInstance(certificate.getExtensionValue(oid.getId())).getOctets();
+  }
+
+  private static X509Certificate issue(String subject, KeyPair subjectKey, String issuer, KeyPair issuerKey,
+    X509Certificate issuerCert, boolean ca) throws Exception {
+    JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+    Date notBefore = new Date(System.currentTimeMillis() - 3600000);
+    Date notAfter = new Date(System.currentTimeMillis() + 86400000L * 365);
+    X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(new X500Name(issuer),
+      BigInteger.valueOf(System.nanoTime()), notBefore, notAfter, new X500Name(subject), subjectKey.getPublic());
+    builder.addExtension(Extension.subjectKeyIdentifier, false,
+      extensionUtils.createSubjectKeyIdentifier(subjectKey.getPublic()));
+    builder.addExtension(Extension.authorityKeyIdentifier, false, issuerCert == null
+      ? extensionUtils.createAuthorityKeyIdentifier(subjectKey.getPublic())
+      : extensionUtils.createAuthorityKeyIdentifier(issuerCert));
+    builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(ca));
+    return new JcaX509CertificateConverter().getCertificate(builder.build(
+      new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC").build(issuerKey.getPrivate())));
+  }
+
+}
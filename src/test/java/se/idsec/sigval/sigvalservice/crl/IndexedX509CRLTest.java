@@ -0,0 +1,218 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.crl;
+
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.ExtensionsGenerator;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.SignatureException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Testing the indexed CRL
+ */
+public class IndexedX509CRLTest {
+
+  static KeyPair caKeyPair;
+  static KeyPair otherKeyPair;
+
+  @TempDir
+  File tempDir;
+
+  @BeforeAll
+  static void init() throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(256);
+    caKeyPair = generator.generateKeyPair();
+    otherKeyPair = generator.generateKeyPair();
+  }
+
+  @Test
+  void testSerialBytes() {
+    byte[] one = IndexedX509CRL.Entry.getSerialBytes(BigInteger.ONE);
+    Assertions.assertEquals(20, one.length);
+    Assertions.assertEquals(1, one[19]);
+    Assertions.assertTrue(Arrays.equals(new byte[19], 0, 19, one, 0, 19));
+
+    // The sign byte of BigInteger.toByteArray is not part of the 20 byte serial
+    BigInteger max = BigInteger.ONE.shiftLeft(160).subtract(BigInteger.ONE);
+    byte[] maxBytes = IndexedX509CRL.Entry.getSerialBytes(max);
+    Assertions.assertEquals(20, maxBytes.length);
+    for (byte b : maxBytes) {
+      Assertions.assertEquals((byte) 0xff, b);
+    }
+    Assertions.assertEquals(max, new BigInteger(1, maxBytes));
+
+    Assertions.assertNull(IndexedX509CRL.Entry.getSerialBytes(BigInteger.ONE.shiftLeft(160)));
+    Assertions.assertNull(IndexedX509CRL.Entry.getSerialBytes(BigInteger.ONE.negate()));
+
+    // Serial numbers with the high bit set sort after those without it
+    byte[] high = IndexedX509CRL.Entry.getSerialBytes(BigInteger.valueOf(0x80));
+    byte[] low = IndexedX509CRL.Entry.getSerialBytes(BigInteger.valueOf(0x7f));
+    Assertions.assertTrue(Arrays.compareUnsigned(high, low) > 0);
+    Assertions.assertTrue(Arrays.compareUnsigned(maxBytes, high) > 0);
+  }
+
+  @Test
+  void testRevocationLookup() throws Exception {
+    Random random = new Random(1);
+    List<BigInteger> revoked = new ArrayList<>();
+    revoked.add(BigInteger.ZERO);
+    revoked.add(BigInteger.valueOf(0x7f));
+    revoked.add(BigInteger.valueOf(0x80));
+    revoked.add(BigInteger.valueOf(0xff));
+    revoked.add(BigInteger.ONE.shiftLeft(159));
+    revoked.add(BigInteger.ONE.shiftLeft(160).subtract(BigInteger.ONE));
+    while (revoked.size() < 500) {
+      BigInteger serial = new BigInteger(1 + random.nextInt(160), random);
+      if (!revoked.contains(serial)) {
+        revoked.add(serial);
+      }
+    }
+    Date revocationDate = new Date(System.currentTimeMillis() / 1000 * 1000 - 3600000);
+    X509v2CRLBuilder builder = getCrlBuilder();
+    for (int i = 0; i < revoked.size(); i++) {
+      if (i % 2 == 0) {
+        builder.addCRLEntry(revoked.get(i), revocationDate, CRLReason.keyCompromise);
+      }
+      else {
+        builder.addCRLEntry(revoked.get(i), revocationDate, (Extensions) null);
+      }
+    }
+    X509CRL crl = sign(builder);
+
+    IndexedX509CRL indexed = IndexedX509CRL.create(crl, crl.getEncoded(), new File(tempDir, "crl.index"));
+    Assertions.assertNotNull(indexed);
+    Assertions.assertEquals(revoked.size(), indexed.getRevokedCount());
+    for (int i = 0; i < revoked.size(); i++) {
+      X509CRLEntry entry = indexed.getRevokedCertificate(revoked.get(i));
+      Assertions.assertNotNull(entry, "Serial " + revoked.get(i).toString(16) + " not found");
+      Assertions.assertEquals(revoked.get(i), entry.getSerialNumber());
+      Assertions.assertEquals(revocationDate, entry.getRevocationDate());
+      Assertions.assertEquals(i % 2 == 0 ? java.security.cert.CRLReason.KEY_COMPROMISE : null,
+        entry.getRevocationReason());
+      Assertions.assertEquals(crl.getRevokedCertificate(revoked.get(i)).getRevocationReason(),
+        entry.getRevocationReason());
+    }
+    for (int i = 0; i < 500; i++) {
+      BigInteger serial = new BigInteger(1 + random.nextInt(160), random);
+      Assertions.assertEquals(revoked.contains(serial), indexed.getRevokedCertificate(serial) != null);
+    }
+    Assertions.assertNull(indexed.getRevokedCertificate(BigInteger.ONE.negate()));
+    Assertions.assertNull(indexed.getRevokedCertificate(BigInteger.ONE.shiftLeft(160)));
+    Assertions.assertEquals(crl.getRevokedCertificates().size(), indexed.getRevokedCertificates().size());
+    Assertions.assertArrayEquals(crl.getEncoded(), indexed.getEncoded());
+  }
+
+  @Test
+  void testEmptyCrl() throws Exception {
+    X509CRL crl = sign(getCrlBuilder());
+    IndexedX509CRL indexed = IndexedX509CRL.create(crl, crl.getEncoded(), new File(tempDir, "empty.index"));
+    Assertions.assertNotNull(indexed);
+    Assertions.assertEquals(0, indexed.getRevokedCount());
+    Assertions.assertNull(indexed.getRevokedCertificate(BigInteger.ONE));
+    Assertions.assertNull(indexed.getRevokedCertificates());
+  }
+
+  @Test
+  void testVerify() throws Exception {
+    X509v2CRLBuilder builder = getCrlBuilder();
+    builder.addCRLEntry(BigInteger.TEN, new Date(), CRLReason.superseded);
+    X509CRL crl = sign(builder);
+    IndexedX509CRL indexed = IndexedX509CRL.create(crl, crl.getEncoded(), new File(tempDir, "verify.index"));
+    Assertions.assertNotNull(indexed);
+
+    indexed.verify(caKeyPair.getPublic());
+    indexed.verify(caKeyPair.getPublic(), "BC");
+    indexed.verify(caKeyPair.getPublic(), Security.getProvider("BC"));
+    Assertions.assertThrows(SignatureException.class, () -> indexed.verify(otherKeyPair.getPublic()));
+    Assertions.assertThrows(SignatureException.class, () -> indexed.verify(otherKeyPair.getPublic(), "BC"));
+    Assertions.assertThrows(SignatureException.class,
+      () -> indexed.verify(otherKeyPair.getPublic(), Security.getProvider("BC")));
+  }
+
+  @Test
+  void testUnsupportedCriticalExtension() throws Exception {
+    X509v2CRLBuilder builder = getCrlBuilder();
+    builder.addExtension(new ASN1ObjectIdentifier("1.2.3.4.5"), true, new DERUTF8String("critical"));
+    X509CRL crl = sign(builder);
+    Assertions.assertTrue(crl.hasUnsupportedCriticalExtension());
+    IndexedX509CRL indexed = IndexedX509CRL.create(crl, crl.getEncoded(), new File(tempDir, "critical.index"));
+    Assertions.assertNotNull(indexed);
+    Assertions.assertTrue(indexed.hasUnsupportedCriticalExtension());
+
+    X509CRL supported = sign(getCrlBuilder());
+    IndexedX509CRL indexedSupported = IndexedX509CRL.create(supported, supported.getEncoded(),
+      new File(tempDir, "supported.index"));
+    Assertions.assertNotNull(indexedSupported);
+    Assertions.assertFalse(indexedSupported.hasUnsupportedCriticalExtension());
+  }
+
+  @Test
+  void testUnsupportedEntryExtension() throws Exception {
+    X509v2CRLBuilder builder = getCrlBuilder();
+    ExtensionsGenerator extensions = new ExtensionsGenerator();
+    extensions.addExtension(new ASN1ObjectIdentifier("1.2.3.4.6"), false, new DERUTF8String("entry"));
+    builder.addCRLEntry(BigInteger.TWO, new Date(), extensions.generate());
+    X509CRL crl = sign(builder);
+    Assertions.assertNull(IndexedX509CRL.create(crl, crl.getEncoded(), new File(tempDir, "entry.index")));
+  }
+
+  private static X509v2CRLBuilder getCrlBuilder() throws Exception {
+    Date now = new Date();
+    X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=Test CA"), now);
+    builder.setNextUpdate(new Date(now.getTime() + 86400000));
+    builder.addExtension(Extension.cRLNumber, false, new ASN1Integer(1));
+    return builder;
+  }
+
+  private static X509CRL sign(X509v2CRLBuilder builder) throws Exception {
+    X509CRLHolder holder = builder.build(new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC")
+      .build(caKeyPair.getPrivate()));
+    return new JcaX509CRLConverter().getCRL(holder);
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.fetch;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Testing endpoint circuit breakers
+ */
+public class EndpointCircuitBreakerTest {
+
+  private static final URI CRL_URI = URI.create("http://crl.example.com/ca.crl");
+  private static final URI OTHER_CRL_URI = URI.create("http://crl.example.com/other.crl");
+  private static final URI OTHER_HOST_URI = URI.create("http://crl2.example.com/ca.crl");
+
+  @Test
+  void testOpensAfterConsecutiveFailures() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    EndpointCircuitBreaker circuitBreaker = new EndpointCircuitBreaker(3, 60000, null, meterRegistry);
+    try {
+      circuitBreaker.recordFailure(CRL_URI, new IOException("Connection refused"));
+      circuitBreaker.recordFailure(CRL_URI, new IOException("Connection refused"));
+      circuitBreaker.checkAvailable(CRL_URI);
+      Assertions.assertEquals(0, circuitBreaker.getOpenCount());
+
+      circuitBreaker.recordFailure(CRL_URI, new IOException("Connection refused"));
+      Assertions.assertEquals(1, circuitBreaker.getOpenCount());
+      IOException rejected = Assertions.assertThrows(IOException.class,
+        () -> circuitBreaker.checkAvailable(CRL_URI));
+      Assertions.assertTrue(rejected.getMessage().contains("Connection refused"));
+
+      // The breaker applies to all URLs of the endpoint, but not to other endpoints
+      Assertions.assertThrows(IOException.class, () -> circuitBreaker.checkAvailable(OTHER_CRL_URI));
+      circuitBreaker.checkAvailable(OTHER_HOST_URI);
+
+      Assertions.assertEquals(2,
+        meterRegistry.counter("sigval.circuit-breaker.requests", "result", "rejected").count());
+      Assertions.assertEquals(1,
+        meterRegistry.counter("sigval.circuit-breaker.transitions", "state", "open").count());
+    }
+    finally {
+      circuitBreaker.destroy();
+    }
+  }
+
+  @Test
+  void testSuccessResetsFailures() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    EndpointCircuitBreaker circuitBreaker = new EndpointCircuitBreaker(2, 60000, null, meterRegistry);
+    try {
+      circuitBreaker.recordFailure(CRL_URI, new IOException("Read timed out"));
+      circuitBreaker.recordSuccess(CRL_URI);
+      circuitBreaker.recordFailure(CRL_URI, new IOException("Read timed out"));
+      circuitBreaker.checkAvailable(CRL_URI);
+
+      circuitBreaker.recordFailure(CRL_URI, new IOException("Read timed out"));
+      Assertions.assertThrows(IOException.class, () -> circuitBreaker.checkAvailable(CRL_URI));
+
+      // A download that reaches the endpoint closes the breaker
+      circuitBreaker.recordSuccess(OTHER_CRL_URI);
+      circuitBreaker.checkAvailable(CRL_URI);
+      Assertions.assertEquals(0, circuitBreaker.getOpenCount());
+      Assertions.assertEquals(1,
+        meterRegistry.counter("sigval.circuit-breaker.transitions", "state", "closed").count());
+    }
+    finally {
+      circuitBreaker.destroy();
+    }
+  }
+
+  @Test
+  void testDisabled() throws Exception {
+    EndpointCircuitBreaker circuitBreaker = new EndpointCircuitBreaker(0, 60000, null, new SimpleMeterRegistry());
+    try {
+      for (int i = 0; i < 10; i++) {
+        circuitBreaker.recordFailure(CRL_URI, new IOException("Connection refused"));
+      }
+      circuitBreaker.checkAvailable(CRL_URI);
+      Assertions.assertEquals(0, circuitBreaker.getOpenCount());
+    }
+    finally {
+      circuitBreaker.destroy();
+    }
+  }
+
+  @Test
+  void testProbeClosesBreaker() throws Exception {
+    AtomicInteger probes = new AtomicInteger();
+    EndpointCircuitBreaker circuitBreaker = new EndpointCircuitBreaker(1, 1000,
+      getWebClient(HttpStatus.NOT_FOUND, probes), new SimpleMeterRegistry());
+    try {
+      circuitBreaker.recordFailure(CRL_URI, new IOException("Connection refused"));
+      Assertions.assertThrows(IOException.class, () -> circuitBreaker.checkAvailable(CRL_URI));
+
+      // Any response below 500 shows that the endpoint is reachable
+      waitForProbes(probes, 1);
+      waitForOpenCount(circuitBreaker, 0);
+      circuitBreaker.checkAvailable(CRL_URI);
+    }
+    finally {
+      circuitBreaker.destroy();
+    }
+  }
+
+  @Test
+  void testFailedProbeKeepsBreakerOpen() throws Exception {
+    AtomicInteger probes = new AtomicInteger();
+    EndpointCircuitBreaker circuitBreaker = new EndpointCircuitBreaker(1, 1000,
+      getWebClient(HttpStatus.SERVICE_UNAVAILABLE, probes), new SimpleMeterRegistry());
+    try {
+      circuitBreaker.recordFailure(CRL_URI, new IOException("Connection refused"));
+      waitForProbes(probes, 1);
+      Assertions.assertEquals(1, circuitBreaker.getOpenCount());
+      IOException rejected = Assertions.assertThrows(IOException.class,
+        () -> circuitBreaker.checkAvailable(CRL_URI));
+      Assertions.assertTrue(rejected.getMessage().contains("503"));
+    }
+    finally {
+      circuitBreaker.destroy();
+    }
+  }
+
+  private static WebClient getWebClient(HttpStatus status, AtomicInteger probes) {
+    return WebClient.builder()
+      .exchangeFunction(request -> {
+        probes.incrementAndGet();
+        return Mono.just(ClientResponse.create(status).build());
+      })
+      .build();
+  }
+
+  private static void waitForProbes(AtomicInteger probes, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (probes.get() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    Assertions.assertTrue(probes.get() >= count, "Endpoint was not probed");
+    // Let the probe complete
+    Thread.sleep(100);
+  }
+
+  private static void waitForOpenCount(EndpointCircuitBreaker circuitBreaker, int count)
+    throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (circuitBreaker.getOpenCount() != count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    Assertions.assertEquals(count, circuitBreaker.getOpenCount());
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.fetch;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Testing coalesced loads
+ */
+public class SingleFlightTest {
+
+  @Test
+  void testConcurrentLoadsAreCoalesced() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loadStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoad = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(5);
+    try {
+      Future<String> first = executor.submit(() -> singleFlight.execute("key", () -> {
+        loads.incrementAndGet();
+        loadStarted.countDown();
+        releaseLoad.await();
+        return "value";
+      }));
+      Assertions.assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+      List<Future<String>> waiting = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        waiting.add(executor.submit(() -> singleFlight.execute("key", () -> {
+          loads.incrementAndGet();
+          return "other";
+        })));
+      }
+      // Wait until all callers are waiting for the load in flight
+      long deadline = System.currentTimeMillis() + 5000;
+      while (getCount(meterRegistry, "coalesced") < 4 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      releaseLoad.countDown();
+
+      Assertions.assertEquals("value", first.get(5, TimeUnit.SECONDS));
+      for (Future<String> future : waiting) {
+        Assertions.assertEquals("value", future.get(5, TimeUnit.SECONDS));
+      }
+      Assertions.assertEquals(1, loads.get());
+      Assertions.assertEquals(1, getCount(meterRegistry, "executed"));
+      Assertions.assertEquals(4, getCount(meterRegistry, "coalesced"));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testCompletedLoadIsNotCached() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SingleFlight<String, Integer> singleFlight = new SingleFlight<>("test", meterRegistry);
+    AtomicInteger loads = new AtomicInteger();
+
+    Assertions.assertEquals(1, singleFlight.execute("key", loads::incrementAndGet));
+    Assertions.assertEquals(2, singleFlight.execute("key", loads::incrementAndGet));
+    Assertions.assertEquals(2, getCount(meterRegistry, "executed"));
+    Assertions.assertEquals(0, getCount(meterRegistry, "coalesced"));
+  }
+
+  @Test
+  void testFailureIsSharedAndNotCached() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+    CountDownLatch loadStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoad = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> first = executor.submit(() -> singleFlight.execute("key", () -> {
+        loadStarted.countDown();
+        releaseLoad.await();
+        throw new IOException("Load failed");
+      }));
+      Assertions.assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+      Future<String> second = executor.submit(() -> singleFlight.execute("key", () -> "value"));
+      long deadline = System.currentTimeMillis() + 5000;
+      while (getCount(meterRegistry, "coalesced") < 1 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      releaseLoad.countDown();
+
+      Exception firstFailure = Assertions.assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+      Assertions.assertInstanceOf(IOException.class, firstFailure.getCause());
+      Exception secondFailure = Assertions.assertThrows(Exception.class, () -> second.get(5, TimeUnit.SECONDS));
+      Assertions.assertInstanceOf(IOException.class, secondFailure.getCause());
+      Assertions.assertEquals("Load failed", secondFailure.getCause().getMessage());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    // The failed load is not kept
+    Assertions.assertEquals("value", singleFlight.execute("key", () -> "value"));
+  }
+
+  @Test
+  void testDifferentKeysAreNotCoalesced() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+    // A load of another key while a load is in flight is not coalesced with it
+    String value = singleFlight.execute("first", () -> "first " + singleFlight.execute("second", () -> "second"));
+    Assertions.assertEquals("first second", value);
+    Assertions.assertEquals(2, getCount(meterRegistry, "executed"));
+    Assertions.assertEquals(0, getCount(meterRegistry, "coalesced"));
+  }
+
+  private static double getCount(MeterRegistry meterRegistry, String result) {
+    return meterRegistry.counter("sigval.single-flight.requests", "type", "test", "result", result).count();
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.result;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import se.idsec.signservice.security.sign.SignatureValidationResult;
+import se.idsec.sigval.sigvalservice.result.data.DocValidStatus;
+import se.idsec.sigval.sigvalservice.result.data.ValidationVerdict;
+import se.idsec.sigval.sigvalservice.result.data.VerdictPolicy;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Testing verdict policies
+ */
+public class ResultPageDataGeneratorTest {
+
+  static ResultPageDataGenerator resultPageDataGenerator;
+
+  @BeforeAll
+  static void init() {
+    // Verdicts do not use the UI texts or the parsed certificate cache
+    resultPageDataGenerator = new ResultPageDataGenerator(null, new String[0], new String[0], null);
+  }
+
+  @Test
+  void testAnyValidCovering() {
+    ValidationVerdict verdict = getVerdict(VerdictPolicy.anyValidCovering,
+      signature(SignatureValidationResult.Status.ERROR_INVALID_SIGNATURE, true),
+      signature(SignatureValidationResult.Status.SUCCESS, false),
+      signature(SignatureValidationResult.Status.SUCCESS, true),
+      signature(SignatureValidationResult.Status.SUCCESS, true));
+    Assertions.assertTrue(verdict.isValid());
+    Assertions.assertEquals(VerdictPolicy.anyValidCovering, verdict.getPolicy());
+    Assertions.assertEquals(2, verdict.getDecidingSignature());
+    Assertions.assertEquals(4, verdict.getNumberOfSignatures());
+    Assertions.assertNull(verdict.getStatus());
+    Assertions.assertNull(verdict.getValidSignatures());
+
+    // A valid signature that does not cover the whole document is not enough
+    verdict = getVerdict(VerdictPolicy.anyValidCovering,
+      signature(SignatureValidationResult.Status.SUCCESS, false),
+      signature(SignatureValidationResult.Status.INTERDETERMINE, true));
+    Assertions.assertFalse(verdict.isValid());
+    Assertions.assertNull(verdict.getDecidingSignature());
+  }
+
+  @Test
+  void testAllValid() {
+    ValidationVerdict verdict = getVerdict(VerdictPolicy.allValid,
+      signature(SignatureValidationResult.Status.SUCCESS, false),
+      signature(SignatureValidationResult.Status.SUCCESS, true));
+    Assertions.assertTrue(verdict.isValid());
+    Assertions.assertEquals(VerdictPolicy.allValid, verdict.getPolicy());
+    Assertions.assertEquals(1, verdict.getDecidingSignature());
+
+    // The first signature that is not valid decides, also when it follows a valid covering signature
+    verdict = getVerdict(VerdictPolicy.allValid,
+      signature(SignatureValidationResult.Status.SUCCESS, true),
+      signature(SignatureValidationResult.Status.SUCCESS, false),
+      signature(SignatureValidationResult.Status.ERROR_NOT_TRUSTED, true),
+      signature(SignatureValidationResult.Status.ERROR_INVALID_SIGNATURE, true));
+    Assertions.assertFalse(verdict.isValid());
+    Assertions.assertEquals(2, verdict.getDecidingSignature());
+
+    // All signatures valid, but none of them covers the whole document
+    verdict = getVerdict(VerdictPolicy.allValid,
+      signature(SignatureValidationResult.Status.SUCCESS, false),
+      signature(SignatureValidationResult.Status.SUCCESS, false));
+    Assertions.assertFalse(verdict.isValid());
+    Assertions.assertNull(verdict.getDecidingSignature());
+  }
+
+  @Test
+  void testUnsignedDocument() {
+    for (VerdictPolicy policy : VerdictPolicy.values()) {
+      ValidationVerdict verdict = getVerdict(policy);
+      Assertions.assertFalse(verdict.isValid());
+      Assertions.assertNull(verdict.getDecidingSignature());
+      Assertions.assertEquals(0, verdict.getNumberOfSignatures());
+    }
+    ValidationVerdict verdict = getVerdict(null);
+    Assertions.assertFalse(verdict.isValid());
+    Assertions.assertEquals(DocValidStatus.unsigned, verdict.getStatus());
+  }
+
+  @Test
+  void testNoPolicy() {
+    ValidationVerdict verdict = getVerdict(null,
+      signature(SignatureValidationResult.Status.SUCCESS, true),
+      signature(SignatureValidationResult.Status.SUCCESS, false));
+    Assertions.assertTrue(verdict.isValid());
+    Assertions.assertEquals(DocValidStatus.ok, verdict.getStatus());
+    Assertions.assertEquals(2, verdict.getValidSignatures());
+    Assertions.assertNull(verdict.getPolicy());
+    Assertions.assertNull(verdict.getDecidingSignature());
+
+    verdict = getVerdict(null,
+      signature(SignatureValidationResult.Status.SUCCESS, true),
+      signature(SignatureValidationResult.Status.ERROR_SIGNER_INVALID, true));
+    Assertions.assertFalse(verdict.isValid());
+    Assertions.assertEquals(DocValidStatus.someinvalid, verdict.getStatus());
+    Assertions.assertEquals(1, verdict.getValidSignatures());
+  }
+
+  @Test
+  void testGetPolicy() {
+    Assertions.assertEquals(VerdictPolicy.anyValidCovering, VerdictPolicy.getPolicy("any-valid-covering"));
+    Assertions.assertEquals(VerdictPolicy.allValid, VerdictPolicy.getPolicy("ALL-VALID"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> VerdictPolicy.getPolicy("most-valid"));
+  }
+
+  private static ValidationVerdict getVerdict(VerdictPolicy policy, ExtendedSigValResult... signatures) {
+    List<ExtendedSigValResult> results = Arrays.asList(signatures);
+    @SuppressWarnings("unchecked")
+    SignedDocumentValidationResult<ExtendedSigValResult> sigValResult = Mockito.mock(
+      SignedDocumentValidationResult.class);
+    Mockito.doReturn(results).when(sigValResult).getSignatureValidationResults();
+    return resultPageDataGenerator.getVerdict(sigValResult, policy);
+  }
+
+  private static ExtendedSigValResult signature(SignatureValidationResult.Status status, boolean coversDocument) {
+    ExtendedSigValResult signature = Mockito.mock(ExtendedSigValResult.class);
+    Mockito.doReturn(status).when(signature).getStatus();
+    Mockito.doReturn(coversDocument).when(signature).isCoversDocument();
+    return signature;
+  }
+
+}
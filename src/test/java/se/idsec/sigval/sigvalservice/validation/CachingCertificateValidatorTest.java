@@ -0,0 +1,254 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import se.idsec.signservice.security.certificate.CertificateValidationResult;
+import se.idsec.signservice.security.certificate.CertificateValidator;
+import se.swedenconnect.sigval.cert.chain.ExtendedCertPathValidatorResult;
+import se.swedenconnect.sigval.cert.validity.ValidationStatus;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Testing the certificate validation result cache
+ */
+public class CachingCertificateValidatorTest {
+
+  static X509Certificate signerCert;
+  static X509Certificate caCert;
+  static X509Certificate rootCert;
+  static X509Certificate expiredCert;
+
+  MeterRegistry meterRegistry;
+  CertificateValidator wrappedValidator;
+  CertificateResultRefresher refresher;
+
+  @BeforeAll
+  static void init() throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+    long now = System.currentTimeMillis();
+    signerCert = getCertificate("CN=Signer", now + 86400000L * 365);
+    caCert = getCertificate("CN=CA", now + 86400000L * 365);
+    rootCert = getCertificate("CN=Root", now + 86400000L * 365);
+    expiredCert = getCertificate("CN=Expired", now - 1000);
+  }
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    wrappedValidator = Mockito.mock(CertificateValidator.class);
+    refresher = new CertificateResultRefresher(1, 10, meterRegistry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    refresher.shutdown();
+  }
+
+  @Test
+  void testValidResultIsCached() throws Exception {
+    CertificateValidationResult result = getResult(signerCert, ValidationStatus.CertificateValidity.VALID);
+    Mockito.doReturn(result).when(wrappedValidator).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    CachingCertificateValidator validator = getValidator(0);
+
+    Assertions.assertSame(result, validator.validate(signerCert, List.of(caCert, rootCert), null));
+    // The order of the additional certificates does not matter
+    Assertions.assertSame(result, validator.validate(signerCert, List.of(rootCert, caCert), null));
+
+    Mockito.verify(wrappedValidator, Mockito.times(1)).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    Assertions.assertEquals(1, validator.getEntryCount());
+    Assertions.assertEquals(1, getRequestCount("hit"));
+    Assertions.assertEquals(1, getRequestCount("miss"));
+
+    // Other additional certificates may build another path
+    validator.validate(signerCert, List.of(caCert), null);
+    Mockito.verify(wrappedValidator, Mockito.times(2)).validate(Mockito.any(), Mockito.any(), Mockito.any());
+  }
+
+  @Test
+  void testResultWithoutDefinitiveStatusIsNotCached() throws Exception {
+    // E.g. accepted without available revocation information
+    CertificateValidationResult result = getResult(signerCert, ValidationStatus.CertificateValidity.VALID,
+      ValidationStatus.CertificateValidity.UNKNOWN);
+    Mockito.doReturn(result).when(wrappedValidator).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    CachingCertificateValidator validator = getValidator(0);
+
+    validator.validate(signerCert, List.of(caCert), null);
+    validator.validate(signerCert, List.of(caCert), null);
+
+    Mockito.verify(wrappedValidator, Mockito.times(2)).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    Assertions.assertEquals(0, validator.getEntryCount());
+  }
+
+  @Test
+  void testResultWithoutStatusIsNotCached() throws Exception {
+    CertificateValidationResult result = Mockito.mock(CertificateValidationResult.class);
+    Mockito.doReturn(List.of(signerCert)).when(result).getValidatedCertificatePath();
+    Mockito.doReturn(result).when(wrappedValidator).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    CachingCertificateValidator validator = getValidator(0);
+
+    validator.validate(signerCert, null, null);
+    validator.validate(signerCert, null, null);
+
+    Mockito.verify(wrappedValidator, Mockito.times(2)).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    Assertions.assertEquals(0, validator.getEntryCount());
+  }
+
+  @Test
+  void testFailureIsNotCached() throws Exception {
+    Mockito.doThrow(new CertPathValidatorException("Revoked")).when(wrappedValidator)
+      .validate(Mockito.any(), Mockito.any(), Mockito.any());
+    CachingCertificateValidator validator = getValidator(0);
+
+    Assertions.assertThrows(CertPathValidatorException.class, () -> validator.validate(signerCert, null, null));
+    Assertions.assertThrows(CertPathValidatorException.class, () -> validator.validate(signerCert, null, null));
+
+    Mockito.verify(wrappedValidator, Mockito.times(2)).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    Assertions.assertEquals(0, validator.getEntryCount());
+  }
+
+  @Test
+  void testProvidedCrlsBypassCache() throws Exception {
+    CertificateValidationResult result = getResult(signerCert, ValidationStatus.CertificateValidity.VALID);
+    Mockito.doReturn(result).when(wrappedValidator).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    CachingCertificateValidator validator = getValidator(0);
+    List<X509CRL> crls = List.of(Mockito.mock(X509CRL.class));
+
+    validator.validate(signerCert, null, crls);
+    validator.validate(signerCert, null, crls);
+
+    Mockito.verify(wrappedValidator, Mockito.times(2)).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    Assertions.assertEquals(0, validator.getEntryCount());
+    Assertions.assertEquals(0, getRequestCount("miss"));
+  }
+
+  @Test
+  void testResultIsNotUsedAfterPathExpiry() throws Exception {
+    CertificateValidationResult result = getResult(expiredCert, ValidationStatus.CertificateValidity.VALID);
+    Mockito.doReturn(result).when(wrappedValidator).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    CachingCertificateValidator validator = getValidator(0);
+
+    validator.validate(expiredCert, null, null);
+    validator.validate(expiredCert, null, null);
+
+    Mockito.verify(wrappedValidator, Mockito.times(2)).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    Assertions.assertEquals(0, getRequestCount("hit"));
+  }
+
+  @Test
+  void testRefresh() throws Exception {
+    CertificateValidationResult result = getResult(signerCert, ValidationStatus.CertificateValidity.VALID);
+    CertificateValidationResult refreshed = getResult(signerCert, ValidationStatus.CertificateValidity.VALID);
+    Mockito.doReturn(result, refreshed).when(wrappedValidator)
+      .validate(Mockito.any(), Mockito.any(), Mockito.any());
+    // Results are refreshed whenever they are used
+    CachingCertificateValidator validator = getValidator(3600);
+
+    validator.validate(signerCert, null, null);
+    Assertions.assertSame(result, validator.validate(signerCert, null, null));
+    waitForRefresh("success");
+
+    // The refreshed result is cached for the next time bucket
+    Mockito.verify(wrappedValidator, Mockito.times(2)).validate(Mockito.any(), Mockito.any(), Mockito.any());
+    Assertions.assertEquals(2, validator.getEntryCount());
+    Assertions.assertSame(result, validator.validate(signerCert, null, null));
+  }
+
+  @Test
+  void testRefreshWithoutDefinitiveStatusIsNotCached() throws Exception {
+    CertificateValidationResult result = getResult(signerCert, ValidationStatus.CertificateValidity.VALID);
+    CertificateValidationResult refreshed = getResult(signerCert, ValidationStatus.CertificateValidity.UNKNOWN);
+    Mockito.doReturn(result, refreshed).when(wrappedValidator)
+      .validate(Mockito.any(), Mockito.any(), Mockito.any());
+    CachingCertificateValidator validator = getValidator(3600);
+
+    validator.validate(signerCert, null, null);
+    validator.validate(signerCert, null, null);
+    waitForRefresh("success");
+
+    Assertions.assertEquals(1, validator.getEntryCount());
+  }
+
+  private CachingCertificateValidator getValidator(long refreshAheadSeconds) {
+    return new CachingCertificateValidator(wrappedValidator, "sig", 3600, 100, refreshAheadSeconds,
+      refreshAheadSeconds > 0 ? refresher : null, meterRegistry);
+  }
+
+  private double getRequestCount(String result) {
+    return meterRegistry.counter("sigval.cert-validator.cache.requests", "validator", "sig", "result", result)
+      .count();
+  }
+
+  private void waitForRefresh(String result) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (meterRegistry.counter("sigval.cert-validator.cache.refreshes", "validator", "sig", "result", result)
+      .count() < 1 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assertions.assertEquals(1,
+      meterRegistry.counter("sigval.cert-validator.cache.refreshes", "validator", "sig", "result", result).count());
+  }
+
+  private static CertificateValidationResult getResult(X509Certificate certificate,
+    ValidationStatus.CertificateValidity... validities) {
+    List<ValidationStatus> validationStatusList = new ArrayList<>();
+    for (ValidationStatus.CertificateValidity validity : validities) {
+      ValidationStatus validationStatus = Mockito.mock(ValidationStatus.class);
+      Mockito.doReturn(validity).when(validationStatus).getValidity();
+      validationStatusList.add(validationStatus);
+    }
+    ExtendedCertPathValidatorResult result = Mockito.mock(ExtendedCertPathValidatorResult.class);
+    Mockito.doReturn(validationStatusList).when(result).getValidationStatusList();
+    Mockito.doReturn(List.of(certificate, caCert)).when(result).getValidatedCertificatePath();
+    return result;
+  }
+
+  private static X509Certificate getCertificate(String subject, long notAfter) throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(256);
+    KeyPair keyPair = generator.generateKeyPair();
+    return new JcaX509CertificateConverter().getCertificate(new JcaX509v3CertificateBuilder(new X500Name(subject),
+      BigInteger.valueOf(System.nanoTime()), new Date(notAfter - 86400000L * 730),
+      new Date(notAfter), new X500Name(subject), keyPair.getPublic())
+      .build(new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC").build(keyPair.getPrivate())));
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import se.idsec.sigval.sigvalservice.configuration.FileSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Testing document spooling and size enforcement
+ */
+public class DocumentSpoolerTest {
+
+  @TempDir
+  Path spoolFolder;
+
+  @Test
+  void testSmallDocumentIsHeldInMemory() throws Exception {
+    DocumentSpooler spooler = getSpooler(true, 1000, 10000);
+    byte[] document = getDocument(1000);
+    try (SpooledDocument spooled = spooler.spool(new ByteArrayInputStream(document))) {
+      Assertions.assertFalse(spooled.isSpooled());
+      Assertions.assertEquals(document.length, spooled.getSize());
+      Assertions.assertArrayEquals(document, spooled.getDocumentBytes());
+      Assertions.assertEquals(getHash(document), spooled.getDocumentHash());
+    }
+    Assertions.assertEquals(0, getSpoolFileCount());
+  }
+
+  @Test
+  void testLargeDocumentIsSpooled() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DocumentSpooler spooler = getSpooler(true, 1000, 100000, meterRegistry);
+    byte[] document = getDocument(50000);
+    SpooledDocument spooled = spooler.spool(new ByteArrayInputStream(document));
+    try {
+      Assertions.assertTrue(spooled.isSpooled());
+      Assertions.assertEquals(1, getSpoolFileCount());
+      Assertions.assertEquals(document.length, spooled.getSize());
+      Assertions.assertEquals(getHash(document), spooled.getDocumentHash());
+      Assertions.assertEquals(document.length, meterRegistry.get("sigval.spool.size").gauge().value());
+
+      // The bytes are read once and the same array is returned by later calls
+      byte[] documentBytes = spooled.getDocumentBytes();
+      Assertions.assertArrayEquals(document, documentBytes);
+      Assertions.assertSame(documentBytes, spooled.getDocumentBytes());
+    }
+    finally {
+      spooled.close();
+    }
+    Assertions.assertEquals(0, getSpoolFileCount());
+    Assertions.assertEquals(0, meterRegistry.get("sigval.spool.size").gauge().value());
+    // Closing again does not release the spooled bytes again
+    spooled.close();
+    Assertions.assertEquals(0, meterRegistry.get("sigval.spool.size").gauge().value());
+    Assertions.assertThrows(IOException.class, spooled::getDocumentBytes);
+  }
+
+  @Test
+  void testMaxSizeIsEnforced() throws Exception {
+    DocumentSpooler spooler = getSpooler(true, 1000, 20000);
+    Assertions.assertEquals(20000, spooler.getMaxSize());
+
+    try (SpooledDocument spooled = spooler.spool(new ByteArrayInputStream(getDocument(20000)))) {
+      Assertions.assertEquals(20000, spooled.getSize());
+    }
+    // Rejected while spooling, and the partial spool file is deleted
+    IOException tooLarge = Assertions.assertThrows(IOException.class,
+      () -> spooler.spool(new ByteArrayInputStream(getDocument(20001))));
+    Assertions.assertTrue(tooLarge.getMessage().contains("Too large document"));
+    Assertions.assertEquals(0, getSpoolFileCount());
+
+    // Rejected before spooling when the threshold equals the max size
+    DocumentSpooler memorySpooler = getSpooler(true, 50000, 20000);
+    Assertions.assertThrows(IOException.class,
+      () -> memorySpooler.spool(new ByteArrayInputStream(getDocument(20001))));
+    Assertions.assertEquals(0, getSpoolFileCount());
+  }
+
+  @Test
+  void testSpoolingDisabled() throws Exception {
+    DocumentSpooler spooler = getSpooler(false, 1000, 1000000);
+    // The max file size of the multipart configuration applies
+    Assertions.assertEquals(20000, spooler.getMaxSize());
+    try (SpooledDocument spooled = spooler.spool(new ByteArrayInputStream(getDocument(20000)))) {
+      Assertions.assertFalse(spooled.isSpooled());
+    }
+    Assertions.assertThrows(DocumentTooLargeException.class,
+      () -> spooler.spool(new ByteArrayInputStream(getDocument(20001))));
+
+    // Documents of the report and SVT APIs are not limited when spooling is disabled
+    byte[] document = getDocument(50000);
+    try (SpooledDocument spooled = spooler.spoolWithoutMemoryLimit(new ByteArrayInputStream(document))) {
+      Assertions.assertFalse(spooled.isSpooled());
+      Assertions.assertArrayEquals(document, spooled.getDocumentBytes());
+    }
+    Assertions.assertEquals(0, getSpoolFileCount());
+  }
+
+  @Test
+  void testMaxSizeAppliesWithoutMemoryLimitWhenSpooling() throws Exception {
+    DocumentSpooler spooler = getSpooler(true, 1000, 20000);
+    Assertions.assertThrows(DocumentTooLargeException.class,
+      () -> spooler.spoolWithoutMemoryLimit(new ByteArrayInputStream(getDocument(20001))));
+    try (SpooledDocument spooled = spooler.spoolWithoutMemoryLimit(new ByteArrayInputStream(getDocument(20000)))) {
+      Assertions.assertTrue(spooled.isSpooled());
+    }
+    Assertions.assertEquals(0, getSpoolFileCount());
+  }
+
+  @Test
+  void testNoDocument() throws Exception {
+    DocumentSpooler spooler = getSpooler(true, 1000, 10000);
+    try (SpooledDocument spooled = spooler.spool(null)) {
+      Assertions.assertTrue(spooled.isEmpty());
+      Assertions.assertEquals(0, spooled.getDocumentBytes().length);
+      Assertions.assertEquals(getHash(new byte[0]), spooled.getDocumentHash());
+    }
+  }
+
+  private DocumentSpooler getSpooler(boolean enabled, long threshold, long maxSize) throws IOException {
+    return getSpooler(enabled, threshold, maxSize, new SimpleMeterRegistry());
+  }
+
+  private DocumentSpooler getSpooler(boolean enabled, long threshold, long maxSize, MeterRegistry meterRegistry)
+    throws IOException {
+    return new DocumentSpooler(enabled, DataSize.ofBytes(threshold), DataSize.ofBytes(maxSize),
+      spoolFolder.toString(), new FileSize("20KB"), meterRegistry);
+  }
+
+  private long getSpoolFileCount() throws IOException {
+    try (Stream<Path> files = Files.list(spoolFolder)) {
+      return files.count();
+    }
+  }
+
+  private static byte[] getDocument(int size) {
+    byte[] document = new byte[size];
+    new Random(size).nextBytes(document);
+    return document;
+  }
+
+  private static String getHash(byte[] document) throws Exception {
+    return Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(document));
+  }
+
+}
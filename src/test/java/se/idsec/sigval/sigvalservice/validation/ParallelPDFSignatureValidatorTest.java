@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Testing the signature count estimate of the parallel PDF signature validator
+ */
+public class ParallelPDFSignatureValidatorTest {
+
+  @Test
+  void testCountByteRanges() {
+    Assertions.assertEquals(0, ParallelPDFSignatureValidator.countByteRanges(new byte[0], 2));
+    Assertions.assertEquals(0, count("%PDF-1.7 no signatures", 2));
+    Assertions.assertEquals(1, count("<</Type/Sig/ByteRange [0 10 20 30]>>", 2));
+    Assertions.assertEquals(2, count("/ByteRange [0 1 2 3] /ByteRange [0 1 2 3]", 2));
+
+    // Counting stops at the limit
+    Assertions.assertEquals(2, count("/ByteRange /ByteRange /ByteRange", 2));
+    Assertions.assertEquals(3, count("/ByteRange /ByteRange /ByteRange", 5));
+
+    // The key at the start and at the end of the document
+    Assertions.assertEquals(2, count("/ByteRange/ByteRange", 5));
+  }
+
+  @Test
+  void testCountByteRangesIgnoresOtherKeys() {
+    Assertions.assertEquals(0, count("/Byte /ByteRang /byterange ByteRange", 5));
+    Assertions.assertEquals(1, count("//ByteRange /ByteRang", 5));
+    // Truncated key at the end of the document
+    Assertions.assertEquals(1, count("/ByteRange /ByteRan", 5));
+  }
+
+  private static int count(String document, int limit) {
+    return ParallelPDFSignatureValidator.countByteRanges(document.getBytes(StandardCharsets.ISO_8859_1), limit);
+  }
+
+}
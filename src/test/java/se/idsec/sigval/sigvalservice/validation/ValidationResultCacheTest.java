@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 IDsec Solutions AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.idsec.sigval.sigvalservice.validation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.util.unit.DataSize;
+import se.swedenconnect.sigval.commons.data.ExtendedSigValResult;
+import se.swedenconnect.sigval.commons.data.SignedDocumentValidationResult;
+
+import java.security.MessageDigest;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Testing the validation result cache
+ */
+public class ValidationResultCacheTest {
+
+  MeterRegistry meterRegistry;
+  AtomicInteger validations;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    validations = new AtomicInteger();
+  }
+
+  @Test
+  void testResultIsCached() throws Exception {
+    ValidationResultCache cache = getCache(true, 10000);
+    byte[] document = getDocument(100, 1);
+
+    SignedDocumentValidationResult<ExtendedSigValResult> result = cache.getValidationResult(document, 1,
+      this::validate);
+    Assertions.assertSame(result, cache.getValidationResult(document, 1, this::validate));
+    // A hash computed when the document was read gives the same cache key
+    Assertions.assertSame(result, cache.getValidationResult(document, getHash(document), 1, this::validate));
+
+    Assertions.assertEquals(1, validations.get());
+    Assertions.assertEquals(1, cache.getEntryCount());
+    Assertions.assertEquals(100, cache.getCachedBytes());
+    Assertions.assertEquals(2, meterRegistry.counter("sigval.validation.cache.requests", "result", "hit").count());
+    Assertions.assertEquals(1, meterRegistry.counter("sigval.validation.cache.requests", "result", "miss").count());
+  }
+
+  @Test
+  void testResultIsNotReusedByOtherGeneration() throws Exception {
+    ValidationResultCache cache = getCache(true, 10000);
+    byte[] document = getDocument(100, 1);
+
+    SignedDocumentValidationResult<ExtendedSigValResult> result = cache.getValidationResult(document, 1,
+      this::validate);
+    Assertions.assertNotSame(result, cache.getValidationResult(document, 2, this::validate));
+    Assertions.assertEquals(2, validations.get());
+
+    cache.clear();
+    Assertions.assertEquals(0, cache.getEntryCount());
+    Assertions.assertEquals(0, cache.getCachedBytes());
+  }
+
+  @Test
+  void testEviction() throws Exception {
+    ValidationResultCache cache = getCache(true, 250);
+    byte[] first = getDocument(100, 1);
+    byte[] second = getDocument(100, 2);
+    byte[] third = getDocument(100, 3);
+
+    cache.getValidationResult(first, 1, this::validate);
+    cache.getValidationResult(second, 1, this::validate);
+    // Using the first result makes the second result the least recently used
+    cache.getValidationResult(first, 1, this::validate);
+    cache.getValidationResult(third, 1, this::validate);
+
+    Assertions.assertEquals(2, cache.getEntryCount());
+    Assertions.assertEquals(200, cache.getCachedBytes());
+    Assertions.assertEquals(1, meterRegistry.counter("sigval.validation.cache.evictions").count());
+    cache.getValidationResult(first, 1, this::validate);
+    Assertions.assertEquals(3, validations.get());
+    cache.getValidationResult(second, 1, this::validate);
+    Assertions.assertEquals(4, validations.get());
+  }
+
+  @Test
+  void testSignedDocumentsAreWeighted() throws Exception {
+    ValidationResultCache cache = getCache(true, 10000);
+    byte[] document = getDocument(100, 1);
+    cache.getValidationResult(document, 1, doc -> {
+      validations.incrementAndGet();
+      return getResult(new byte[300], new byte[200]);
+    });
+    Assertions.assertEquals(600, cache.getCachedBytes());
+
+    // Results larger than the cache are not cached
+    ValidationResultCache smallCache = getCache(true, 500);
+    smallCache.getValidationResult(document, 1, doc -> getResult(new byte[300], new byte[200]));
+    Assertions.assertEquals(0, smallCache.getEntryCount());
+  }
+
+  @Test
+  void testFailedValidationIsNotCached() throws Exception {
+    ValidationResultCache cache = getCache(true, 10000);
+    byte[] document = getDocument(100, 1);
+    ValidationResultCache.DocumentValidationFunction<ExtendedSigValResult> failing = doc -> {
+      validations.incrementAndGet();
+      throw new SignatureException("Bad document");
+    };
+
+    Assertions.assertThrows(SignatureException.class, () -> cache.getValidationResult(document, 1, failing));
+    Assertions.assertThrows(SignatureException.class, () -> cache.getValidationResult(document, 1, failing));
+    Assertions.assertEquals(2, validations.get());
+    Assertions.assertEquals(0, cache.getEntryCount());
+  }
+
+  @Test
+  void testDisabled() throws Exception {
+    ValidationResultCache cache = getCache(false, 10000);
+    byte[] document = getDocument(100, 1);
+    cache.getValidationResult(document, 1, this::validate);
+    cache.getValidationResult(document, 1, this::validate);
+    cache.put(document, 1, getResult());
+    Assertions.assertEquals(2, validations.get());
+    Assertions.assertEquals(0, cache.getEntryCount());
+  }
+
+  @Test
+  void testIsFresh() {
+    ValidationResultCache cache = getCache(true, 10000);
+    long now = System.currentTimeMillis();
+    Assertions.assertTrue(cache.isFresh(now, 1, 1));
+    Assertions.assertFalse(cache.isFresh(now, 1, 2));
+    Assertions.assertFalse(cache.isFresh(now - 7200000, 1, 1));
+  }
+
+  private ValidationResultCache getCache(boolean enabled, long maxBytes) {
+    return new ValidationResultCache(enabled, DataSize.ofBytes(maxBytes), 3600, meterRegistry);
+  }
+
+  private SignedDocumentValidationResult<ExtendedSigValResult> validate(byte[] document) {
+    validations.incrementAndGet();
+    return getResult();
+  }
+
+  private static SignedDocumentValidationResult<ExtendedSigValResult> getResult(byte[]... signedDocuments) {
+    List<ExtendedSigValResult> signatureResults = new ArrayList<>();
+    for (byte[] signedDocument : signedDocuments) {
+      ExtendedSigValResult signatureResult = Mockito.mock(ExtendedSigValResult.class);
+      Mockito.doReturn(signedDocument).when(signatureResult).getSignedDocument();
+      signatureResults.add(signatureResult);
+    }
+    @SuppressWarnings("unchecked")
+    SignedDocumentValidationResult<ExtendedSigValResult> result = Mockito.mock(SignedDocumentValidationResult.class);
+    Mockito.doReturn(signatureResults).when(result).getSignatureValidationResults();
+    return result;
+  }
+
+  private static byte[] getDocument(int size, int seed) {
+    byte[] document = new byte[size];
+    new Random(seed).nextBytes(document);
+    return document;
+  }
+
+  private static String getHash(byte[] document) throws Exception {
+    return Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(document));
+  }
+
+}